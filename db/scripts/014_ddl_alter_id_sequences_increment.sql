@@ -0,0 +1,14 @@
+--liquibase formatted sql
+
+--changeset job4j:014_ddl_alter_id_sequences_increment dbms:postgresql
+--comment: шаг sequence совпадает с allocationSize = 50 пулового оптимизатора Hibernate
+ALTER SEQUENCE auto_user_id_seq INCREMENT BY 50;
+ALTER SEQUENCE auto_post_id_seq INCREMENT BY 50;
+ALTER SEQUENCE price_history_id_seq INCREMENT BY 50;
+ALTER SEQUENCE participates_id_seq INCREMENT BY 50;
+ALTER SEQUENCE engine_id_seq INCREMENT BY 50;
+ALTER SEQUENCE car_id_seq INCREMENT BY 50;
+ALTER SEQUENCE owners_id_seq INCREMENT BY 50;
+ALTER SEQUENCE history_owners_id_seq INCREMENT BY 50;
+ALTER SEQUENCE photos_id_seq INCREMENT BY 50;
+ALTER SEQUENCE brands_id_seq INCREMENT BY 50;
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset job4j:015_ddl_create_auto_user_login_trgm_index dbms:postgresql
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS auto_user_login_trgm_idx ON auto_user USING gin (login gin_trgm_ops);
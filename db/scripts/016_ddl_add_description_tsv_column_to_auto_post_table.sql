@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset job4j:016_ddl_add_description_tsv_column_to_auto_post_table dbms:postgresql
+ALTER TABLE auto_post ADD COLUMN description_tsv tsvector
+    GENERATED ALWAYS AS (to_tsvector('russian', coalesce(description, ''))) STORED;
+CREATE INDEX auto_post_description_tsv_idx ON auto_post USING gin (description_tsv);
@@ -0,0 +1,10 @@
+--liquibase formatted sql
+
+--changeset job4j:017_ddl_add_photo_count_column_to_auto_post_table
+ALTER TABLE auto_post ADD COLUMN photo_count INT NOT NULL DEFAULT 0;
+UPDATE auto_post p SET photo_count = (SELECT COUNT(*) FROM photos ph WHERE ph.post_id = p.id);
+
+--changeset job4j:017_ddl_create_auto_post_with_photo_index dbms:postgresql
+--comment: частичный индекс обслуживает ленту объявлений с фото по убыванию id
+CREATE INDEX auto_post_with_photo_idx ON auto_post (id DESC) WHERE photo_count > 0;
+CREATE INDEX IF NOT EXISTS photos_post_id_idx ON photos (post_id);
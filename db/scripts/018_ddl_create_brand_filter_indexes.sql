@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset job4j:018_ddl_create_brand_filter_indexes
+--comment: выборка объявлений по id марки: car(brand_id, id) -> auto_post(car_id, id DESC)
+CREATE INDEX car_brand_id_id_idx ON car (brand_id, id);
+CREATE INDEX auto_post_car_id_id_idx ON auto_post (car_id, id DESC);
@@ -0,0 +1,75 @@
+--liquibase formatted sql
+
+--changeset job4j:019_ddl_create_monthly_partitions_function dbms:postgresql splitStatements:false
+--comment: создает месячные партиции parent_YYYY_MM от first_month до текущего месяца + months_ahead,
+--comment: строки нужного месяца переносятся из parent_default, возвращает число созданных партиций
+CREATE OR REPLACE FUNCTION create_monthly_partitions(parent TEXT, first_month DATE, months_ahead INT)
+RETURNS INT LANGUAGE plpgsql AS $$
+DECLARE
+    from_month DATE := date_trunc('month', first_month)::date;
+    last_month DATE := (date_trunc('month', now()) + make_interval(months => months_ahead))::date;
+    next_month DATE;
+    part TEXT;
+    added INT := 0;
+BEGIN
+    WHILE from_month <= last_month LOOP
+        next_month := (from_month + INTERVAL '1 month')::date;
+        part := format('%s_%s', parent, to_char(from_month, 'YYYY_MM'));
+        IF to_regclass(part) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', part, parent);
+            IF to_regclass(parent || '_default') IS NOT NULL THEN
+                EXECUTE format('WITH moved AS (DELETE FROM %I WHERE created >= %L AND created < %L RETURNING *) '
+                               'INSERT INTO %I SELECT * FROM moved', parent || '_default', from_month, next_month, part);
+            END IF;
+            EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           parent, part, from_month, next_month);
+            added := added + 1;
+        END IF;
+        from_month := next_month;
+    END LOOP;
+    RETURN added;
+END
+$$;
+
+--changeset job4j:019_ddl_create_detach_old_partitions_function dbms:postgresql splitStatements:false
+--comment: отсоединяет месячные партиции старше retention_months: данные остаются отдельными таблицами
+--comment: для архивации, возвращает число отсоединенных партиций
+CREATE OR REPLACE FUNCTION detach_old_partitions(parent TEXT, retention_months INT)
+RETURNS INT LANGUAGE plpgsql AS $$
+DECLARE
+    oldest DATE := (date_trunc('month', now()) - make_interval(months => retention_months))::date;
+    part RECORD;
+    detached INT := 0;
+BEGIN
+    FOR part IN
+        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = parent::regclass
+          AND c.relname ~ ('^' || parent || '_\d{4}_\d{2}$')
+          AND to_date(right(c.relname, 7), 'YYYY_MM') < oldest
+    LOOP
+        EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', parent, part.relname);
+        detached := detached + 1;
+    END LOOP;
+    RETURN detached;
+END
+$$;
+
+--changeset job4j:019_ddl_partition_price_history_table dbms:postgresql
+--comment: price_history секционируется по created помесячно, первичный ключ обязан включать ключ секционирования
+ALTER TABLE price_history RENAME TO price_history_old;
+ALTER INDEX price_history_pkey RENAME TO price_history_old_pkey;
+CREATE TABLE price_history (
+    id INT NOT NULL DEFAULT nextval('price_history_id_seq'),
+    before BIGINT NOT NULL,
+    after BIGINT NOT NULL,
+    created TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now(),
+    auto_post_id BIGINT NOT NULL REFERENCES auto_post(id),
+    PRIMARY KEY (id, created)
+) PARTITION BY RANGE (created);
+CREATE INDEX price_history_auto_post_id_idx ON price_history (auto_post_id);
+CREATE TABLE price_history_default PARTITION OF price_history DEFAULT;
+SELECT create_monthly_partitions('price_history', (SELECT COALESCE(MIN(created), now())::date FROM price_history_old), 3);
+INSERT INTO price_history (id, before, after, created, auto_post_id)
+    SELECT id, before, after, COALESCE(created, now()), auto_post_id FROM price_history_old;
+ALTER SEQUENCE price_history_id_seq OWNED BY price_history.id;
+DROP TABLE price_history_old;
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset job4j:020_ddl_create_auto_post_created_index
+--comment: лента за последний день выбирает объявления по created
+CREATE INDEX auto_post_created_idx ON auto_post (created);
@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset job4j:021_ddl_create_history_owners_period_index dbms:postgresql
+--comment: периоды владения владельца: owner_id = ? AND tsrange(start_at, end_at) && tsrange(?, ?)
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+CREATE INDEX history_owners_owner_period_idx ON history_owners USING gist (owner_id, tsrange(start_at, end_at));
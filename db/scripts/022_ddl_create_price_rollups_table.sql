@@ -0,0 +1,34 @@
+--liquibase formatted sql
+
+--changeset job4j:022_ddl_create_price_rollups_table
+--comment: агрегаты цен (price_history.after) по объявлению и марке за день и неделю
+CREATE TABLE price_rollups (
+    id BIGSERIAL PRIMARY KEY,
+    series VARCHAR(10) NOT NULL,
+    series_id BIGINT NOT NULL,
+    resolution VARCHAR(10) NOT NULL,
+    bucket_start DATE NOT NULL,
+    min_price BIGINT NOT NULL,
+    max_price BIGINT NOT NULL,
+    sum_price BIGINT NOT NULL,
+    price_count INT NOT NULL,
+    UNIQUE (series, series_id, resolution, bucket_start)
+);
+
+--changeset job4j:022_ddl_fill_price_rollups_table dbms:postgresql
+--comment: шаг sequence совпадает с allocationSize = 50, агрегаты по уже накопленной истории цен
+ALTER SEQUENCE price_rollups_id_seq INCREMENT BY 50;
+INSERT INTO price_rollups (series, series_id, resolution, bucket_start, min_price, max_price, sum_price, price_count)
+SELECT 'POST', ph.auto_post_id, r.resolution, date_trunc(r.field, ph.created)::date,
+       MIN(ph.after), MAX(ph.after), SUM(ph.after), COUNT(*)
+FROM price_history ph
+CROSS JOIN (VALUES ('DAY', 'day'), ('WEEK', 'week')) AS r(resolution, field)
+GROUP BY ph.auto_post_id, r.resolution, date_trunc(r.field, ph.created)::date;
+INSERT INTO price_rollups (series, series_id, resolution, bucket_start, min_price, max_price, sum_price, price_count)
+SELECT 'BRAND', c.brand_id, r.resolution, date_trunc(r.field, ph.created)::date,
+       MIN(ph.after), MAX(ph.after), SUM(ph.after), COUNT(*)
+FROM price_history ph
+JOIN auto_post p ON p.id = ph.auto_post_id
+JOIN car c ON c.id = p.car_id
+CROSS JOIN (VALUES ('DAY', 'day'), ('WEEK', 'week')) AS r(resolution, field)
+GROUP BY c.brand_id, r.resolution, date_trunc(r.field, ph.created)::date;
@@ -0,0 +1,17 @@
+--liquibase formatted sql
+
+--changeset job4j:023_ddl_create_notifications_table
+--comment: уведомления подписчиков о снижении цены; подписчики объявления читаются пачками по participates(auto_post_id, auto_user_id)
+CREATE TABLE notifications (
+    id BIGSERIAL PRIMARY KEY,
+    auto_user_id INT NOT NULL REFERENCES auto_user(id) ON DELETE CASCADE,
+    auto_post_id INT NOT NULL REFERENCES auto_post(id) ON DELETE CASCADE,
+    before BIGINT NOT NULL,
+    after BIGINT NOT NULL,
+    created TIMESTAMP NOT NULL
+);
+CREATE INDEX notifications_auto_user_id_idx ON notifications (auto_user_id, id DESC);
+CREATE INDEX participates_auto_post_id_auto_user_id_idx ON participates (auto_post_id, auto_user_id);
+
+--changeset job4j:023_ddl_alter_notifications_id_seq_increment dbms:postgresql
+ALTER SEQUENCE notifications_id_seq INCREMENT BY 50;
@@ -0,0 +1,51 @@
+package ru.job4j.cars.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.repository.KeysetPage;
+import ru.job4j.cars.repository.post.PostFetchPlan;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фильтр объявлений по марке: соединение auto_post - car - brands со сравнением имени
+ * против выборки по id марки, полученному из кэша натуральных ключей.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BrandFilterBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Benchmark
+    public List<Post> allPostsByBrandNameJoin(MarketplaceState state) {
+        return state.getCrudRepository().namedQuery(
+                Post.FIND_BY_BRAND_NAME, Post.class, Map.of("brandName", popularBrand(state)));
+    }
+
+    @Benchmark
+    public List<Post> allPostsByBrandId(MarketplaceState state) {
+        return state.getPostRepository().getAllPostsWithSpecificCarBrand(popularBrand(state));
+    }
+
+    @Benchmark
+    public List<Post> firstPageByBrandNameJoin(MarketplaceState state) {
+        return state.getCrudRepository().namedQuery(
+                Post.PAGE_BY_BRAND_NAME, Post.class,
+                Map.of("brandName", popularBrand(state), "cursor", Long.MAX_VALUE), PAGE_SIZE + 1, PostFetchPlan.CARD);
+    }
+
+    @Benchmark
+    public KeysetPage<Post> firstPageByBrandId(MarketplaceState state) {
+        return state.getPostRepository().getPostsWithSpecificCarBrandPage(popularBrand(state), null, PAGE_SIZE);
+    }
+
+    private static String popularBrand(MarketplaceState state) {
+        return state.getBrandList().get(0).getName();
+    }
+}
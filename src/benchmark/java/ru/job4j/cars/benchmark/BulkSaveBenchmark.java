@@ -0,0 +1,67 @@
+package ru.job4j.cars.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетное сохранение пользователей и объявлений.
+ * Добавленные строки удаляются после каждой итерации, чтобы объём базы не рос.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class BulkSaveBenchmark {
+
+    private static final String PREFIX = "bulk-";
+
+    @Param("500")
+    private int batch;
+
+    @Benchmark
+    public Object createAllUsers(MarketplaceState state) {
+        List<User> users = new ArrayList<>(batch);
+        for (int i = 0; i < batch; i++) {
+            User user = new User();
+            user.setLogin(PREFIX + i);
+            user.setPassword("password");
+            users.add(user);
+        }
+        return state.getUserRepository().createAll(users);
+    }
+
+    @Benchmark
+    public List<Post> saveAllPosts(MarketplaceState state) {
+        List<Post> posts = new ArrayList<>(batch);
+        User user = state.getUserList().get(0);
+        for (int i = 0; i < batch; i++) {
+            Post post = new Post();
+            post.setDescription(PREFIX + i);
+            post.setUser(user);
+            post.setCar(state.getCarList().get(i % state.getCarList().size()));
+            posts.add(post);
+        }
+        state.getPostRepository().saveAllPosts(posts);
+        return posts;
+    }
+
+    @TearDown(Level.Iteration)
+    public void cleanUp(MarketplaceState state) {
+        Map<String, Object> args = Map.of("prefix", PREFIX + "%");
+        state.getCrudRepository().run("delete from Post where description like :prefix", args);
+        state.getCrudRepository().run("delete from User where login like :prefix", args);
+    }
+}
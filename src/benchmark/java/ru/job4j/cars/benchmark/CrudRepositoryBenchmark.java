@@ -0,0 +1,33 @@
+package ru.job4j.cars.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import ru.job4j.cars.model.Brand;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы CrudRepository на открытие сессии и транзакции.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CrudRepositoryBenchmark {
+
+    @Benchmark
+    public Object emptyTx(MarketplaceState state) {
+        return state.getCrudRepository().tx(session -> null);
+    }
+
+    @Benchmark
+    public Object emptyReadOnlyTx(MarketplaceState state) {
+        return state.getCrudRepository().readOnlyTx(session -> null);
+    }
+
+    @Benchmark
+    public Optional<Brand> findCachedBrand(MarketplaceState state) {
+        return state.getCrudRepository().find(Brand.class, state.getBrandList().get(0).getId());
+    }
+}
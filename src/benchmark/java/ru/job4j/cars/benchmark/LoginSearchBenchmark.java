@@ -0,0 +1,71 @@
+package ru.job4j.cars.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.job4j.cars.repository.user.LoginNgramIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск по части логина среди users логинов: индекс триграмм против перебора
+ * (перебор - то же, что делает база при LIKE '%key%' без индекса).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class LoginSearchBenchmark {
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789";
+
+    @Param("1000000")
+    private int users;
+
+    @Param("42")
+    private long seed;
+
+    private final LoginNgramIndex index = new LoginNgramIndex();
+
+    private final List<String> logins = new ArrayList<>();
+
+    private String key;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < users; i++) {
+            StringBuilder login = new StringBuilder();
+            int length = 6 + random.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                login.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            logins.add(login.toString());
+            index.put(i, login.toString());
+        }
+        key = logins.get(users / 2).substring(1, 5);
+    }
+
+    @Benchmark
+    public List<Integer> ngramIndex() {
+        return index.search(key);
+    }
+
+    @Benchmark
+    public List<Integer> fullScan() {
+        List<Integer> rsl = new ArrayList<>();
+        for (int i = 0; i < logins.size(); i++) {
+            if (logins.get(i).contains(key)) {
+                rsl.add(i);
+            }
+        }
+        return rsl;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.job4j.cars.benchmark;
+
+import lombok.Getter;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.job4j.cars.generator.GeneratorSettings;
+import ru.job4j.cars.generator.MarketplaceGenerator;
+import ru.job4j.cars.model.Brand;
+import ru.job4j.cars.model.Car;
+import ru.job4j.cars.model.User;
+import ru.job4j.cars.repository.CrudRepository;
+import ru.job4j.cars.repository.post.PostRepository;
+import ru.job4j.cars.repository.user.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Общее состояние бенчмарков: H2 в памяти (режим PostgreSQL),
+ * заполненная {@link MarketplaceGenerator} данными заданного объёма.
+ * Объём и seed задаются через -p, например: -p posts=100000 -p seed=7.
+ */
+@State(Scope.Benchmark)
+public class MarketplaceState {
+
+    private static final String URL = "jdbc:h2:mem:benchmark;MODE=PostgreSQL;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static final int CARS = 1000;
+
+    @Param("10000")
+    private int posts;
+
+    @Param("1000")
+    private int users;
+
+    @Param("20")
+    private int brands;
+
+    @Param("42")
+    private long seed;
+
+    @Getter
+    private SessionFactory sf;
+
+    @Getter
+    private CrudRepository crudRepository;
+
+    @Getter
+    private PostRepository postRepository;
+
+    @Getter
+    private UserRepository userRepository;
+
+    @Getter
+    private final List<Brand> brandList = new ArrayList<>();
+
+    @Getter
+    private final List<User> userList = new ArrayList<>();
+
+    @Getter
+    private final List<Car> carList = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sf = new Configuration().configure("hibernate.cfg.xml")
+                .setProperty("hibernate.connection.url", URL)
+                .setProperty("hibernate.show_sql", "false")
+                .setProperty("hibernate.generate_statistics", "false")
+                .buildSessionFactory();
+        crudRepository = new CrudRepository(sf);
+        postRepository = new PostRepository(crudRepository);
+        userRepository = new UserRepository(crudRepository);
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sf.close();
+    }
+
+    /**
+     * Загрузка данных генератором и чтение справочников, которые используют бенчмарки.
+     */
+    private void seed() {
+        GeneratorSettings settings = new GeneratorSettings();
+        settings.setSeed(seed);
+        settings.setBrands(brands);
+        settings.setUsers(users);
+        settings.setPosts(posts);
+        crudRepository.tx(session -> session.doReturningWork(new MarketplaceGenerator(settings)::generate));
+        brandList.addAll(crudRepository.query("from Brand b order by b.id", Brand.class));
+        userList.addAll(crudRepository.query("from User u order by u.id", User.class));
+        carList.addAll(crudRepository.query("from Car c order by c.id", Car.class, Map.of(), CARS));
+    }
+
+    public Random random() {
+        return new Random(seed);
+    }
+}
@@ -0,0 +1,46 @@
+package ru.job4j.cars.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.repository.KeysetPage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Списочные методы PostRepository: полные выборки и постраничные ленты.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PostRepositoryBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Benchmark
+    public List<Post> allPostsForLastDay(MarketplaceState state) {
+        return state.getPostRepository().getAllPostsForLastDay();
+    }
+
+    @Benchmark
+    public List<Post> allPostsWithPhoto(MarketplaceState state) {
+        return state.getPostRepository().getAllPostsWithPhoto();
+    }
+
+    @Benchmark
+    public List<Post> allPostsWithPopularBrand(MarketplaceState state) {
+        return state.getPostRepository().getAllPostsWithSpecificCarBrand(state.getBrandList().get(0).getName());
+    }
+
+    @Benchmark
+    public KeysetPage<Post> firstPage(MarketplaceState state) {
+        return state.getPostRepository().getPostsPage(null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public KeysetPage<Post> firstPageForLastDay(MarketplaceState state) {
+        return state.getPostRepository().getPostsForLastDayPage(null, PAGE_SIZE);
+    }
+}
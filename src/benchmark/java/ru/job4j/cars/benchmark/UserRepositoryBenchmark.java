@@ -0,0 +1,42 @@
+package ru.job4j.cars.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.job4j.cars.model.User;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск пользователей по логину: точное совпадение и LIKE.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class UserRepositoryBenchmark {
+
+    private Random random;
+
+    @Setup
+    public void setUp(MarketplaceState state) {
+        random = state.random();
+    }
+
+    @Benchmark
+    public Optional<User> findByLogin(MarketplaceState state) {
+        List<User> users = state.getUserList();
+        return state.getUserRepository().findByLogin(users.get(random.nextInt(users.size())).getLogin());
+    }
+
+    @Benchmark
+    public List<User> findByLikeLogin(MarketplaceState state) {
+        return state.getUserRepository().findByLikeLogin("-" + random.nextInt(100));
+    }
+}
@@ -0,0 +1,45 @@
+package ru.job4j.cars.configuration;
+
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.job4j.cars.repository.BlockingExecutors;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Потоки для блокирующих вызовов: асинхронный API CrudRepository и, при
+ * cars.virtual-threads.enabled=true на Java 21+, обработчики запросов Tomcat на виртуальных потоках.
+ */
+@Configuration
+public class ExecutionConfig {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExecutionConfig.class);
+
+    /**
+     * Исполнитель асинхронных вызовов CrudRepository.
+     * @param virtual cars.virtual-threads.enabled.
+     * @param connections размер пула соединений, он же размер пула платформенных потоков.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService repositoryExecutor(@Value("${cars.virtual-threads.enabled:false}") boolean virtual,
+                                              @Value("${spring.datasource.dbcp2.max-total:20}") int connections) {
+        return BlockingExecutors.newExecutor(virtual, connections);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cars.virtual-threads.enabled", havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadTomcatExecutor() {
+        Optional<ExecutorService> executor = BlockingExecutors.virtualThreadPerTask();
+        if (executor.isEmpty()) {
+            LOG.warn("Virtual threads require Java 21+, Tomcat keeps its platform thread pool");
+        }
+        return handler -> executor.ifPresent(handler::setExecutor);
+    }
+}
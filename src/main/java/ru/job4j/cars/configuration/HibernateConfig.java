@@ -4,15 +4,30 @@ import org.hibernate.SessionFactory;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import javax.sql.DataSource;
+
 @Configuration
 public class HibernateConfig {
+
+    /**
+     * SessionFactory поверх пула соединений из spring.datasource.*,
+     * настройки пула задаются в application-{profile}.properties.
+     * @param dataSource пул соединений commons-dbcp2.
+     * @return SessionFactory.
+     */
     @Bean(destroyMethod = "close")
-    public SessionFactory sf() {
-        final StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
-                .configure().build();
+    public SessionFactory sf(DataSource dataSource) {
+        final StandardServiceRegistryBuilder builder = new StandardServiceRegistryBuilder()
+                .configure()
+                .applySetting(AvailableSettings.DATASOURCE, dataSource);
+        /* Учетные данные из hibernate.cfg.xml не нужны: их уже знает пул. */
+        builder.getSettings().remove(AvailableSettings.USER);
+        builder.getSettings().remove(AvailableSettings.PASS);
+        final StandardServiceRegistry registry = builder.build();
         return new MetadataSources(registry).buildMetadata().buildSessionFactory();
     }
 }
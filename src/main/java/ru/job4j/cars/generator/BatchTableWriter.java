@@ -0,0 +1,51 @@
+package ru.job4j.cars.generator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+
+/**
+ * Запись строк через INSERT с addBatch/executeBatch.
+ */
+class BatchTableWriter implements TableWriter {
+
+    private final PreparedStatement statement;
+
+    private final int batchSize;
+
+    private long count;
+
+    BatchTableWriter(Connection connection, GeneratedTable table, int batchSize) throws SQLException {
+        this.statement = connection.prepareStatement(String.format(
+                "INSERT INTO %s (%s) VALUES (%s)",
+                table.getTable(),
+                String.join(", ", table.getColumns()),
+                String.join(", ", Collections.nCopies(table.getColumns().size(), "?"))
+        ));
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void write(Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            statement.setObject(i + 1, values[i]);
+        }
+        statement.addBatch();
+        if (++count % batchSize == 0) {
+            statement.executeBatch();
+        }
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (statement) {
+            statement.executeBatch();
+        }
+    }
+}
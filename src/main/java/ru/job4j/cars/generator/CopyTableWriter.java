@@ -0,0 +1,81 @@
+package ru.job4j.cars.generator;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+/**
+ * Запись строк через COPY ... FROM STDIN в текстовом формате PostgreSQL.
+ */
+class CopyTableWriter implements TableWriter {
+
+    private final CopyIn copy;
+
+    private final int batchSize;
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    private long count;
+
+    CopyTableWriter(PGConnection connection, GeneratedTable table, int batchSize) throws SQLException {
+        this.copy = connection.getCopyAPI().copyIn(String.format(
+                "COPY %s (%s) FROM STDIN",
+                table.getTable(),
+                String.join(", ", table.getColumns())
+        ));
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void write(Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                buffer.append('\t');
+            }
+            append(values[i]);
+        }
+        buffer.append('\n');
+        if (++count % batchSize == 0) {
+            flush();
+        }
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        flush();
+        copy.endCopy();
+    }
+
+    private void append(Object value) {
+        if (value == null) {
+            buffer.append("\\N");
+            return;
+        }
+        String text = value.toString();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\' -> buffer.append("\\\\");
+                case '\t' -> buffer.append("\\t");
+                case '\n' -> buffer.append("\\n");
+                case '\r' -> buffer.append("\\r");
+                default -> buffer.append(c);
+            }
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (buffer.length() > 0) {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copy.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+    }
+}
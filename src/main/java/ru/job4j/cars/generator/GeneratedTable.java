@@ -0,0 +1,36 @@
+package ru.job4j.cars.generator;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Таблицы, которые заполняет генератор, в порядке загрузки (сначала те, на которые ссылаются).
+ */
+@Getter
+public enum GeneratedTable {
+    BRANDS("brands", "brands_id_seq", List.of("id", "name")),
+    ENGINE("engine", "engine_id_seq", List.of("id", "name")),
+    CAR("car", "car_id_seq", List.of("id", "name", "engine_id", "brand_id")),
+    AUTO_USER("auto_user", "auto_user_id_seq", List.of("id", "login", "password")),
+    OWNERS("owners", "owners_id_seq", List.of("id", "name", "user_id")),
+    HISTORY_OWNERS("history_owners", "history_owners_id_seq", List.of("id", "car_id", "owner_id", "start_at", "end_at")),
+    AUTO_POST("auto_post", "auto_post_id_seq", List.of("id", "description", "created", "auto_user_id", "car_id")),
+    PRICE_HISTORY("price_history", "price_history_id_seq", List.of("id", "before", "after", "created", "auto_post_id")),
+    PRICE_ROLLUPS("price_rollups", "price_rollups_id_seq", List.of("id", "series", "series_id", "resolution", "bucket_start",
+            "min_price", "max_price", "sum_price", "price_count")),
+    PHOTOS("photos", "photos_id_seq", List.of("id", "path", "post_id")),
+    PARTICIPATES("participates", "participates_id_seq", List.of("id", "auto_post_id", "auto_user_id"));
+
+    private final String table;
+
+    private final String sequence;
+
+    private final List<String> columns;
+
+    GeneratedTable(String table, String sequence, List<String> columns) {
+        this.table = table;
+        this.sequence = sequence;
+        this.columns = columns;
+    }
+}
@@ -0,0 +1,61 @@
+package ru.job4j.cars.generator;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запуск генератора из командной строки. Параметры передаются как key=value:
+ * url, user, password и поля {@link GeneratorSettings} (seed, brands, users, posts,
+ * brandSkew, priceChangesPerPost, photosPerPost, subscribersPerPost, ownersPerCar, days, batchSize).
+ */
+public class GeneratorMain {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> params = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            params.put(pair[0], pair[1]);
+        }
+        String url = params.getOrDefault("url", "jdbc:postgresql://127.0.0.1:5432/cars");
+        String user = params.getOrDefault("user", "postgres");
+        String password = params.getOrDefault("password", "password");
+        params.keySet().removeAll(List.of("url", "user", "password"));
+        GeneratorSettings settings = settings(params);
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            Map<GeneratedTable, Long> rows = new MarketplaceGenerator(settings).generate(connection);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            rows.forEach((table, count) -> System.out.printf("%-15s %,d%n", table.getTable(), count));
+            long total = rows.values().stream().mapToLong(Long::longValue).sum();
+            System.out.printf("%,d rows in %,d ms (%,d rows/s)%n", total, millis, total * 1000 / Math.max(1, millis));
+        }
+    }
+
+    private static GeneratorSettings settings(Map<String, String> params) {
+        GeneratorSettings settings = new GeneratorSettings();
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            String value = param.getValue();
+            switch (param.getKey()) {
+                case "seed" -> settings.setSeed(Long.parseLong(value));
+                case "brands" -> settings.setBrands(Integer.parseInt(value));
+                case "users" -> settings.setUsers(Integer.parseInt(value));
+                case "posts" -> settings.setPosts(Integer.parseInt(value));
+                case "brandSkew" -> settings.setBrandSkew(Double.parseDouble(value));
+                case "priceChangesPerPost" -> settings.setPriceChangesPerPost(Integer.parseInt(value));
+                case "photosPerPost" -> settings.setPhotosPerPost(Integer.parseInt(value));
+                case "subscribersPerPost" -> settings.setSubscribersPerPost(Integer.parseInt(value));
+                case "ownersPerCar" -> settings.setOwnersPerCar(Integer.parseInt(value));
+                case "days" -> settings.setDays(Integer.parseInt(value));
+                case "batchSize" -> settings.setBatchSize(Integer.parseInt(value));
+                default -> throw new IllegalArgumentException("Unknown parameter: " + param.getKey());
+            }
+        }
+        return settings;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.job4j.cars.generator;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Параметры генерации синтетических данных.
+ * Средние значения "на объявление" задают ожидаемое число строк: фактическое
+ * число выбирается равномерно в диапазоне [0, 2 * среднее].
+ */
+@Data
+public class GeneratorSettings {
+
+    private long seed = 42;
+
+    private int brands = 50;
+
+    private int users = 10_000;
+
+    private int posts = 100_000;
+
+    /**
+     * Показатель распределения Ципфа для марок: чем больше, тем сильнее перекос к популярным маркам.
+     */
+    private double brandSkew = 1.1;
+
+    private int priceChangesPerPost = 10;
+
+    private int photosPerPost = 3;
+
+    private int subscribersPerPost = 2;
+
+    private int ownersPerCar = 2;
+
+    /**
+     * Глубина истории объявлений в днях от момента now.
+     */
+    private int days = 30;
+
+    private LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+    private int batchSize = 1000;
+}
@@ -0,0 +1,372 @@
+package ru.job4j.cars.generator;
+
+import lombok.AllArgsConstructor;
+import ru.job4j.cars.model.Brand;
+import ru.job4j.cars.model.Car;
+import ru.job4j.cars.model.Engine;
+import ru.job4j.cars.model.HistoryOwner;
+import ru.job4j.cars.model.Owner;
+import ru.job4j.cars.model.Participates;
+import ru.job4j.cars.model.Photo;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PriceHistory;
+import ru.job4j.cars.model.PriceResolution;
+import ru.job4j.cars.model.PriceRollup;
+import ru.job4j.cars.model.PriceSeries;
+import ru.job4j.cars.model.User;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+/**
+ * Детерминированный генератор синтетических данных площадки.
+ * Одинаковые настройки (включая seed и now) дают одинаковые строки.
+ * Строки строятся из моделей и пишутся в обход Hibernate: в PostgreSQL через COPY,
+ * в остальные базы пачками JDBC. Id выдаются после текущего максимума в каждой таблице,
+ * по окончании последовательности сдвигаются за выданные id.
+ * Агрегаты цен (price_rollups) копятся в памяти при генерации истории цен и пишутся следом за ней.
+ */
+@AllArgsConstructor
+public class MarketplaceGenerator {
+
+    /**
+     * allocationSize у @SequenceGenerator моделей.
+     */
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final long MIN_PRICE = 300_000;
+
+    private static final long MAX_PRICE = 5_000_000;
+
+    private final GeneratorSettings settings;
+
+    /**
+     * Сгенерировать и загрузить данные одной транзакцией.
+     * @param connection соединение, транзакцией которого управляет генератор.
+     * @return число добавленных строк по таблицам.
+     */
+    public Map<GeneratedTable, Long> generate(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            Map<GeneratedTable, Long> rsl = load(connection, new SplittableRandom(settings.getSeed()));
+            connection.commit();
+            return rsl;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private Map<GeneratedTable, Long> load(Connection connection, SplittableRandom random) throws SQLException {
+        Map<GeneratedTable, Long> offsets = new EnumMap<>(GeneratedTable.class);
+        for (GeneratedTable table : GeneratedTable.values()) {
+            offsets.put(table, maxId(connection, table));
+        }
+        int brandId = offsets.get(GeneratedTable.BRANDS).intValue();
+        int engineId = offsets.get(GeneratedTable.ENGINE).intValue();
+        int carId = offsets.get(GeneratedTable.CAR).intValue();
+        int userId = offsets.get(GeneratedTable.AUTO_USER).intValue();
+        int ownerId = offsets.get(GeneratedTable.OWNERS).intValue();
+        long postId = offsets.get(GeneratedTable.AUTO_POST);
+        int[] age = new int[settings.getPosts()];
+        int[] brandOf = new int[settings.getPosts()];
+        Map<List<Object>, PriceRollup> rollups = new LinkedHashMap<>();
+
+        Map<GeneratedTable, Long> rsl = new EnumMap<>(GeneratedTable.class);
+        rsl.put(GeneratedTable.BRANDS, brands(connection, brandId));
+        rsl.put(GeneratedTable.ENGINE, engines(connection, engineId));
+        rsl.put(GeneratedTable.CAR, cars(connection, random, carId, engineId, brandId, brandOf));
+        rsl.put(GeneratedTable.AUTO_USER, users(connection, userId));
+        rsl.put(GeneratedTable.OWNERS, owners(connection, ownerId, userId));
+        rsl.put(GeneratedTable.HISTORY_OWNERS,
+                historyOwners(connection, random, offsets.get(GeneratedTable.HISTORY_OWNERS), carId, ownerId));
+        rsl.put(GeneratedTable.AUTO_POST, posts(connection, random, postId, userId, carId, age));
+        rsl.put(GeneratedTable.PRICE_HISTORY,
+                priceHistory(connection, random, offsets.get(GeneratedTable.PRICE_HISTORY), postId, age, brandOf, rollups));
+        rsl.put(GeneratedTable.PRICE_ROLLUPS, rollups(connection, offsets.get(GeneratedTable.PRICE_ROLLUPS), rollups));
+        rsl.put(GeneratedTable.PHOTOS, photos(connection, random, offsets.get(GeneratedTable.PHOTOS), postId));
+        countPhotos(connection, postId);
+        rsl.put(GeneratedTable.PARTICIPATES,
+                participates(connection, random, offsets.get(GeneratedTable.PARTICIPATES), postId, userId));
+
+        for (GeneratedTable table : GeneratedTable.values()) {
+            restartSequence(connection, table, offsets.get(table) + rsl.get(table));
+        }
+        return rsl;
+    }
+
+    private long brands(Connection connection, int brandId) throws SQLException {
+        try (TableWriter writer = open(connection, GeneratedTable.BRANDS)) {
+            for (int i = 1; i <= settings.getBrands(); i++) {
+                Brand brand = new Brand();
+                brand.setId(brandId + i);
+                brand.setName("brand-" + brand.getId());
+                writer.write(brand.getId(), brand.getName());
+            }
+            return writer.count();
+        }
+    }
+
+    private long engines(Connection connection, int engineId) throws SQLException {
+        try (TableWriter writer = open(connection, GeneratedTable.ENGINE)) {
+            for (int i = 1; i <= settings.getPosts(); i++) {
+                Engine engine = new Engine();
+                engine.setId(engineId + i);
+                engine.setName("engine-" + engine.getId());
+                writer.write(engine.getId(), engine.getName());
+            }
+            return writer.count();
+        }
+    }
+
+    /**
+     * Каждому объявлению своя машина; марка выбирается по закону Ципфа и сохраняется в brandOf.
+     */
+    private long cars(Connection connection, SplittableRandom random, int carId, int engineId, int brandId, int[] brandOf)
+            throws SQLException {
+        ZipfSampler brands = new ZipfSampler(settings.getBrands(), settings.getBrandSkew());
+        try (TableWriter writer = open(connection, GeneratedTable.CAR)) {
+            for (int i = 1; i <= settings.getPosts(); i++) {
+                Car car = new Car();
+                car.setId(carId + i);
+                car.setName("car-" + car.getId());
+                car.setEngine(new Engine());
+                car.getEngine().setId(engineId + i);
+                car.setBrand(new Brand());
+                car.getBrand().setId(brandId + 1 + brands.next(random));
+                brandOf[i - 1] = car.getBrand().getId();
+                writer.write(car.getId(), car.getName(), car.getEngine().getId(), car.getBrand().getId());
+            }
+            return writer.count();
+        }
+    }
+
+    private long users(Connection connection, int userId) throws SQLException {
+        try (TableWriter writer = open(connection, GeneratedTable.AUTO_USER)) {
+            for (int i = 1; i <= settings.getUsers(); i++) {
+                User user = new User();
+                user.setId(userId + i);
+                user.setLogin("user-" + user.getId());
+                user.setPassword("password");
+                writer.write(user.getId(), user.getLogin(), user.getPassword());
+            }
+            return writer.count();
+        }
+    }
+
+    /**
+     * owners.user_id уникален, поэтому у каждого пользователя ровно один владелец.
+     */
+    private long owners(Connection connection, int ownerId, int userId) throws SQLException {
+        try (TableWriter writer = open(connection, GeneratedTable.OWNERS)) {
+            for (int i = 1; i <= settings.getUsers(); i++) {
+                Owner owner = new Owner();
+                owner.setId(ownerId + i);
+                owner.setName("owner-" + owner.getId());
+                owner.setUser(new User());
+                owner.getUser().setId(userId + i);
+                writer.write(owner.getId(), owner.getName(), owner.getUser().getId());
+            }
+            return writer.count();
+        }
+    }
+
+    /**
+     * Владения машиной идут подряд без пересечений, последнее заканчивается в now.
+     */
+    private long historyOwners(Connection connection, SplittableRandom random, long id, int carId, int ownerId)
+            throws SQLException {
+        LocalDateTime now = settings.getNow();
+        try (TableWriter writer = open(connection, GeneratedTable.HISTORY_OWNERS)) {
+            for (int i = 1; i <= settings.getPosts(); i++) {
+                int owners = 1 + random.nextInt(Math.max(1, 2 * settings.getOwnersPerCar() - 1));
+                LocalDateTime start = now.minusDays(365L * owners);
+                for (int j = 1; j <= owners; j++) {
+                    HistoryOwner history = new HistoryOwner();
+                    history.setId(++id);
+                    history.setStartAt(start);
+                    history.setEndAt(now);
+                    if (j < owners) {
+                        history.setEndAt(start.plusDays(1 + random.nextInt(365)));
+                    }
+                    writer.write(history.getId(), carId + i, ownerId + 1 + random.nextInt(settings.getUsers()),
+                            history.getStartAt(), history.getEndAt());
+                    start = history.getEndAt();
+                }
+            }
+            return writer.count();
+        }
+    }
+
+    /**
+     * Возраст объявлений в минутах сохраняется в age: по нему строится история цен.
+     */
+    private long posts(Connection connection, SplittableRandom random, long postId, int userId, int carId, int[] age)
+            throws SQLException {
+        int minutes = settings.getDays() * 24 * 60;
+        try (TableWriter writer = open(connection, GeneratedTable.AUTO_POST)) {
+            for (int i = 1; i <= settings.getPosts(); i++) {
+                age[i - 1] = random.nextInt(minutes);
+                Post post = new Post();
+                post.setId(postId + i);
+                post.setDescription("post-" + post.getId());
+                post.setCreated(settings.getNow().minusMinutes(age[i - 1]));
+                writer.write(post.getId(), post.getDescription(), post.getCreated(),
+                        userId + 1 + random.nextInt(settings.getUsers()), carId + i);
+            }
+            return writer.count();
+        }
+    }
+
+    /**
+     * Каждая цена сразу добавляется в агрегаты объявления и марки за день и неделю.
+     */
+    private long priceHistory(Connection connection, SplittableRandom random, long id, long postId, int[] age,
+                              int[] brandOf, Map<List<Object>, PriceRollup> rollups) throws SQLException {
+        try (TableWriter writer = open(connection, GeneratedTable.PRICE_HISTORY)) {
+            for (int i = 1; i <= settings.getPosts(); i++) {
+                int changes = random.nextInt(2 * settings.getPriceChangesPerPost() + 1);
+                long price = random.nextLong(MIN_PRICE, MAX_PRICE);
+                int step = age[i - 1] / (changes + 1);
+                for (int j = 1; j <= changes; j++) {
+                    PriceHistory history = new PriceHistory();
+                    history.setId(++id);
+                    history.setBefore(price);
+                    history.setAfter(price * (90 + random.nextInt(16)) / 100);
+                    history.setCreated(settings.getNow().minusMinutes(age[i - 1] - (long) step * j));
+                    writer.write(history.getId(), history.getBefore(), history.getAfter(), history.getCreated(), postId + i);
+                    for (PriceResolution resolution : PriceResolution.values()) {
+                        roll(rollups, PriceSeries.POST, postId + i, resolution, history);
+                        roll(rollups, PriceSeries.BRAND, brandOf[i - 1], resolution, history);
+                    }
+                    price = history.getAfter();
+                }
+            }
+            return writer.count();
+        }
+    }
+
+    /**
+     * Марки и объявления новые, поэтому все агрегаты тоже новые и вставляются без слияния.
+     */
+    private long rollups(Connection connection, long id, Map<List<Object>, PriceRollup> rollups) throws SQLException {
+        try (TableWriter writer = open(connection, GeneratedTable.PRICE_ROLLUPS)) {
+            for (PriceRollup rollup : rollups.values()) {
+                rollup.setId(++id);
+                writer.write(rollup.getId(), rollup.getSeries().name(), rollup.getSeriesId(), rollup.getResolution().name(),
+                        rollup.getStart(), rollup.getMinPrice(), rollup.getMaxPrice(), rollup.getSumPrice(), rollup.getCount());
+            }
+            return writer.count();
+        }
+    }
+
+    private static void roll(Map<List<Object>, PriceRollup> rollups, PriceSeries series, long seriesId,
+                             PriceResolution resolution, PriceHistory history) {
+        LocalDate start = resolution.start(history.getCreated());
+        PriceRollup rollup = rollups.computeIfAbsent(List.of(series, seriesId, resolution, start), key -> {
+            PriceRollup created = new PriceRollup();
+            created.setSeries(series);
+            created.setSeriesId(seriesId);
+            created.setResolution(resolution);
+            created.setStart(start);
+            created.setMinPrice(history.getAfter());
+            created.setMaxPrice(history.getAfter());
+            return created;
+        });
+        rollup.setMinPrice(Math.min(rollup.getMinPrice(), history.getAfter()));
+        rollup.setMaxPrice(Math.max(rollup.getMaxPrice(), history.getAfter()));
+        rollup.setSumPrice(rollup.getSumPrice() + history.getAfter());
+        rollup.setCount(rollup.getCount() + 1);
+    }
+
+    private long photos(Connection connection, SplittableRandom random, long id, long postId) throws SQLException {
+        try (TableWriter writer = open(connection, GeneratedTable.PHOTOS)) {
+            for (int i = 1; i <= settings.getPosts(); i++) {
+                int photos = random.nextInt(2 * settings.getPhotosPerPost() + 1);
+                for (int j = 0; j < photos; j++) {
+                    Photo photo = new Photo();
+                    photo.setId((int) ++id);
+                    photo.setPath("photos/" + (postId + i) + "/" + j + ".jpg");
+                    writer.write(photo.getId(), photo.getPath(), postId + i);
+                }
+            }
+            return writer.count();
+        }
+    }
+
+    /**
+     * Фото пишутся в обход Hibernate, поэтому auto_post.photo_count новых объявлений считается одним запросом.
+     */
+    private static void countPhotos(Connection connection, long postId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE auto_post p SET photo_count = (SELECT COUNT(*) FROM photos ph WHERE ph.post_id = p.id) WHERE p.id > ?")) {
+            statement.setLong(1, postId);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Пара (пользователь, объявление) уникальна, поэтому подписчики объявления выбираются без повторов.
+     */
+    private long participates(Connection connection, SplittableRandom random, long id, long postId, int userId)
+            throws SQLException {
+        int max = Math.min(2 * settings.getSubscribersPerPost(), settings.getUsers());
+        Set<Integer> subscribers = new TreeSet<>();
+        try (TableWriter writer = open(connection, GeneratedTable.PARTICIPATES)) {
+            for (int i = 1; i <= settings.getPosts(); i++) {
+                int count = random.nextInt(max + 1);
+                subscribers.clear();
+                while (subscribers.size() < count) {
+                    subscribers.add(userId + 1 + random.nextInt(settings.getUsers()));
+                }
+                for (int subscriber : subscribers) {
+                    Participates participates = new Participates();
+                    participates.setId((int) ++id);
+                    writer.write(participates.getId(), postId + i, subscriber);
+                }
+            }
+            return writer.count();
+        }
+    }
+
+    private TableWriter open(Connection connection, GeneratedTable table) throws SQLException {
+        return TableWriter.open(connection, table, settings.getBatchSize());
+    }
+
+    private static long maxId(Connection connection, GeneratedTable table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table.getTable())) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Следующее значение последовательности ставится с запасом в allocationSize,
+     * так как pooled-оптимизатор Hibernate выдаёт id ниже полученного значения.
+     */
+    private static void restartSequence(Connection connection, GeneratedTable table, long maxId) throws SQLException {
+        long next = maxId + ALLOCATION_SIZE + 1;
+        String sql = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())
+                ? String.format("SELECT setval('%s', %d, false)", table.getSequence(), next)
+                : String.format("ALTER SEQUENCE %s RESTART WITH %d", table.getSequence(), next);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
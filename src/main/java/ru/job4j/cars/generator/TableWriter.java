@@ -0,0 +1,29 @@
+package ru.job4j.cars.generator;
+
+import org.postgresql.PGConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Потоковая запись строк в одну таблицу.
+ */
+interface TableWriter extends AutoCloseable {
+
+    void write(Object... values) throws SQLException;
+
+    long count();
+
+    @Override
+    void close() throws SQLException;
+
+    /**
+     * Для PostgreSQL строки пишутся через COPY, для остальных баз - пачками JDBC.
+     */
+    static TableWriter open(Connection connection, GeneratedTable table, int batchSize) throws SQLException {
+        if (connection.isWrapperFor(PGConnection.class)) {
+            return new CopyTableWriter(connection.unwrap(PGConnection.class), table, batchSize);
+        }
+        return new BatchTableWriter(connection, table, batchSize);
+    }
+}
@@ -3,21 +3,38 @@ package ru.job4j.cars.model;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import javax.persistence.*;
 
 @Entity
 @Table(name = "brands")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "brand")
+@NaturalIdCache(region = "brand-name")
 @Getter
 @Setter
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NamedQuery(name = Brand.FIND_ALL, query = "from Brand")
+@NamedQuery(name = Brand.DELETE_BY_ID, query = "delete from Brand where id = :fId")
 public class Brand {
 
+    public static final String FIND_ALL = "Brand.findAll";
+    public static final String DELETE_BY_ID = "Brand.deleteById";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "brands_id_seq")
+    @SequenceGenerator(name = "brands_id_seq", sequenceName = "brands_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private int id;
 
+    /**
+     * Уникальное имя марки. Соответствие имени и id кэшируется в регионе brand-name.
+     */
+    @NaturalId(mutable = true)
     @Column(name = "name", unique = true)
     private String name;
 }
@@ -2,6 +2,9 @@ package ru.job4j.cars.model;
 
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.HashSet;
@@ -9,12 +12,23 @@ import java.util.Set;
 
 @Entity
 @Table(name = "car")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "car")
+@BatchSize(size = 50)
 @Data
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NamedQuery(name = Car.FIND_ALL, query = "FROM Car")
+@NamedQuery(name = Car.FIND_ALL_ORDER_BY_ID, query = "FROM Car c ORDER BY c.id")
+@NamedQuery(name = Car.DELETE_BY_ID, query = "DELETE FROM Car WHERE id = :id")
 public class Car {
 
+    public static final String FIND_ALL = "Car.findAll";
+    public static final String FIND_ALL_ORDER_BY_ID = "Car.findAllOrderById";
+    public static final String DELETE_BY_ID = "Car.deleteById";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "car_id_seq")
+    @SequenceGenerator(name = "car_id_seq", sequenceName = "car_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private int id;
 
@@ -25,6 +39,7 @@ public class Car {
     private Engine engine;
 
     @OneToMany(mappedBy = "car", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 50)
     private Set<HistoryOwner> historyOwners = new HashSet<>();
 
     @ManyToOne
@@ -2,17 +2,27 @@ package ru.job4j.cars.model;
 
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
 @Entity
 @Table(name = "engine")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "engine")
 @Data
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NamedQuery(name = Engine.FIND_ALL, query = "FROM Engine")
+@NamedQuery(name = Engine.DELETE_BY_ID, query = "DELETE FROM Engine WHERE id = :id")
 public class Engine {
 
+    public static final String FIND_ALL = "Engine.findAll";
+    public static final String DELETE_BY_ID = "Engine.deleteById";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "engine_id_seq")
+    @SequenceGenerator(name = "engine_id_seq", sequenceName = "engine_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private int id;
 
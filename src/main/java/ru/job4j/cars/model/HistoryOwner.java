@@ -9,21 +9,45 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "history_owners")
+@NamedEntityGraph(
+        name = "history-owner-detail",
+        attributeNodes = {
+                @NamedAttributeNode(value = "car", subgraph = "car-brand"),
+                @NamedAttributeNode("owner")
+        },
+        subgraphs = @NamedSubgraph(name = "car-brand", attributeNodes = @NamedAttributeNode("brand"))
+)
 @Getter
 @Setter
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NamedQuery(name = HistoryOwner.FIND_ALL, query = "FROM HistoryOwner")
+@NamedQuery(name = HistoryOwner.FIND_ALL_ORDER_BY_ID, query = "FROM HistoryOwner ho ORDER BY ho.id")
+@NamedQuery(name = HistoryOwner.FIND_BY_ID, query = "select ho from HistoryOwner ho where ho.id = :fId")
+@NamedQuery(name = HistoryOwner.FIND_BY_IDS, query = "FROM HistoryOwner ho WHERE ho.id IN :ids ORDER BY ho.startAt, ho.id")
+@NamedQuery(name = HistoryOwner.FIND_BY_CAR, query = "FROM HistoryOwner ho WHERE ho.car.id = :carId")
+@NamedQuery(name = HistoryOwner.FIND_BY_OWNER_BETWEEN, query = "FROM HistoryOwner ho WHERE ho.owner.id = :ownerId"
+        + " AND (ho.startAt IS NULL OR ho.startAt < :to) AND (ho.endAt IS NULL OR ho.endAt > :from)"
+        + " ORDER BY ho.startAt, ho.id")
 public class HistoryOwner {
 
+    public static final String FIND_ALL = "HistoryOwner.findAll";
+    public static final String FIND_ALL_ORDER_BY_ID = "HistoryOwner.findAllOrderById";
+    public static final String FIND_BY_ID = "HistoryOwner.findById";
+    public static final String FIND_BY_IDS = "HistoryOwner.findByIds";
+    public static final String FIND_BY_CAR = "HistoryOwner.findByCar";
+    public static final String FIND_BY_OWNER_BETWEEN = "HistoryOwner.findByOwnerBetween";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "history_owners_id_seq")
+    @SequenceGenerator(name = "history_owners_id_seq", sequenceName = "history_owners_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "car_id", referencedColumnName = "id", nullable = false)
     private Car car;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", referencedColumnName = "id", nullable = false)
     private Owner owner;
 
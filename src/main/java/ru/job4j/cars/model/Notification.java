@@ -0,0 +1,44 @@
+package ru.job4j.cars.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Уведомление подписчика объявления о снижении цены.
+ * Пользователь и объявление хранятся id, чтобы пачки уведомлений вставлялись без загрузки связей.
+ */
+@Entity
+@Table(name = "notifications")
+@Getter
+@Setter
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NamedQuery(name = Notification.FIND_BY_USER, query = "FROM Notification n WHERE n.userId = :userId ORDER BY n.id DESC")
+public class Notification {
+
+    public static final String FIND_BY_USER = "Notification.findByUser";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notifications_id_seq")
+    @SequenceGenerator(name = "notifications_id_seq", sequenceName = "notifications_id_seq", allocationSize = 50)
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @Column(name = "auto_user_id", nullable = false)
+    private int userId;
+
+    @Column(name = "auto_post_id", nullable = false)
+    private Long postId;
+
+    @Column(name = "before", nullable = false)
+    private Long before;
+
+    @Column(name = "after", nullable = false)
+    private Long after;
+
+    @Column(name = "created", nullable = false)
+    private LocalDateTime created;
+}
@@ -2,17 +2,27 @@ package ru.job4j.cars.model;
 
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.*;
 
 @Entity
 @Table(name = "owners")
+@BatchSize(size = 50)
 @Data
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NamedQuery(name = Owner.FIND_BY_ID, query = "FROM Owner WHERE id = :id")
+@NamedQuery(name = Owner.FIND_ALL, query = "FROM Owner")
+@NamedQuery(name = Owner.DELETE_BY_ID, query = "DELETE FROM Owner WHERE id = :id")
 public class Owner {
 
+    public static final String FIND_BY_ID = "Owner.findById";
+    public static final String FIND_ALL = "Owner.findAll";
+    public static final String DELETE_BY_ID = "Owner.deleteById";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "owners_id_seq")
+    @SequenceGenerator(name = "owners_id_seq", sequenceName = "owners_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private int id;
 
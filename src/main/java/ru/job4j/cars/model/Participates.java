@@ -9,9 +9,23 @@ import javax.persistence.*;
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Entity
 @Table(name = "participates")
+@NamedQuery(name = Participates.FIND_ALL, query = "FROM Participates")
+@NamedQuery(name = Participates.FIND_BY_ID, query = "FROM Participates WHERE id = :fId")
+@NamedQuery(name = Participates.FIND_SUBSCRIBER_IDS, query = "SELECT p.user.id FROM Participates p"
+        + " WHERE p.post.id = :postId AND p.user.id > :after ORDER BY p.user.id")
+@NamedQuery(name = Participates.FIND_ALL_SUBSCRIPTIONS, query = "SELECT p.post.id, p.user.id FROM Participates p ORDER BY p.id")
+@NamedQuery(name = Participates.FIND_SUBSCRIPTIONS_BY_POST_IDS, query = "SELECT p.post.id, p.user.id FROM Participates p"
+        + " WHERE p.post.id IN (:postIds)")
 public class Participates {
+    public static final String FIND_ALL = "Participates.findAll";
+    public static final String FIND_BY_ID = "Participates.findById";
+    public static final String FIND_SUBSCRIBER_IDS = "Participates.findSubscriberIds";
+    public static final String FIND_ALL_SUBSCRIPTIONS = "Participates.findAllSubscriptions";
+    public static final String FIND_SUBSCRIPTIONS_BY_POST_IDS = "Participates.findSubscriptionsByPostIds";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "participates_id_seq")
+    @SequenceGenerator(name = "participates_id_seq", sequenceName = "participates_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private int id;
 
@@ -12,10 +12,20 @@ import javax.persistence.*;
 @Getter
 @Setter
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NamedQuery(name = Photo.FIND_ALL, query = "from Photo")
+@NamedQuery(name = Photo.FIND_BY_ID, query = "select p from Photo p where p.id = :id")
+@NamedQuery(name = Photo.DELETE_BY_ID, query = "delete from Photo p where p.id = :id")
+@NamedQuery(name = Photo.FIND_POST_ID, query = "select p.post.id from Photo p where p.id = :id")
 public class Photo {
 
+    public static final String FIND_ALL = "Photo.findAll";
+    public static final String FIND_BY_ID = "Photo.findById";
+    public static final String DELETE_BY_ID = "Photo.deleteById";
+    public static final String FIND_POST_ID = "Photo.findPostId";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "photos_id_seq")
+    @SequenceGenerator(name = "photos_id_seq", sequenceName = "photos_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private int id;
 
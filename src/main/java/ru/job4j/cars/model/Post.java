@@ -3,6 +3,7 @@ package ru.job4j.cars.model;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -11,13 +12,131 @@ import java.util.List;
 
 @Entity
 @Table(name = "auto_post")
+@NamedEntityGraph(
+        name = "post-card",
+        attributeNodes = {
+                @NamedAttributeNode("user"),
+                @NamedAttributeNode(value = "car", subgraph = "car-brand")
+        },
+        subgraphs = @NamedSubgraph(name = "car-brand", attributeNodes = @NamedAttributeNode("brand"))
+)
+@NamedEntityGraph(
+        name = "post-detail",
+        attributeNodes = {
+                @NamedAttributeNode("user"),
+                @NamedAttributeNode(value = "car", subgraph = "car-detail")
+        },
+        subgraphs = @NamedSubgraph(
+                name = "car-detail",
+                attributeNodes = {@NamedAttributeNode("brand"), @NamedAttributeNode("engine")}
+        )
+)
 @Getter
 @Setter
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NamedQuery(name = Post.FIND_BY_ID, query = "select p from Post p where p.id = :id")
+@NamedQuery(name = Post.FIND_ALL, query = "FROM Post")
+@NamedQuery(name = Post.FIND_ALL_ORDER_BY_ID, query = "FROM Post p ORDER BY p.id")
+@NamedQuery(
+        name = Post.FIND_CREATED_AFTER,
+        query = "FROM Post p WHERE p.created >= :yesterday ORDER BY p.id DESC"
+)
+@NamedQuery(
+        name = Post.FIND_WITH_PHOTO,
+        query = "SELECT p FROM Post p WHERE p.photoCount > 0 ORDER BY p.id DESC"
+)
+@NamedQuery(
+        name = Post.FIND_BY_BRAND_NAME,
+        query = "SELECT p FROM Post p WHERE p.car.brand.name = :brandName ORDER BY p.id DESC"
+)
+@NamedQuery(
+        name = Post.FIND_BY_BRAND_ID,
+        query = "SELECT p FROM Post p WHERE p.car.brand.id = :brandId ORDER BY p.id DESC"
+)
+@NamedQuery(name = Post.FIND_IDS_BY_BRAND_ID, query = "SELECT p.id FROM Post p WHERE p.car.brand.id = :brandId")
+@NamedQuery(name = Post.PAGE, query = "FROM Post p WHERE p.id < :cursor ORDER BY p.id DESC")
+@NamedQuery(
+        name = Post.PAGE_CREATED_AFTER,
+        query = "FROM Post p WHERE p.created >= :yesterday AND p.id < :cursor ORDER BY p.id DESC"
+)
+@NamedQuery(
+        name = Post.PAGE_WITH_PHOTO,
+        query = "SELECT p FROM Post p WHERE p.photoCount > 0 AND p.id < :cursor ORDER BY p.id DESC"
+)
+@NamedQuery(
+        name = Post.PAGE_BY_BRAND_NAME,
+        query = "SELECT p FROM Post p WHERE p.car.brand.name = :brandName AND p.id < :cursor ORDER BY p.id DESC"
+)
+@NamedQuery(
+        name = Post.PAGE_BY_BRAND_ID,
+        query = "SELECT p FROM Post p WHERE p.car.brand.id = :brandId AND p.id < :cursor ORDER BY p.id DESC"
+)
+@NamedQuery(name = Post.FIND_BY_IDS, query = "FROM Post p WHERE p.id IN :ids")
+@NamedQuery(name = Post.FIND_ID_AND_DESCRIPTION, query = "SELECT p.id, p.description FROM Post p")
+@NamedQuery(name = Post.FIND_FACTS, query = Post.FACTS + " ORDER BY p.id")
+@NamedQuery(name = Post.FIND_FACTS_BY_IDS, query = Post.FACTS + " WHERE p.id IN :ids")
+@NamedQuery(name = Post.FIND_SUMMARIES_CREATED_AFTER, query = Post.SUMMARY + " WHERE p.created >= :since ORDER BY p.id")
+@NamedQuery(name = Post.FIND_SUMMARIES_BY_IDS, query = Post.SUMMARY + " WHERE p.id IN :ids")
+@NamedQuery(name = Post.ADD_PHOTOS, query = "UPDATE Post p SET p.photoCount = p.photoCount + :count WHERE p.id = :id")
+@NamedQuery(
+        name = Post.REMOVE_PHOTO,
+        query = "UPDATE Post p SET p.photoCount = p.photoCount - 1 WHERE p.id IN (SELECT ph.post.id FROM Photo ph WHERE ph.id = :id)"
+)
+@NamedQuery(
+        name = Post.RECOUNT_PHOTOS,
+        query = "UPDATE Post p SET p.photoCount = (SELECT count(ph.id) FROM Photo ph WHERE ph.post = p) WHERE p.id = :id"
+)
+@NamedQuery(name = Post.DELETE_BY_ID, query = "DELETE FROM Post p WHERE p.id = :id")
 public class Post {
 
+    public static final String FIND_BY_ID = "Post.findById";
+    public static final String FIND_ALL = "Post.findAll";
+    public static final String FIND_ALL_ORDER_BY_ID = "Post.findAllOrderById";
+    public static final String FIND_CREATED_AFTER = "Post.findCreatedAfter";
+    public static final String FIND_WITH_PHOTO = "Post.findWithPhoto";
+    public static final String FIND_BY_BRAND_NAME = "Post.findByBrandName";
+    public static final String FIND_BY_BRAND_ID = "Post.findByBrandId";
+    public static final String FIND_IDS_BY_BRAND_ID = "Post.findIdsByBrandId";
+    public static final String PAGE = "Post.page";
+    public static final String PAGE_CREATED_AFTER = "Post.pageCreatedAfter";
+    public static final String PAGE_WITH_PHOTO = "Post.pageWithPhoto";
+    public static final String PAGE_BY_BRAND_NAME = "Post.pageByBrandName";
+    public static final String PAGE_BY_BRAND_ID = "Post.pageByBrandId";
+    public static final String FIND_BY_IDS = "Post.findByIds";
+    public static final String FIND_ID_AND_DESCRIPTION = "Post.findIdAndDescription";
+    public static final String FIND_FACTS = "Post.findFacts";
+    public static final String FIND_FACTS_BY_IDS = "Post.findFactsByIds";
+    public static final String FIND_SUMMARIES_CREATED_AFTER = "Post.findSummariesCreatedAfter";
+    public static final String FIND_SUMMARIES_BY_IDS = "Post.findSummariesByIds";
+    public static final String ADD_PHOTOS = "Post.addPhotos";
+    public static final String REMOVE_PHOTO = "Post.removePhoto";
+    public static final String RECOUNT_PHOTOS = "Post.recountPhotos";
+    public static final String DELETE_BY_ID = "Post.deleteById";
+
+    /**
+     * Последняя цена объявления p из истории цен: по дате изменения, при равных датах - по id.
+     * Одного id мало: pooled-оптимизатор последовательности выдает id блоками, и на разных узлах
+     * или после перезапуска порядок id не совпадает с порядком записей.
+     */
+    public static final String LAST_PRICE = "(SELECT h.after FROM PriceHistory h WHERE h.post = p AND h.id = "
+            + "(SELECT max(l.id) FROM PriceHistory l WHERE l.post = p AND l.created = "
+            + "(SELECT max(m.created) FROM PriceHistory m WHERE m.post = p)))";
+
+    /**
+     * Признаки объявления для фасетного поиска: марка, двигатель, дата, наличие фото и последняя цена.
+     */
+    public static final String FACTS = "SELECT p.id, b.name, e.name, p.created, p.photoCount, "
+            + Post.LAST_PRICE + " FROM Post p JOIN p.car c JOIN c.brand b LEFT JOIN c.engine e";
+
+    /**
+     * Краткая карточка объявления для ленты: описание, машина, марка, последняя цена и число фото.
+     */
+    public static final String SUMMARY = "SELECT p.id, p.description, p.created, c.name, b.name, "
+            + Post.LAST_PRICE + ", p.photoCount FROM Post p JOIN p.car c JOIN c.brand b";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "auto_post_id_seq")
+    @SequenceGenerator(name = "auto_post_id_seq", sequenceName = "auto_post_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
@@ -32,6 +151,7 @@ public class Post {
     private User user;
 
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     private List<PriceHistory> priceHistories = new ArrayList<>();
 
     @ManyToMany
@@ -40,6 +160,7 @@ public class Post {
             joinColumns = @JoinColumn(name = "auto_post_id"),
             inverseJoinColumns = @JoinColumn(name = "auto_user_id")
     )
+    @BatchSize(size = 50)
     private List<User> subscribers = new ArrayList<>();
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -47,5 +168,18 @@ public class Post {
     private Car car;
 
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 50)
     private List<Photo> photos = new ArrayList<>();
+
+    /**
+     * Число фото объявления. При вставке берется из photos, дальше меняется только запросами
+     * PostRepository и PhotoRepository, поэтому в загруженном объявлении может отставать от базы.
+     */
+    @Column(name = "photo_count", nullable = false, updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int photoCount;
+
+    @PrePersist
+    private void countPhotos() {
+        photoCount = photos.size();
+    }
 }
@@ -12,10 +12,16 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NamedQuery(name = PriceHistory.FIND_ALL, query = "FROM PriceHistory")
+@NamedQuery(name = PriceHistory.FIND_BY_ID, query = "select p from PriceHistory p where p.id = :id")
 public class PriceHistory {
 
+    public static final String FIND_ALL = "PriceHistory.findAll";
+    public static final String FIND_BY_ID = "PriceHistory.findById";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "price_history_id_seq")
+    @SequenceGenerator(name = "price_history_id_seq", sequenceName = "price_history_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
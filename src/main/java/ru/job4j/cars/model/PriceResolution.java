@@ -0,0 +1,34 @@
+package ru.job4j.cars.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Шаг агрегатов цены.
+ */
+public enum PriceResolution {
+
+    DAY {
+        @Override
+        public LocalDate start(LocalDateTime time) {
+            return time.toLocalDate();
+        }
+    },
+
+    /**
+     * Неделя с понедельника, как date_trunc('week', ...).
+     */
+    WEEK {
+        @Override
+        public LocalDate start(LocalDateTime time) {
+            return time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+    };
+
+    /**
+     * Начало интервала, в который попадает time.
+     */
+    public abstract LocalDate start(LocalDateTime time);
+}
@@ -0,0 +1,70 @@
+package ru.job4j.cars.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Агрегат цен (поле after истории цены) ряда за день или неделю.
+ * Обновляется в транзакции сохранения истории цены.
+ */
+@Entity
+@Table(name = "price_rollups",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"series", "series_id", "resolution", "bucket_start"}))
+@Getter
+@Setter
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NamedQuery(name = PriceRollup.FIND_RANGE, query = "FROM PriceRollup r WHERE r.series = :series"
+        + " AND r.seriesId = :seriesId AND r.resolution = :resolution"
+        + " AND r.start >= :from AND r.start < :to ORDER BY r.start")
+@NamedQuery(name = PriceRollup.MERGE, query = "UPDATE PriceRollup r"
+        + " SET r.minPrice = CASE WHEN r.minPrice < :min THEN r.minPrice ELSE :min END,"
+        + " r.maxPrice = CASE WHEN r.maxPrice > :max THEN r.maxPrice ELSE :max END,"
+        + " r.sumPrice = r.sumPrice + :sum, r.count = r.count + :count"
+        + " WHERE r.series = :series AND r.seriesId = :seriesId AND r.resolution = :resolution AND r.start = :start")
+@NamedQuery(name = PriceRollup.FIND_POST_BRANDS, query = "SELECT p.id, c.brand.id FROM Post p JOIN p.car c WHERE p.id IN :ids")
+public class PriceRollup {
+
+    public static final String FIND_RANGE = "PriceRollup.findRange";
+    public static final String FIND_POST_BRANDS = "PriceRollup.findPostBrands";
+    public static final String MERGE = "PriceRollup.merge";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "price_rollups_id_seq")
+    @SequenceGenerator(name = "price_rollups_id_seq", sequenceName = "price_rollups_id_seq", allocationSize = 50)
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private PriceSeries series;
+
+    @Column(name = "series_id", nullable = false)
+    private Long seriesId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private PriceResolution resolution;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDate start;
+
+    @Column(name = "min_price", nullable = false)
+    private long minPrice;
+
+    @Column(name = "max_price", nullable = false)
+    private long maxPrice;
+
+    @Column(name = "sum_price", nullable = false)
+    private long sumPrice;
+
+    @Column(name = "price_count", nullable = false)
+    private int count;
+
+    public double getAverage() {
+        return count == 0 ? 0 : (double) sumPrice / count;
+    }
+}
@@ -0,0 +1,9 @@
+package ru.job4j.cars.model;
+
+/**
+ * Ряд агрегатов цены: по объявлению или по марке автомобиля (весь рынок марки).
+ */
+public enum PriceSeries {
+    POST,
+    BRAND
+}
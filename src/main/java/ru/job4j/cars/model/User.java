@@ -9,10 +9,26 @@ import java.util.List;
 @Entity
 @Table(name = "auto_user")
 @Data
+@NamedQuery(name = User.DELETE_BY_ID, query = "delete from User where id = :fId")
+@NamedQuery(name = User.FIND_ALL_ORDER_BY_ID, query = "from User order by id asc")
+@NamedQuery(name = User.FIND_BY_ID, query = "from User where id = :fId")
+@NamedQuery(name = User.FIND_BY_LIKE_LOGIN, query = "from User where login like :fKey escape '\\' order by id")
+@NamedQuery(name = User.FIND_BY_IDS, query = "from User where id in :fIds order by id")
+@NamedQuery(name = User.FIND_ID_AND_LOGIN, query = "select u.id, u.login from User u")
+@NamedQuery(name = User.FIND_BY_LOGIN, query = "from User where login = :fLogin")
 public class User {
 
+    public static final String DELETE_BY_ID = "User.deleteById";
+    public static final String FIND_ALL_ORDER_BY_ID = "User.findAllOrderById";
+    public static final String FIND_BY_ID = "User.findById";
+    public static final String FIND_BY_LIKE_LOGIN = "User.findByLikeLogin";
+    public static final String FIND_BY_LOGIN = "User.findByLogin";
+    public static final String FIND_BY_IDS = "User.findByIds";
+    public static final String FIND_ID_AND_LOGIN = "User.findIdAndLogin";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "auto_user_id_seq")
+    @SequenceGenerator(name = "auto_user_id_seq", sequenceName = "auto_user_id_seq", allocationSize = 50)
     private int id;
     private String login;
     private String password;
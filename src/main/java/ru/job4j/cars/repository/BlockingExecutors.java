@@ -0,0 +1,73 @@
+package ru.job4j.cars.repository;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Исполнители блокирующих вызовов JDBC.
+ * На Java 21+ - виртуальный поток на задачу: ожидание соединения и ответа базы не держит
+ * платформенный поток, а число одновременных запросов к базе ограничивает пул соединений.
+ * Executors.newVirtualThreadPerTaskExecutor вызывается через reflection, пока проект собирается на Java 17.
+ * Без виртуальных потоков - пул платформенных потоков размером с пул соединений:
+ * лишние потоки все равно ждали бы свободное соединение.
+ */
+public final class BlockingExecutors {
+
+    /**
+     * Размер пула платформенных потоков по умолчанию, как spring.datasource.dbcp2.max-total.
+     */
+    public static final int DEFAULT_THREADS = 20;
+
+    private BlockingExecutors() {
+    }
+
+    /**
+     * Исполнитель "виртуальный поток на задачу" или Optional.empty() до Java 21.
+     */
+    public static Optional<ExecutorService> virtualThreadPerTask() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Optional.of((ExecutorService) factory.invoke(null));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Пул платформенных потоков-демонов repository-N.
+     * @param threads число потоков.
+     */
+    public static ExecutorService platformThreads(int threads) {
+        AtomicInteger number = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "repository-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param virtual использовать виртуальные потоки, если они доступны.
+     * @param platformThreads размер пула платформенных потоков, если виртуальные недоступны или выключены.
+     */
+    public static ExecutorService newExecutor(boolean virtual, int platformThreads) {
+        return virtual
+                ? virtualThreadPerTask().orElseGet(() -> platformThreads(platformThreads))
+                : platformThreads(platformThreads);
+    }
+
+    /**
+     * Общий исполнитель для CrudRepository, созданных вне Spring (тесты, бенчмарки, генератор).
+     */
+    static ExecutorService shared() {
+        return Shared.INSTANCE;
+    }
+
+    private static class Shared {
+
+        private static final ExecutorService INSTANCE = newExecutor(true, DEFAULT_THREADS);
+    }
+}
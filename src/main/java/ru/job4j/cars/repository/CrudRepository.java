@@ -1,23 +1,110 @@
 package ru.job4j.cars.repository;
 
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.graph.GraphSemantic;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 
+import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Выполнение команд и запросов в отдельной сессии и транзакции.
+ * Запросы передаются либо строкой HQL, либо именем @NamedQuery (методы named*).
+ * Именованные запросы разбираются и проверяются при создании SessionFactory,
+ * поэтому на горячем пути их подготовка сводится к поиску в кэше планов.
+ * Каждая транзакция замеряется и помечается вызывающим методом репозитория, см. {@link RepositoryMetrics},
+ * медленные SQL выражения пишутся в {@link SlowQueryLog}.
+ */
 @Repository
-@AllArgsConstructor
 public class CrudRepository {
 
     private final SessionFactory sf;
 
+    private final RepositoryMetrics metrics;
+
+    private final SlowQueryLog slowQueryLog;
+
+    private final Executor executor;
+
+    /**
+     * Репозиторий без отдельного реестра: метрики пишутся в глобальный Metrics.globalRegistry.
+     * @param sf SessionFactory.
+     */
+    public CrudRepository(SessionFactory sf) {
+        this(sf, Metrics.globalRegistry);
+    }
+
+    /**
+     * Репозиторий с общим исполнителем асинхронных вызовов {@link BlockingExecutors#shared()}.
+     * @param sf SessionFactory.
+     * @param registry реестр, в который пишутся метрики вызовов (cars.repository.*).
+     */
+    public CrudRepository(SessionFactory sf, MeterRegistry registry) {
+        this(sf, registry, BlockingExecutors.shared());
+    }
+
+    /**
+     * @param sf SessionFactory.
+     * @param registry реестр, в который пишутся метрики вызовов (cars.repository.*).
+     * @param executor исполнитель асинхронных вызовов (*Async).
+     */
+    @Autowired
+    public CrudRepository(SessionFactory sf, MeterRegistry registry,
+                          @Qualifier("repositoryExecutor") Executor executor) {
+        this.sf = sf;
+        this.metrics = new RepositoryMetrics(registry);
+        this.slowQueryLog = new SlowQueryLog(sf);
+        this.executor = executor;
+    }
+
+    /**
+     * Выполнить вызов репозитория асинхронно, например
+     * {@code crudRepository.async(() -> postRepository.getPostsPage(cursor, 20))}.
+     * Вызов занимает поток исполнителя (виртуальный на Java 21+) на время транзакции,
+     * поток вызывающего свободен.
+     * @param call блокирующий вызов.
+     * @return результат вызова.
+     */
+    public <T> CompletableFuture<T> async(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, executor);
+    }
+
+    /**
+     * Асинхронный {@link #tx(Function)}. Вызывающий метод для метрик определяется в потоке вызова.
+     */
+    public <T> CompletableFuture<T> txAsync(Function<Session, T> command) {
+        String caller = RepositoryMetrics.caller();
+        return async(() -> RepositoryMetrics.as(caller, () -> tx(command)));
+    }
+
+    /**
+     * Асинхронный {@link #readOnlyTx(Function)}. Вызывающий метод для метрик определяется в потоке вызова.
+     */
+    public <T> CompletableFuture<T> readOnlyTxAsync(Function<Session, T> command) {
+        String caller = RepositoryMetrics.caller();
+        return async(() -> RepositoryMetrics.as(caller, () -> readOnlyTx(command)));
+    }
+
     public void run(Consumer<Session> command) {
         tx(session -> {
                     command.accept(session);
@@ -27,50 +114,218 @@ public class CrudRepository {
     }
 
     public void run(String query, Map<String, Object> args) {
-        Consumer<Session> command = session -> {
-            var sq = session
-                    .createQuery(query);
-            for (Map.Entry<String, Object> arg : args.entrySet()) {
-                sq.setParameter(arg.getKey(), arg.getValue());
+        run(session -> bind(session.createQuery(query), args).executeUpdate());
+    }
+
+    /**
+     * Выполнить именованный запрос на изменение.
+     * @param name имя @NamedQuery.
+     * @param args параметры запроса.
+     */
+    public void namedRun(String name, Map<String, Object> args) {
+        run(session -> bind(session.createNamedQuery(name), args).executeUpdate());
+    }
+
+    /**
+     * Сохранить сущности одной транзакцией.
+     * Вставки уходят JDBC пачками по hibernate.jdbc.batch_size,
+     * после каждой пачки сессия сбрасывается и очищается.
+     * @param entities новые сущности.
+     */
+    public <T> void saveAll(Collection<T> entities) {
+        saveAll(entities, session -> { });
+    }
+
+    /**
+     * Сохранить сущности одной транзакцией пачками JDBC и выполнить команду в той же транзакции.
+     * @param entities новые сущности.
+     * @param andThen команда после вставки, например обновление счетчиков.
+     */
+    public <T> void saveAll(Collection<T> entities, Consumer<Session> andThen) {
+        int batchSize = sf.getSessionFactoryOptions().getJdbcBatchSize();
+        run(session -> {
+            int count = 0;
+            for (T entity : entities) {
+                session.persist(entity);
+                if (batchSize > 0 && ++count % batchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
             }
-            sq.executeUpdate();
-        };
-        run(command);
+            andThen.accept(session);
+        });
+    }
+
+    /**
+     * Найти сущность по первичному ключу.
+     * В отличие от HQL запроса, поиск по ключу обслуживается кэшем второго уровня.
+     * @param cl класс сущности.
+     * @param id первичный ключ.
+     * @return сущность или Optional.empty().
+     */
+    public <T> Optional<T> find(Class<T> cl, Serializable id) {
+        return readOnlyTx(session -> Optional.ofNullable(session.get(cl, id)));
+    }
+
+    /**
+     * Найти первичный ключ сущности по натуральному ключу (@NaturalId), не загружая сущность.
+     * При @NaturalIdCache соответствие берется из кэша второго уровня без запроса к базе.
+     * @param cl класс сущности.
+     * @param naturalId значение натурального ключа.
+     * @return первичный ключ или Optional.empty().
+     */
+    public <T> Optional<Serializable> findIdByNaturalId(Class<T> cl, Object naturalId) {
+        return readOnlyTx(session -> Optional.ofNullable(session.bySimpleNaturalId(cl).getReference(naturalId))
+                .map(session::getIdentifier));
     }
 
     public <T> Optional<T> optional(String query, Class<T> cl, Map<String, Object> args) {
-        Function<Session, Optional<T>> command = session -> {
-            var sq = session
-                    .createQuery(query, cl);
-            for (Map.Entry<String, Object> arg : args.entrySet()) {
-                sq.setParameter(arg.getKey(), arg.getValue());
-            }
-            return sq.uniqueResultOptional();
-        };
-        return tx(command);
+        return readOnlyTx(session -> bind(session.createQuery(query, cl), args).uniqueResultOptional());
+    }
+
+    public <T> Optional<T> namedOptional(String name, Class<T> cl, Map<String, Object> args) {
+        return readOnlyTx(session -> bind(session.createNamedQuery(name, cl), args).uniqueResultOptional());
+    }
+
+    /**
+     * Выполнить запрос одной сущности по плану загрузки.
+     * @param plan entity graph и коллекции, инициализируемые в сессии.
+     */
+    public <T> Optional<T> optional(String query, Class<T> cl, Map<String, Object> args, FetchPlan<T> plan) {
+        return readOnlyTx(session -> unique(session, session.createQuery(query, cl), args, plan));
+    }
+
+    public <T> Optional<T> namedOptional(String name, Class<T> cl, Map<String, Object> args, FetchPlan<T> plan) {
+        return readOnlyTx(session -> unique(session, session.createNamedQuery(name, cl), args, plan));
     }
 
     public <T> List<T> query(String query, Class<T> cl) {
-        Function<Session, List<T>> command = session -> session
-                .createQuery(query, cl)
-                .list();
-        return tx(command);
+        return query(query, cl, Map.of());
+    }
+
+    public <T> List<T> namedQuery(String name, Class<T> cl) {
+        return namedQuery(name, cl, Map.of());
     }
 
     public <T> List<T> query(String query, Class<T> cl, Map<String, Object> args) {
-        Function<Session, List<T>> command = session -> {
-            var sq = session
-                    .createQuery(query, cl);
-            for (Map.Entry<String, Object> arg : args.entrySet()) {
-                sq.setParameter(arg.getKey(), arg.getValue());
-            }
-            return sq.list();
-        };
-        return tx(command);
+        return readOnlyTx(session -> bind(session.createQuery(query, cl), args).list());
+    }
+
+    public <T> List<T> namedQuery(String name, Class<T> cl, Map<String, Object> args) {
+        return readOnlyTx(session -> bind(session.createNamedQuery(name, cl), args).list());
+    }
+
+    public <T> List<T> query(String query, Class<T> cl, Map<String, Object> args, int limit) {
+        return readOnlyTx(session -> bind(session.createQuery(query, cl), args)
+                .setMaxResults(limit)
+                .list());
+    }
+
+    public <T> List<T> namedQuery(String name, Class<T> cl, Map<String, Object> args, int limit) {
+        return readOnlyTx(session -> bind(session.createNamedQuery(name, cl), args)
+                .setMaxResults(limit)
+                .list());
+    }
+
+    /**
+     * Выполнить запрос не более limit сущностей по плану загрузки.
+     * @param plan entity graph и коллекции, инициализируемые в сессии.
+     */
+    public <T> List<T> query(String query, Class<T> cl, Map<String, Object> args, int limit, FetchPlan<T> plan) {
+        return readOnlyTx(session -> list(session, session.createQuery(query, cl).setMaxResults(limit), args, plan));
+    }
+
+    public <T> List<T> namedQuery(String name, Class<T> cl, Map<String, Object> args, int limit, FetchPlan<T> plan) {
+        return readOnlyTx(session -> list(session, session.createNamedQuery(name, cl).setMaxResults(limit), args, plan));
+    }
+
+    /**
+     * Выполнить именованный запрос по плану загрузки без ограничения числа строк.
+     * @param plan entity graph и коллекции, инициализируемые в сессии.
+     */
+    public <T> List<T> namedQuery(String name, Class<T> cl, Map<String, Object> args, FetchPlan<T> plan) {
+        return readOnlyTx(session -> list(session, session.createNamedQuery(name, cl), args, plan));
+    }
+
+    /**
+     * Выполнить SQL запрос на чтение, когда нужны возможности базы, которых нет в HQL.
+     * @param sql SQL запрос с именованными параметрами.
+     * @param args параметры запроса.
+     * @return строки результата.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> nativeQuery(String sql, Map<String, Object> args) {
+        return readOnlyTx(session -> bind((Query<Object[]>) session.createNativeQuery(sql), args).list());
+    }
+
+    /**
+     * Построчно передать результат запроса в consumer, не собирая его в список.
+     * Для проекции из нескольких колонок в consumer передается Object[].
+     * Строки читаются курсором FORWARD_ONLY порциями по fetchSize, после каждой
+     * порции сессия очищается, поэтому память не растет с размером выборки.
+     * Транзакция открыта, пока consumer обрабатывает строки; сущности,
+     * переданные в consumer, после очистки сессии становятся detached.
+     * @param query HQL запрос.
+     * @param cl класс результата.
+     * @param args параметры запроса.
+     * @param fetchSize размер порции JDBC fetch size.
+     * @param consumer обработчик строки.
+     * @throws IllegalArgumentException если fetchSize не положителен.
+     */
+    public <T> void stream(String query, Class<T> cl, Map<String, Object> args,
+                           int fetchSize, Consumer<T> consumer) {
+        checkFetchSize(fetchSize);
+        readOnlyTx(session -> scroll(session, session.createQuery(query, cl), args, fetchSize, consumer));
+    }
+
+    public <T> void namedStream(String name, Class<T> cl, Map<String, Object> args,
+                                int fetchSize, Consumer<T> consumer) {
+        checkFetchSize(fetchSize);
+        readOnlyTx(session -> scroll(session, session.createNamedQuery(name, cl), args, fetchSize, consumer));
+    }
+
+    /**
+     * Работает ли SessionFactory с PostgreSQL. Репозитории выбирают по этому признаку
+     * запросы, которые опираются на возможности PostgreSQL (pg_trgm, tsvector и т.п.).
+     */
+    public boolean isPostgreSql() {
+        return sf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect() instanceof PostgreSQL81Dialect;
     }
 
     public <T> T tx(Function<Session, T> command) {
-        Session session = sf.openSession();
+        return tx(false, command);
+    }
+
+    /**
+     * Выполнить команду в транзакции только для чтения.
+     * Сущности загружаются read-only и не хранят снимков для dirty checking,
+     * сессия не сбрасывается (FlushMode.MANUAL), а соединение помечается
+     * read-only. Режим записи возвращается тому же соединению до фиксации или отката:
+     * после них Hibernate уже отдает соединение в пул, а не каждый пул сбрасывает режим сам,
+     * как dbcp2 с default-read-only=false.
+     * @param command команда.
+     * @return результат команды.
+     */
+    public <T> T readOnlyTx(Function<Session, T> command) {
+        return tx(true, session -> {
+            session.doWork(connection -> connection.setReadOnly(true));
+            try {
+                return command.apply(session);
+            } finally {
+                session.doWork(connection -> connection.setReadOnly(false));
+            }
+        });
+    }
+
+    private <T> T tx(boolean readOnly, Function<Session, T> command) {
+        RepositoryMetrics.Call call = metrics.start(readOnly);
+        SlowQueryLog.Tracker tracker = slowQueryLog.tracker(call.getMethod());
+        Session session = sf.withOptions().statementInspector(tracker).openSession();
+        session.addEventListeners(call, tracker);
+        if (readOnly) {
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+        }
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
@@ -83,7 +338,55 @@ public class CrudRepository {
             }
             throw e;
         } finally {
+            metrics.stop(call, session);
             session.close();
         }
     }
+
+    private <T> Optional<T> unique(Session session, Query<T> sq, Map<String, Object> args, FetchPlan<T> plan) {
+        Optional<T> rsl = bind(withPlan(session, sq, plan), args).uniqueResultOptional();
+        rsl.ifPresent(plan::initialize);
+        return rsl;
+    }
+
+    private <T> List<T> list(Session session, Query<T> sq, Map<String, Object> args, FetchPlan<T> plan) {
+        List<T> rsl = bind(withPlan(session, sq, plan), args).list();
+        rsl.forEach(plan::initialize);
+        return rsl;
+    }
+
+    private <T> Void scroll(Session session, Query<T> sq, Map<String, Object> args,
+                            int fetchSize, Consumer<T> consumer) {
+        try (ScrollableResults rows = bind(sq, args).setFetchSize(fetchSize).scroll(ScrollMode.FORWARD_ONLY)) {
+            int count = 0;
+            while (rows.next()) {
+                Object[] columns = rows.get();
+                @SuppressWarnings("unchecked")
+                T row = (T) (columns.length == 1 ? columns[0] : columns);
+                consumer.accept(row);
+                if (++count % fetchSize == 0) {
+                    session.clear();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void checkFetchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+        }
+    }
+
+    private static <T> Query<T> withPlan(Session session, Query<T> sq, FetchPlan<T> plan) {
+        return sq.setHint(GraphSemantic.FETCH.getJpaHintName(), session.getEntityGraph(plan.getGraph()));
+    }
+
+    private static <T> Query<T> bind(Query<T> sq, Map<String, Object> args) {
+        SlowQueryLog.describe(sq, args);
+        for (Map.Entry<String, Object> arg : args.entrySet()) {
+            sq.setParameter(arg.getKey(), arg.getValue());
+        }
+        return sq;
+    }
 }
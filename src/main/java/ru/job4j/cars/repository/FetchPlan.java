@@ -0,0 +1,21 @@
+package ru.job4j.cars.repository;
+
+/**
+ * План загрузки сущности: именованный entity graph для связей "к одному",
+ * которые подтягиваются join'ом, и инициализация коллекций внутри сессии,
+ * которые догружаются пачками через @BatchSize.
+ * @param <T> тип сущности.
+ */
+public interface FetchPlan<T> {
+
+    /**
+     * @return имя @NamedEntityGraph сущности.
+     */
+    String getGraph();
+
+    /**
+     * Инициализировать ленивые коллекции, пока сессия открыта.
+     * @param entity загруженная сущность.
+     */
+    void initialize(T entity);
+}
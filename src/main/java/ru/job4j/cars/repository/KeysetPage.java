@@ -0,0 +1,67 @@
+package ru.job4j.cars.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница выборки по ключу (keyset pagination).
+ * Следующая страница запрашивается по nextCursor, а не по смещению,
+ * поэтому глубокие страницы стоят столько же, сколько первая.
+ * @param <T> тип элементов страницы.
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetPage<T> {
+
+    /**
+     * Наибольший размер страницы: больший limit уменьшается до него.
+     */
+    public static final int MAX_LIMIT = 1000;
+
+    private final List<T> items;
+
+    /**
+     * Ключ последнего элемента страницы или null, если страница последняя.
+     */
+    private final Long nextCursor;
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Проверить размер страницы до запроса к базе.
+     * @param limit запрошенный размер страницы.
+     * @return limit, но не больше {@link #MAX_LIMIT}: limit + 1 не переполняется.
+     * @throws IllegalArgumentException если limit не положителен.
+     */
+    public static int limit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    /**
+     * Собрать страницу из выборки размером limit + 1:
+     * лишняя строка лишь сообщает, что следующая страница существует.
+     * @param rows выборка не более limit + 1 элементов.
+     * @param limit размер страницы.
+     * @param key ключ, по которому упорядочена выборка.
+     * @return страница.
+     * @throws IllegalArgumentException если limit не положителен.
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, Long> key) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new KeysetPage<>(items, key.apply(items.get(limit - 1)));
+    }
+}
@@ -0,0 +1,134 @@
+package ru.job4j.cars.repository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.Session;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Метрики вызовов CrudRepository с тегом вызывающего метода репозитория:
+ * время транзакции (p50/p99 и гистограмма), число SQL выражений и число сущностей в сессии.
+ */
+@RequiredArgsConstructor
+class RepositoryMetrics {
+
+    static final String CALLS = "cars.repository.calls";
+
+    static final String STATEMENTS = "cars.repository.statements";
+
+    static final String ENTITIES = "cars.repository.entities";
+
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private static final ThreadLocal<String> CALLER = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * Начать замер вызова: определить вызывающий метод.
+     * Call нужно подписать на события сессии, чтобы он считал выполненные SQL выражения.
+     */
+    Call start(boolean readOnly) {
+        return new Call(caller(), readOnly, System.nanoTime());
+    }
+
+    void stop(Call call, Session session) {
+        Meters rsl = meters.computeIfAbsent(call.method + ":" + call.readOnly, key -> register(call));
+        rsl.calls.record(System.nanoTime() - call.start, TimeUnit.NANOSECONDS);
+        rsl.statements.record(call.statements);
+        rsl.entities.record(session.isOpen() ? session.getStatistics().getEntityCount() : 0);
+    }
+
+    private Meters register(Call call) {
+        String readOnly = String.valueOf(call.readOnly);
+        return new Meters(
+                Timer.builder(CALLS)
+                        .description("Время транзакции CrudRepository")
+                        .tags("method", call.method, "readOnly", readOnly)
+                        .publishPercentiles(0.5, 0.99)
+                        .publishPercentileHistogram()
+                        .register(registry),
+                DistributionSummary.builder(STATEMENTS)
+                        .description("Число SQL выражений за транзакцию")
+                        .tags("method", call.method, "readOnly", readOnly)
+                        .register(registry),
+                DistributionSummary.builder(ENTITIES)
+                        .description("Число сущностей в сессии в конце транзакции")
+                        .tags("method", call.method, "readOnly", readOnly)
+                        .register(registry)
+        );
+    }
+
+    /**
+     * Выполнить вызов от имени метода, определенного в другом потоке (асинхронные вызовы).
+     */
+    static <T> T as(String caller, Supplier<T> call) {
+        CALLER.set(caller);
+        try {
+            return call.get();
+        } finally {
+            CALLER.remove();
+        }
+    }
+
+    /**
+     * Первый метод в стеке вне CrudRepository, например PostRepository.getAllPosts,
+     * или метод, переданный через {@link #as}.
+     */
+    static String caller() {
+        String caller = CALLER.get();
+        if (caller != null) {
+            return caller;
+        }
+        return WALKER.walk(frames -> frames
+                .filter(frame -> frame.getDeclaringClass() != CrudRepository.class
+                        && frame.getDeclaringClass() != RepositoryMetrics.class)
+                .findFirst()
+                .map(frame -> frame.getDeclaringClass().getSimpleName() + "." + frame.getMethodName())
+                .orElse("unknown"));
+    }
+
+    @RequiredArgsConstructor
+    static class Call extends BaseSessionEventListener {
+
+        @Getter
+        private final String method;
+
+        private final boolean readOnly;
+
+        private final long start;
+
+        private int statements;
+
+        @Override
+        public void jdbcExecuteStatementStart() {
+            statements++;
+        }
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            statements++;
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Meters {
+
+        private final Timer calls;
+
+        private final DistributionSummary statements;
+
+        private final DistributionSummary entities;
+    }
+}
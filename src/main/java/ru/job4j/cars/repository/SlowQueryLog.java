@@ -0,0 +1,177 @@
+package ru.job4j.cars.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.query.Query;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.job4j.cars.model.User;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Журнал медленных запросов: HQL, SQL, параметры и время выполнения выражений,
+ * которые дольше порога hibernate.cars.slow_query_threshold_ms (по умолчанию 200 мс).
+ * Пароли в параметрах не пишутся: скрываются параметры, сравниваемые или присваиваемые полю password.
+ * HQL и параметры относятся только к следующему выполненному выражению, SQL берется на момент выполнения.
+ * Логгер выводится через асинхронный appender, см. logback-spring.xml.
+ */
+class SlowQueryLog {
+
+    static final String THRESHOLD = "hibernate.cars.slow_query_threshold_ms";
+
+    private static final Logger LOG = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private static final long DEFAULT_THRESHOLD_MS = 200;
+
+    private static final int MAX_VALUE_LENGTH = 100;
+
+    private static final Pattern PASSWORD_PARAM = Pattern.compile(
+            "password\\s*(?:=|<>|!=|(?:not\\s+)?like|(?:not\\s+)?in\\s*\\(?)\\s*:(\\w+)"
+                    + "|:(\\w+)\\s*(?:=|<>|!=)\\s*(?:\\w+\\.)?password\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private final long thresholdNanos;
+
+    SlowQueryLog(SessionFactory sf) {
+        Object threshold = sf.getProperties().get(THRESHOLD);
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(
+                threshold == null ? DEFAULT_THRESHOLD_MS : Long.parseLong(threshold.toString().trim()));
+    }
+
+    Tracker tracker(String method) {
+        return new Tracker(method);
+    }
+
+    /**
+     * Запомнить HQL и параметры запроса для сессии, в которой он выполняется.
+     */
+    static void describe(Query<?> sq, Map<String, Object> args) {
+        StatementInspector inspector = ((SharedSessionContractImplementor) sq.getProducer())
+                .getJdbcSessionContext().getStatementInspector();
+        if (inspector instanceof Tracker) {
+            Tracker tracker = (Tracker) inspector;
+            tracker.hql = sq.getQueryString();
+            tracker.args = args;
+        }
+    }
+
+    /**
+     * Параметры запроса для журнала; значения, связанные в hql с полем password, заменяются на ***.
+     */
+    static String redact(String hql, Map<String, Object> args) {
+        Set<String> secrets = secretParams(hql);
+        StringJoiner rsl = new StringJoiner(", ", "{", "}");
+        for (Map.Entry<String, Object> arg : args.entrySet()) {
+            rsl.add(arg.getKey() + "=" + redact(secrets.contains(arg.getKey()), arg.getValue()));
+        }
+        return rsl.toString();
+    }
+
+    private static Set<String> secretParams(String hql) {
+        Set<String> rsl = new HashSet<>();
+        if (hql != null) {
+            Matcher matcher = PASSWORD_PARAM.matcher(hql);
+            while (matcher.find()) {
+                rsl.add(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+            }
+        }
+        return rsl;
+    }
+
+    private static String redact(boolean secret, Object value) {
+        if (secret) {
+            return "***";
+        }
+        if (value instanceof User) {
+            return "User#" + ((User) value).getId();
+        }
+        String text = String.valueOf(value);
+        return text.length() > MAX_VALUE_LENGTH ? text.substring(0, MAX_VALUE_LENGTH) + "..." : text;
+    }
+
+    /**
+     * Отслеживает выражения одной сессии: SQL приходит в inspect, время - в событиях JDBC.
+     * Пакет JDBC выполняет последнее подготовленное DML-выражение, а не select последовательности,
+     * подготовленный между addBatch. Пакеты - это сброс сессии, описанного HQL у них нет.
+     */
+    @RequiredArgsConstructor
+    class Tracker extends BaseSessionEventListener implements StatementInspector {
+
+        private final String method;
+
+        private String hql;
+
+        private Map<String, Object> args = Map.of();
+
+        private String prepared;
+
+        private String preparedDml;
+
+        private String executing;
+
+        private String executingHql;
+
+        private Map<String, Object> executingArgs = Map.of();
+
+        private long start;
+
+        @Override
+        public String inspect(String sql) {
+            prepared = sql;
+            String head = sql.stripLeading().toLowerCase(Locale.ROOT);
+            if (head.startsWith("insert") || head.startsWith("update") || head.startsWith("delete")) {
+                preparedDml = sql;
+            }
+            return sql;
+        }
+
+        @Override
+        public void jdbcExecuteStatementStart() {
+            begin(prepared, hql, args);
+        }
+
+        @Override
+        public void jdbcExecuteStatementEnd() {
+            log();
+        }
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            begin(preparedDml, null, Map.of());
+        }
+
+        @Override
+        public void jdbcExecuteBatchEnd() {
+            log();
+        }
+
+        private void begin(String sql, String hql, Map<String, Object> args) {
+            executing = sql;
+            executingHql = hql;
+            executingArgs = args;
+            this.hql = null;
+            this.args = Map.of();
+            start = System.nanoTime();
+        }
+
+        private void log() {
+            long elapsed = System.nanoTime() - start;
+            if (elapsed >= thresholdNanos && LOG.isWarnEnabled()) {
+                LOG.warn("Slow query {} ms in {}: hql=[{}] sql=[{}] params={}",
+                        TimeUnit.NANOSECONDS.toMillis(elapsed), method, executingHql, executing,
+                        redact(executingHql, executingArgs));
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.Brand;
 import ru.job4j.cars.repository.CrudRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -16,18 +17,19 @@ public class BrandRepository {
     private final CrudRepository crudRepository;
 
     public List<Brand> getAllBrands() {
-        return crudRepository.query("from Brand", Brand.class);
+        return crudRepository.namedQuery(Brand.FIND_ALL, Brand.class);
     }
 
     public void saveBrand(Brand brand) {
         crudRepository.run(session -> session.persist(brand));
     }
 
+    public void saveAllBrands(Collection<Brand> brands) {
+        crudRepository.saveAll(brands);
+    }
+
     public Optional<Brand> getBrandById(Integer id) {
-        return crudRepository.optional(
-                "select b from Brand b where b.id = :fId", Brand.class,
-                Map.of("fId", id)
-        );
+        return crudRepository.find(Brand.class, id);
     }
 
     public void updateBrand(Brand brand) {
@@ -35,8 +37,8 @@ public class BrandRepository {
     }
 
     public void deleteBrandById(Integer id) {
-        crudRepository.run(
-                "delete from Brand where id = :fId",
+        crudRepository.namedRun(
+                Brand.DELETE_BY_ID,
                 Map.of("fId", id)
         );
     }
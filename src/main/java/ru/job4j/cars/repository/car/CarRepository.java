@@ -5,42 +5,56 @@ import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.Car;
 import ru.job4j.cars.repository.CrudRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
 @AllArgsConstructor
 public class CarRepository {
 
+    private static final int FETCH_SIZE = 500;
+
     private final CrudRepository crudRepository;
 
     public Optional<Car> getCarById(int id) {
-        return crudRepository.optional(
-                "FROM Car WHERE id = :id",
-                Car.class,
-                Map.of("id", id)
-        );
+        return crudRepository.find(Car.class, id);
     }
 
     public List<Car> getAllCars() {
-        return crudRepository.query(
-                "FROM Car",
+        return crudRepository.namedQuery(
+                Car.FIND_ALL,
                 Car.class
         );
     }
 
+    public void streamAllCars(Consumer<Car> consumer) {
+        crudRepository.namedStream(
+                Car.FIND_ALL_ORDER_BY_ID,
+                Car.class,
+                Map.of(),
+                FETCH_SIZE,
+                consumer
+        );
+    }
+
     public void saveCar(Car car) {
         crudRepository.run(session -> session.save(car));
     }
 
+    public void saveAllCars(Collection<Car> cars) {
+        crudRepository.saveAll(cars);
+    }
+
     public void updateCar(Car car) {
         crudRepository.run(session -> session.update(car));
     }
 
     public void deleteCarById(int id) {
-        crudRepository.run(
-                "DELETE FROM Car WHERE id = :id",
+        crudRepository.namedRun(
+                Car.DELETE_BY_ID,
                 Map.of("id", id)
         );
     }
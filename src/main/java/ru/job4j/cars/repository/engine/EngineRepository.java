@@ -5,6 +5,7 @@ import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.Engine;
 import ru.job4j.cars.repository.CrudRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -16,16 +17,12 @@ public class EngineRepository {
     private final CrudRepository crudRepository;
 
     public Optional<Engine> getEngineById(int id) {
-        return crudRepository.optional(
-                "FROM Engine WHERE id = :id",
-                Engine.class,
-                Map.of("id", id)
-        );
+        return crudRepository.find(Engine.class, id);
     }
 
     public List<Engine> getAllEngines() {
-        return crudRepository.query(
-                "FROM Engine",
+        return crudRepository.namedQuery(
+                Engine.FIND_ALL,
                 Engine.class
         );
     }
@@ -34,13 +31,17 @@ public class EngineRepository {
         crudRepository.run(session -> session.persist(engine));
     }
 
+    public void saveAllEngines(Collection<Engine> engines) {
+        crudRepository.saveAll(engines);
+    }
+
     public void update(Engine engine) {
         crudRepository.run(session -> session.merge(engine));
     }
 
     public void deleteEngineById(int id) {
-        crudRepository.run(
-                "DELETE FROM Engine WHERE id = :id",
+        crudRepository.namedRun(
+                Engine.DELETE_BY_ID,
                 Map.of("id", id)
         );
     }
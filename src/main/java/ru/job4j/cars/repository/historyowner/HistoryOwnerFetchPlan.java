@@ -0,0 +1,31 @@
+package ru.job4j.cars.repository.historyowner;
+
+import ru.job4j.cars.model.HistoryOwner;
+import ru.job4j.cars.repository.FetchPlan;
+
+/**
+ * Планы загрузки историй владения. Без плана car и owner - прокси,
+ * которые внутри сессии догружаются пачками по @BatchSize.
+ */
+public enum HistoryOwnerFetchPlan implements FetchPlan<HistoryOwner> {
+
+    /**
+     * Автомобиль с маркой и владелец одним запросом с join'ами.
+     */
+    DETAIL("history-owner-detail");
+
+    private final String graph;
+
+    HistoryOwnerFetchPlan(String graph) {
+        this.graph = graph;
+    }
+
+    @Override
+    public String getGraph() {
+        return graph;
+    }
+
+    @Override
+    public void initialize(HistoryOwner historyOwner) {
+    }
+}
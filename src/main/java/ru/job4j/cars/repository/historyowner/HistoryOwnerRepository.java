@@ -5,43 +5,177 @@ import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.HistoryOwner;
 import ru.job4j.cars.repository.CrudRepository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Repository
 @RequiredArgsConstructor
 public class HistoryOwnerRepository {
 
+    private static final int FETCH_SIZE = 500;
+
+    private static final int MAX_TIMELINES = 10_000;
+
+    /**
+     * Пересечение периодов по GiST индексу history_owners_owner_period_idx.
+     */
+    private static final String OWNER_BETWEEN_SQL = "SELECT ho.id, ho.start_at FROM history_owners ho "
+            + "WHERE ho.owner_id = :ownerId AND tsrange(ho.start_at, ho.end_at) && tsrange(:from, :to)";
+
     private final CrudRepository crudRepository;
 
+    /**
+     * Истории владения автомобилей, к которым недавно обращались; вытесняются по LRU.
+     */
+    private final Map<Integer, OwnershipTimeline> timelines = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, OwnershipTimeline> eldest) {
+                    return size() > MAX_TIMELINES;
+                }
+            });
+
+    /**
+     * Число вытеснений из кэша после записи; загруженная история кладется в кэш, только если оно не изменилось.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
     /**
      * Получить список всех историй владения автомобилей.
+     * Автомобиль и владелец не загружаются, для них есть {@link #getAllHistoryOwner(HistoryOwnerFetchPlan)}.
      * @return Список всех историй владения автомобилей.
      */
     public List<HistoryOwner> getAllHistoryOwner() {
-        return crudRepository.query(
-                "FROM HistoryOwner",
+        return crudRepository.namedQuery(
+                HistoryOwner.FIND_ALL,
                 HistoryOwner.class
         );
     }
 
+    /**
+     * Получить список всех историй владения вместе со связями по плану загрузки.
+     * @param plan план загрузки связей.
+     */
+    public List<HistoryOwner> getAllHistoryOwner(HistoryOwnerFetchPlan plan) {
+        return crudRepository.namedQuery(HistoryOwner.FIND_ALL, HistoryOwner.class, Map.of(), plan);
+    }
+
+    /**
+     * Обойти все истории владения, не загружая их в память целиком.
+     * @param consumer обработчик истории владения.
+     */
+    public void streamAllHistoryOwner(Consumer<HistoryOwner> consumer) {
+        crudRepository.namedStream(
+                HistoryOwner.FIND_ALL_ORDER_BY_ID,
+                HistoryOwner.class,
+                Map.of(),
+                FETCH_SIZE,
+                consumer
+        );
+    }
+
     /**
      * Сохранить историю владения автомобилем.
      */
     public void saveHistoryOwner(HistoryOwner historyOwner) {
         crudRepository.run(session -> session.persist(historyOwner));
+        evict(List.of(historyOwner));
+    }
+
+    /**
+     * Сохранить истории владения одной транзакцией пачками JDBC.
+     */
+    public void saveAllHistoryOwner(Collection<HistoryOwner> historyOwners) {
+        crudRepository.saveAll(historyOwners);
+        evict(historyOwners);
     }
 
     /**
-     * Получить историю владения автомобилем по ID.
+     * Получить историю владения автомобилем по ID вместе с автомобилем и владельцем.
      * @param id ID историй владения.
      * @return История владения автомобилем по ID. Если не найдена, то Optional.empty().
      */
     public Optional<HistoryOwner> getHistoryOwnerById(Long id) {
-        return crudRepository.optional(
-                "select ho from HistoryOwner ho where ho.id = :fId", HistoryOwner.class,
-                Map.of("fId", id)
+        return crudRepository.namedOptional(
+                HistoryOwner.FIND_BY_ID, HistoryOwner.class,
+                Map.of("fId", id), HistoryOwnerFetchPlan.DETAIL
         );
     }
+
+    /**
+     * Кто владел автомобилем в момент at.
+     * @param carId ID автомобиля.
+     * @param at момент времени.
+     * @return периоды владения, в которые входит at, по возрастанию начала.
+     */
+    public List<HistoryOwner> getHistoryOwnersOfCarAt(int carId, LocalDateTime at) {
+        return timeline(carId).at(at);
+    }
+
+    /**
+     * Владельцы автомобиля за период.
+     * @param carId ID автомобиля.
+     * @param from начало периода включительно.
+     * @param to конец периода не включительно.
+     * @return периоды владения, пересекающиеся с [from, to), по возрастанию начала.
+     */
+    public List<HistoryOwner> getHistoryOwnersOfCarBetween(int carId, LocalDateTime from, LocalDateTime to) {
+        return timeline(carId).between(from, to);
+    }
+
+    /**
+     * Автомобили владельца за период.
+     * @param ownerId ID владельца.
+     * @param from начало периода включительно.
+     * @param to конец периода не включительно.
+     * @return периоды владения, пересекающиеся с [from, to), по возрастанию начала.
+     */
+    public List<HistoryOwner> getHistoryOwnersOfOwnerBetween(int ownerId, LocalDateTime from, LocalDateTime to) {
+        Map<String, Object> args = Map.of("ownerId", ownerId, "from", from, "to", to);
+        if (!crudRepository.isPostgreSql()) {
+            return crudRepository.namedQuery(HistoryOwner.FIND_BY_OWNER_BETWEEN, HistoryOwner.class,
+                    args, HistoryOwnerFetchPlan.DETAIL);
+        }
+        List<Long> ids = crudRepository.nativeQuery(OWNER_BETWEEN_SQL, args).stream()
+                .map(row -> ((Number) row[0]).longValue())
+                .toList();
+        return ids.isEmpty() ? List.of()
+                : crudRepository.namedQuery(HistoryOwner.FIND_BY_IDS, HistoryOwner.class,
+                        Map.of("ids", ids), HistoryOwnerFetchPlan.DETAIL);
+    }
+
+    /**
+     * История владения автомобилем из кэша; при промахе загружается вся история автомобиля.
+     * Если во время загрузки была запись, загруженная история могла устареть: она возвращается, но не кэшируется.
+     */
+    private OwnershipTimeline timeline(int carId) {
+        OwnershipTimeline timeline = timelines.get(carId);
+        if (timeline == null) {
+            long version = evictions.get();
+            timeline = new OwnershipTimeline(crudRepository.namedQuery(HistoryOwner.FIND_BY_CAR, HistoryOwner.class,
+                    Map.of("carId", carId), HistoryOwnerFetchPlan.DETAIL));
+            synchronized (timelines) {
+                if (evictions.get() == version) {
+                    timelines.put(carId, timeline);
+                }
+            }
+        }
+        return timeline;
+    }
+
+    private void evict(Collection<HistoryOwner> historyOwners) {
+        synchronized (timelines) {
+            evictions.incrementAndGet();
+            for (HistoryOwner historyOwner : historyOwners) {
+                timelines.remove(historyOwner.getCar().getId());
+            }
+        }
+    }
 }
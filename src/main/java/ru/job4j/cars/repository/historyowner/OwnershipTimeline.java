@@ -0,0 +1,98 @@
+package ru.job4j.cars.repository.historyowner;
+
+import ru.job4j.cars.model.HistoryOwner;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * История владения одним автомобилем - дерево интервалов, развернутое в массив.
+ * Периоды [startAt, endAt) отсортированы по началу, для каждой позиции хранится
+ * наибольший конец среди периодов до нее включительно. Поиск находит бинарным поиском
+ * последний период, начавшийся до конца запроса, и идет назад, пока этот максимум
+ * позволяет пересечение: O(log n + k). Пустое начало - с начала времен, пустой конец - по сей день.
+ * Хранимые HistoryOwner общие для всех читателей, изменять их нельзя.
+ */
+public class OwnershipTimeline {
+
+    private final HistoryOwner[] periods;
+
+    private final LocalDateTime[] starts;
+
+    private final LocalDateTime[] maxEnds;
+
+    public OwnershipTimeline(Collection<HistoryOwner> historyOwners) {
+        periods = historyOwners.toArray(new HistoryOwner[0]);
+        Arrays.sort(periods, Comparator.comparing(OwnershipTimeline::start)
+                .thenComparing(HistoryOwner::getId, Comparator.nullsFirst(Comparator.naturalOrder())));
+        starts = new LocalDateTime[periods.length];
+        maxEnds = new LocalDateTime[periods.length];
+        for (int i = 0; i < periods.length; i++) {
+            starts[i] = start(periods[i]);
+            LocalDateTime end = end(periods[i]);
+            maxEnds[i] = i == 0 || end.isAfter(maxEnds[i - 1]) ? end : maxEnds[i - 1];
+        }
+    }
+
+    /**
+     * Периоды, в которые входит момент at.
+     * @return периоды по возрастанию начала.
+     */
+    public List<HistoryOwner> at(LocalDateTime at) {
+        return overlapping(startedBefore(at, true), at);
+    }
+
+    /**
+     * Периоды, пересекающиеся с [from, to).
+     * @return периоды по возрастанию начала.
+     */
+    public List<HistoryOwner> between(LocalDateTime from, LocalDateTime to) {
+        return overlapping(startedBefore(to, false), from);
+    }
+
+    public int size() {
+        return periods.length;
+    }
+
+    /**
+     * Число периодов, начавшихся раньше time (или одновременно, если inclusive).
+     */
+    private int startedBefore(LocalDateTime time, boolean inclusive) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = starts[mid].compareTo(time);
+            if (cmp < 0 || inclusive && cmp == 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private List<HistoryOwner> overlapping(int count, LocalDateTime from) {
+        List<HistoryOwner> rsl = new ArrayList<>();
+        for (int i = count - 1; i >= 0 && maxEnds[i].isAfter(from); i--) {
+            if (end(periods[i]).isAfter(from)) {
+                rsl.add(periods[i]);
+            }
+        }
+        Collections.reverse(rsl);
+        return rsl;
+    }
+
+    private static LocalDateTime start(HistoryOwner historyOwner) {
+        return historyOwner.getStartAt() == null ? LocalDateTime.MIN : historyOwner.getStartAt();
+    }
+
+    private static LocalDateTime end(HistoryOwner historyOwner) {
+        return historyOwner.getEndAt() == null ? LocalDateTime.MAX : historyOwner.getEndAt();
+    }
+}
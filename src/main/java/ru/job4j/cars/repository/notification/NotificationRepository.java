@@ -0,0 +1,36 @@
+package ru.job4j.cars.repository.notification;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import ru.job4j.cars.model.Notification;
+import ru.job4j.cars.repository.CrudRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class NotificationRepository {
+
+    private final CrudRepository crudRepository;
+
+    /**
+     * Сохранить уведомления одной транзакцией пачками JDBC.
+     */
+    public void saveAllNotifications(Collection<Notification> notifications) {
+        crudRepository.saveAll(notifications);
+    }
+
+    /**
+     * Получить уведомления пользователя.
+     * @param userId ID пользователя.
+     * @return уведомления от новых к старым.
+     */
+    public List<Notification> getNotificationsByUserId(int userId) {
+        return crudRepository.namedQuery(
+                Notification.FIND_BY_USER, Notification.class,
+                Map.of("userId", userId)
+        );
+    }
+}
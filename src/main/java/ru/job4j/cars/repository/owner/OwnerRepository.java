@@ -5,6 +5,7 @@ import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.Owner;
 import ru.job4j.cars.repository.CrudRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -16,16 +17,16 @@ public class OwnerRepository {
     private final CrudRepository crudRepository;
 
     public Optional<Owner> getOwnerById(int id) {
-        return crudRepository.optional(
-                "FROM Owner WHERE id = :id",
+        return crudRepository.namedOptional(
+                Owner.FIND_BY_ID,
                 Owner.class,
                 Map.of("id", id)
         );
     }
 
     public List<Owner> getAllOwners() {
-        return crudRepository.query(
-                "FROM Owner",
+        return crudRepository.namedQuery(
+                Owner.FIND_ALL,
                 Owner.class
         );
     }
@@ -34,13 +35,17 @@ public class OwnerRepository {
         crudRepository.run(session -> session.save(owner));
     }
 
+    public void saveAllOwners(Collection<Owner> owners) {
+        crudRepository.saveAll(owners);
+    }
+
     public void updateOwner(Owner owner) {
         crudRepository.run(session -> session.update(owner));
     }
 
     public void deleteOwnerById(int id) {
-        crudRepository.run(
-                "DELETE FROM Owner WHERE id = :id",
+        crudRepository.namedRun(
+                Owner.DELETE_BY_ID,
                 Map.of("id", id)
         );
     }
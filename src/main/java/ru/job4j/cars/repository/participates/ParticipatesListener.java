@@ -0,0 +1,13 @@
+package ru.job4j.cars.repository.participates;
+
+import ru.job4j.cars.model.Participates;
+
+import java.util.Collection;
+
+/**
+ * Слушатель новых подписок на объявления. Вызывается после фиксации транзакции в потоке, который записывал.
+ */
+public interface ParticipatesListener {
+
+    void saved(Collection<Participates> participates);
+}
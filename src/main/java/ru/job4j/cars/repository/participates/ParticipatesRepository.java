@@ -5,22 +5,36 @@ import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.Participates;
 import ru.job4j.cars.repository.CrudRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
 
 @Repository
 @RequiredArgsConstructor
 public class ParticipatesRepository {
 
+    private static final int FETCH_SIZE = 500;
+
     private final CrudRepository crudRepository;
 
+    private final List<ParticipatesListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Подписаться на новые подписки, сделанные через этот репозиторий.
+     */
+    public void addListener(ParticipatesListener listener) {
+        listeners.add(listener);
+    }
+
     /**
      * Получить список всех Participates.
      */
     public List<Participates> getAllParticipates() {
-        return crudRepository.query(
-                "FROM Participates",
+        return crudRepository.namedQuery(
+                Participates.FIND_ALL,
                 Participates.class
         );
     }
@@ -30,15 +44,74 @@ public class ParticipatesRepository {
      */
     public void saveParticipates(Participates participates) {
         crudRepository.run(session -> session.persist(participates));
+        saved(List.of(participates));
+    }
+
+    /**
+     * Сохранить Participates одной транзакцией пачками JDBC.
+     */
+    public void saveAllParticipates(Collection<Participates> participates) {
+        crudRepository.saveAll(participates);
+        saved(participates);
+    }
+
+    /**
+     * Обойти все подписки, не загружая сущности.
+     * @param consumer обработчик пары "id объявления - id подписчика".
+     */
+    public void streamAllSubscriptions(BiConsumer<Long, Integer> consumer) {
+        crudRepository.namedStream(
+                Participates.FIND_ALL_SUBSCRIPTIONS,
+                Object[].class,
+                Map.of(),
+                FETCH_SIZE,
+                row -> consumer.accept((Long) row[0], (Integer) row[1])
+        );
+    }
+
+    /**
+     * Обойти подписки указанных объявлений, не загружая сущности.
+     * @param postIds ID объявлений.
+     * @param consumer обработчик пары "id объявления - id подписчика".
+     */
+    public void streamSubscriptions(Collection<Long> postIds, BiConsumer<Long, Integer> consumer) {
+        if (postIds.isEmpty()) {
+            return;
+        }
+        crudRepository.namedQuery(
+                Participates.FIND_SUBSCRIPTIONS_BY_POST_IDS,
+                Object[].class,
+                Map.of("postIds", postIds)
+        ).forEach(row -> consumer.accept((Long) row[0], (Integer) row[1]));
+    }
+
+    /**
+     * Получить пачку подписчиков объявления по возрастанию id, начиная после курсора.
+     * @param postId ID объявления.
+     * @param after id последнего подписчика предыдущей пачки, 0 для первой пачки.
+     * @param limit размер пачки.
+     * @return id подписчиков.
+     */
+    public List<Integer> getSubscriberIds(Long postId, int after, int limit) {
+        return crudRepository.namedQuery(
+                Participates.FIND_SUBSCRIBER_IDS, Integer.class,
+                Map.of("postId", postId, "after", after), limit
+        );
     }
 
     /**
      * Получить Participates по ID.
      */
     public Optional<Participates> getParticipatesById(int id) {
-        return crudRepository.optional(
-                "FROM Participates WHERE id = :fId", Participates.class,
+        return crudRepository.namedOptional(
+                Participates.FIND_BY_ID, Participates.class,
                 Map.of("fId", id)
         );
     }
+
+    private void saved(Collection<Participates> participates) {
+        if (!participates.isEmpty()) {
+            listeners.forEach(listener -> listener.saved(participates));
+        }
+    }
 }
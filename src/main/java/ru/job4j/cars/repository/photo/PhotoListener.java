@@ -0,0 +1,15 @@
+package ru.job4j.cars.repository.photo;
+
+import java.util.Collection;
+
+/**
+ * Слушатель изменений фото. Вызывается после фиксации транзакции в потоке, который записывал.
+ */
+public interface PhotoListener {
+
+    /**
+     * У объявлений добавлены, перенесены или удалены фото.
+     * @param postIds ID объявлений.
+     */
+    void changed(Collection<Long> postIds);
+}
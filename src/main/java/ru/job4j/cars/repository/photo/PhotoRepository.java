@@ -1,13 +1,20 @@
 package ru.job4j.cars.repository.photo;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
 import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.Photo;
+import ru.job4j.cars.model.Post;
 import ru.job4j.cars.repository.CrudRepository;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 
 @Repository
 @RequiredArgsConstructor
@@ -15,30 +22,99 @@ public class PhotoRepository {
 
     private final CrudRepository crudRepository;
 
+    private final List<PhotoListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Подписаться на изменения фото, сделанные через этот репозиторий.
+     */
+    public void addListener(PhotoListener listener) {
+        listeners.add(listener);
+    }
+
     public List<Photo> getAllPhotos() {
-        return crudRepository.query("from Photo", Photo.class);
+        return crudRepository.namedQuery(Photo.FIND_ALL, Photo.class);
     }
 
+    /**
+     * Сохранить фото и увеличить auto_post.photo_count его объявления в той же транзакции.
+     */
     public void savePhoto(Photo photo) {
-        crudRepository.run(session -> session.persist(photo));
+        crudRepository.run(session -> {
+            session.persist(photo);
+            addPhotos(session, photo.getPost().getId(), 1);
+        });
+        changed(List.of(photo.getPost().getId()));
+    }
+
+    /**
+     * Сохранить фото пачками JDBC, photo_count обновляется одним запросом на объявление.
+     */
+    public void saveAllPhotos(Collection<Photo> photos) {
+        Map<Long, Integer> counts = photos.stream()
+                .collect(Collectors.groupingBy(photo -> photo.getPost().getId(), Collectors.summingInt(photo -> 1)));
+        crudRepository.saveAll(photos, session -> counts.forEach((postId, count) -> addPhotos(session, postId, count)));
+        changed(counts.keySet());
     }
 
     public Optional<Photo> getPhotoById(Integer id) {
-        return crudRepository.optional(
-                "select p from Photo p where p.id = :id",
+        return crudRepository.namedOptional(
+                Photo.FIND_BY_ID,
                 Photo.class,
                 Map.of("id", id)
         );
     }
 
+    /**
+     * Обновить фото. Если фото перенесено в другое объявление, photo_count обоих объявлений пересчитывается.
+     */
     public void updatePhoto(Photo photo) {
-        crudRepository.run(session -> session.merge(photo));
+        Set<Long> moved = new LinkedHashSet<>();
+        crudRepository.run(session -> {
+            Photo previous = session.get(Photo.class, photo.getId());
+            Long from = previous == null ? null : previous.getPost().getId();
+            session.merge(photo);
+            Long to = photo.getPost().getId();
+            if (from != null && !from.equals(to)) {
+                session.flush();
+                addPhotos(session, from, -1);
+                addPhotos(session, to, 1);
+                moved.add(from);
+                moved.add(to);
+            }
+        });
+        changed(moved);
     }
 
+    /**
+     * Удалить фото и уменьшить auto_post.photo_count его объявления в той же транзакции.
+     */
     public void deletePhotoById(Integer id) {
-        crudRepository.run(
-                "delete from Photo p where p.id = :id",
-                Map.of("id", id)
-        );
+        Set<Long> posts = new LinkedHashSet<>();
+        crudRepository.run(session -> {
+            session.createNamedQuery(Photo.FIND_POST_ID, Long.class)
+                    .setParameter("id", id)
+                    .uniqueResultOptional()
+                    .ifPresent(posts::add);
+            session.createNamedQuery(Post.REMOVE_PHOTO)
+                    .setParameter("id", id)
+                    .executeUpdate();
+            session.createNamedQuery(Photo.DELETE_BY_ID)
+                    .setParameter("id", id)
+                    .executeUpdate();
+        });
+        changed(posts);
+    }
+
+    private void changed(Collection<Long> postIds) {
+        if (!postIds.isEmpty()) {
+            listeners.forEach(listener -> listener.changed(postIds));
+        }
+    }
+
+    private static void addPhotos(Session session, Long postId, int count) {
+        session.createNamedQuery(Post.ADD_PHOTOS)
+                .setParameter("id", postId)
+                .setParameter("count", count)
+                .executeUpdate();
     }
 }
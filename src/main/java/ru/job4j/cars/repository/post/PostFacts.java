@@ -0,0 +1,37 @@
+package ru.job4j.cars.repository.post;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Признаки объявления для фасетного поиска.
+ */
+@Getter
+@AllArgsConstructor
+public class PostFacts {
+
+    private final long id;
+
+    private final String brand;
+
+    /**
+     * Название двигателя или null, если двигатель не указан.
+     */
+    private final String engine;
+
+    private final LocalDateTime created;
+
+    private final boolean withPhoto;
+
+    /**
+     * Последняя цена из истории цен или null, если цены нет.
+     */
+    private final Long price;
+
+    static PostFacts of(Object[] row) {
+        return new PostFacts((Long) row[0], (String) row[1], (String) row[2], (LocalDateTime) row[3],
+                ((Number) row[4]).longValue() > 0, (Long) row[5]);
+    }
+}
@@ -0,0 +1,47 @@
+package ru.job4j.cars.repository.post;
+
+import org.hibernate.Hibernate;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.repository.FetchPlan;
+
+/**
+ * Планы загрузки объявлений.
+ * Число запросов на страницу объявлений не зависит от ее размера:
+ * один запрос с join'ами по графу и по одному запросу на каждую
+ * коллекцию на каждые @BatchSize объявлений.
+ */
+public enum PostFetchPlan implements FetchPlan<Post> {
+
+    /**
+     * Карточка в ленте: автор, машина с маркой и фото.
+     */
+    CARD("post-card") {
+        @Override
+        public void initialize(Post post) {
+            Hibernate.initialize(post.getPhotos());
+        }
+    },
+
+    /**
+     * Страница объявления: все связи объявления.
+     */
+    DETAIL("post-detail") {
+        @Override
+        public void initialize(Post post) {
+            Hibernate.initialize(post.getPhotos());
+            Hibernate.initialize(post.getPriceHistories());
+            Hibernate.initialize(post.getSubscribers());
+        }
+    };
+
+    private final String graph;
+
+    PostFetchPlan(String graph) {
+        this.graph = graph;
+    }
+
+    @Override
+    public String getGraph() {
+        return graph;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.job4j.cars.repository.post;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.job4j.cars.model.Post;
+
+/**
+ * Результат полнотекстового поиска: объявление, его релевантность и описание с выделенными словами запроса.
+ */
+@Getter
+@AllArgsConstructor
+public class PostHit {
+
+    private final Post post;
+
+    private final double rank;
+
+    private final String headline;
+}
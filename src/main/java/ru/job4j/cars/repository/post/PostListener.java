@@ -0,0 +1,21 @@
+package ru.job4j.cars.repository.post;
+
+import ru.job4j.cars.model.Post;
+
+import java.util.Collection;
+
+/**
+ * Слушатель изменений объявлений. Вызывается после фиксации транзакции в потоке, который записывал.
+ */
+public interface PostListener {
+
+    /**
+     * Объявления созданы или обновлены.
+     */
+    void saved(Collection<Post> posts);
+
+    /**
+     * Объявление удалено.
+     */
+    void deleted(Long id);
+}
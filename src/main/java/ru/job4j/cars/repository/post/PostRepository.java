@@ -1,48 +1,130 @@
 package ru.job4j.cars.repository.post;
 
 import lombok.AllArgsConstructor;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Repository;
+import ru.job4j.cars.model.Brand;
 import ru.job4j.cars.model.Post;
 import ru.job4j.cars.repository.CrudRepository;
+import ru.job4j.cars.repository.KeysetPage;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Repository
 @AllArgsConstructor
 public class PostRepository {
 
+    private static final int FETCH_SIZE = 500;
+
+    private static final int SEARCH_CHUNK = 200;
+
+    /**
+     * Ранжирование и выделение в PostgreSQL. Подзапрос отбирает страницу по ts_rank,
+     * поэтому ts_headline считается только для объявлений этой страницы.
+     * Следующая страница начинается после пары (rank, id) курсора, без OFFSET.
+     */
+    private static final String SEARCH_SQL = "SELECT r.id, r.rank, "
+            + "ts_headline('russian', r.description, r.q, 'StartSel=<b>, StopSel=</b>, HighlightAll=true') "
+            + "FROM (SELECT p.id, p.description, q, ts_rank(p.description_tsv, q) AS rank "
+            + "FROM auto_post p, websearch_to_tsquery('russian', :query) q "
+            + "WHERE p.description_tsv @@ q%s "
+            + "ORDER BY rank DESC, p.id DESC LIMIT :limit) r "
+            + "ORDER BY r.rank DESC, r.id DESC";
+
     private final CrudRepository crudRepository;
 
+    /**
+     * Полнотекстовый индекс для баз без tsvector, загружается при первом поиске.
+     */
+    private final PostTextIndex textIndex = new PostTextIndex();
+
+    private final AtomicBoolean textIndexLoaded = new AtomicBoolean();
+
+    private final List<PostListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Подписаться на изменения объявлений, сделанные через этот репозиторий.
+     */
+    public void addListener(PostListener listener) {
+        listeners.add(listener);
+    }
+
     /**
      * Сохранить пост
      * @param post передаем новый пост
      */
     public void savePost(Post post) {
         crudRepository.run(session -> session.persist(post));
+        index(post);
+        saved(List.of(post));
+    }
+
+    /**
+     * Сохранить объявления одной транзакцией пачками JDBC.
+     * @param posts новые объявления.
+     */
+    public void saveAllPosts(Collection<Post> posts) {
+        crudRepository.saveAll(posts);
+        posts.forEach(this::index);
+        saved(posts);
     }
 
     /**
      * Получить Post по id
      */
     public Optional<Post> getPostById(Long id) {
-        return crudRepository.optional(
-                "select p from Post p where p.id = :id", Post.class,
+        return crudRepository.namedOptional(
+                Post.FIND_BY_ID, Post.class,
                 Map.of("id", id));
     }
 
+    /**
+     * Получить Post по id вместе со связями по плану загрузки.
+     * @param id id объявления.
+     * @param plan план загрузки связей объявления.
+     */
+    public Optional<Post> getPostById(Long id, PostFetchPlan plan) {
+        return crudRepository.namedOptional(
+                Post.FIND_BY_ID, Post.class,
+                Map.of("id", id), plan);
+    }
+
     /**
      * Получить все объявления.
      */
     public List<Post> getAllPosts() {
-        return crudRepository.query(
-                "FROM Post",
+        return crudRepository.namedQuery(
+                Post.FIND_ALL,
                 Post.class
         );
     }
 
+    /**
+     * Обойти все объявления, не загружая их в память целиком.
+     * @param consumer обработчик объявления.
+     */
+    public void streamAllPosts(Consumer<Post> consumer) {
+        crudRepository.namedStream(
+                Post.FIND_ALL_ORDER_BY_ID,
+                Post.class,
+                Map.of(),
+                FETCH_SIZE,
+                consumer
+        );
+    }
+
     /**
      * Получить все объявления за последний день.
      * @return список объявлений.
@@ -50,8 +132,8 @@ public class PostRepository {
     public List<Post> getAllPostsForLastDay() {
         LocalDateTime yesterday = LocalDateTime.now().minusDays(1);
 
-        return crudRepository.query(
-                "FROM Post p WHERE p.created >= :yesterday ORDER BY p.id DESC",
+        return crudRepository.namedQuery(
+                Post.FIND_CREATED_AFTER,
                 Post.class,
                 Map.of("yesterday", yesterday)
         );
@@ -63,40 +145,426 @@ public class PostRepository {
      */
     public List<Post> getAllPostsWithPhoto() {
 
-        return crudRepository.query(
-                "SELECT p FROM Post p WHERE SIZE(p.photos) > 0 ORDER BY p.id DESC",
+        return crudRepository.namedQuery(
+                Post.FIND_WITH_PHOTO,
                 Post.class
         );
     }
 
     /**
      * Получить все объявления с определенной маркой авто.
+     * Имя марки переводится в id через кэш натуральных ключей Brand, дальше выборка идет по id.
      * @param brandName имя брэнда авто.
      * @return список объявлений.
      */
     public List<Post> getAllPostsWithSpecificCarBrand(String brandName) {
+        return brandId(brandName)
+                .map(this::getAllPostsWithCarBrandId)
+                .orElseGet(List::of);
+    }
 
-        return crudRepository.query(
-                "SELECT p FROM Post p WHERE p.car.brand.name = :brandName ORDER BY p.id DESC",
+    /**
+     * Получить все объявления с маркой авто по id марки, без соединения с таблицей марок.
+     * @param brandId id марки.
+     * @return список объявлений.
+     */
+    public List<Post> getAllPostsWithCarBrandId(int brandId) {
+        return crudRepository.namedQuery(
+                Post.FIND_BY_BRAND_ID,
                 Post.class,
-                Map.of("brandName", brandName)
+                Map.of("brandId", brandId)
+        );
+    }
+
+    /**
+     * Получить id объявлений с маркой авто по id марки, не загружая объявления.
+     * @param brandId id марки.
+     * @return id объявлений.
+     */
+    public List<Long> getPostIdsWithCarBrandId(int brandId) {
+        return crudRepository.namedQuery(
+                Post.FIND_IDS_BY_BRAND_ID,
+                Long.class,
+                Map.of("brandId", brandId)
+        );
+    }
+
+    /**
+     * Получить страницу объявлений, начиная после курсора, с планом загрузки карточки.
+     * @param cursor id последнего объявления предыдущей страницы, null для первой страницы.
+     * @param limit размер страницы.
+     * @return страница объявлений по убыванию id.
+     */
+    public KeysetPage<Post> getPostsPage(Long cursor, int limit) {
+        return getPostsPage(cursor, limit, PostFetchPlan.CARD);
+    }
+
+    /**
+     * Получить страницу объявлений, начиная после курсора.
+     * @param cursor id последнего объявления предыдущей страницы, null для первой страницы.
+     * @param limit размер страницы.
+     * @param plan план загрузки связей объявления.
+     * @return страница объявлений по убыванию id.
+     */
+    public KeysetPage<Post> getPostsPage(Long cursor, int limit, PostFetchPlan plan) {
+        return page(
+                Post.PAGE,
+                Map.of("cursor", startFrom(cursor)),
+                limit,
+                plan
+        );
+    }
+
+    /**
+     * Получить страницу объявлений за последний день, начиная после курсора,
+     * с планом загрузки карточки.
+     */
+    public KeysetPage<Post> getPostsForLastDayPage(Long cursor, int limit) {
+        return getPostsForLastDayPage(cursor, limit, PostFetchPlan.CARD);
+    }
+
+    /**
+     * Получить страницу объявлений за последний день, начиная после курсора.
+     * @param cursor id последнего объявления предыдущей страницы, null для первой страницы.
+     * @param limit размер страницы.
+     * @param plan план загрузки связей объявления.
+     * @return страница объявлений по убыванию id.
+     */
+    public KeysetPage<Post> getPostsForLastDayPage(Long cursor, int limit, PostFetchPlan plan) {
+        LocalDateTime yesterday = LocalDateTime.now().minusDays(1);
+
+        return page(
+                Post.PAGE_CREATED_AFTER,
+                Map.of("yesterday", yesterday, "cursor", startFrom(cursor)),
+                limit,
+                plan
+        );
+    }
+
+    /**
+     * Получить страницу объявлений с фото, начиная после курсора,
+     * с планом загрузки карточки.
+     */
+    public KeysetPage<Post> getPostsWithPhotoPage(Long cursor, int limit) {
+        return getPostsWithPhotoPage(cursor, limit, PostFetchPlan.CARD);
+    }
+
+    /**
+     * Получить страницу объявлений с фото, начиная после курсора.
+     * @param cursor id последнего объявления предыдущей страницы, null для первой страницы.
+     * @param limit размер страницы.
+     * @param plan план загрузки связей объявления.
+     * @return страница объявлений по убыванию id.
+     */
+    public KeysetPage<Post> getPostsWithPhotoPage(Long cursor, int limit, PostFetchPlan plan) {
+        return page(
+                Post.PAGE_WITH_PHOTO,
+                Map.of("cursor", startFrom(cursor)),
+                limit,
+                plan
+        );
+    }
+
+    /**
+     * Получить страницу объявлений с определенной маркой авто, начиная после курсора,
+     * с планом загрузки карточки.
+     */
+    public KeysetPage<Post> getPostsWithSpecificCarBrandPage(String brandName, Long cursor, int limit) {
+        return getPostsWithSpecificCarBrandPage(brandName, cursor, limit, PostFetchPlan.CARD);
+    }
+
+    /**
+     * Получить страницу объявлений с определенной маркой авто, начиная после курсора.
+     * @param brandName имя брэнда авто.
+     * @param cursor id последнего объявления предыдущей страницы, null для первой страницы.
+     * @param limit размер страницы.
+     * @param plan план загрузки связей объявления.
+     * @return страница объявлений по убыванию id.
+     */
+    public KeysetPage<Post> getPostsWithSpecificCarBrandPage(String brandName, Long cursor, int limit,
+                                                             PostFetchPlan plan) {
+        return brandId(brandName)
+                .map(brandId -> getPostsWithCarBrandIdPage(brandId, cursor, limit, plan))
+                .orElseGet(() -> new KeysetPage<>(List.of(), null));
+    }
+
+    /**
+     * Получить страницу объявлений с маркой авто по id марки, начиная после курсора.
+     * @param brandId id марки.
+     * @param cursor id последнего объявления предыдущей страницы, null для первой страницы.
+     * @param limit размер страницы.
+     * @param plan план загрузки связей объявления.
+     * @return страница объявлений по убыванию id.
+     */
+    public KeysetPage<Post> getPostsWithCarBrandIdPage(int brandId, Long cursor, int limit, PostFetchPlan plan) {
+        return page(
+                Post.PAGE_BY_BRAND_ID,
+                Map.of("brandId", brandId, "cursor", startFrom(cursor)),
+                limit,
+                plan
         );
     }
 
     /**
-     * Обновить Post.
+     * Обновить Post. Если фото объявления загружены, они сохраняются каскадом
+     * и photo_count пересчитывается в той же транзакции.
      */
     public void updatePost(Post post) {
-        crudRepository.run(session -> session.merge(post));
+        crudRepository.run(session -> {
+            session.merge(post);
+            if (Hibernate.isInitialized(post.getPhotos())) {
+                session.flush();
+                session.createNamedQuery(Post.RECOUNT_PHOTOS)
+                        .setParameter("id", post.getId())
+                        .executeUpdate();
+            }
+        });
+        index(post);
+        saved(List.of(post));
     }
 
     /**
      * Удалить Post.
      */
     public void deletePostById(Long id) {
-        crudRepository.run(
-                "DELETE FROM Post p WHERE p.id = :id",
+        crudRepository.namedRun(
+                Post.DELETE_BY_ID,
                 Map.of("id", id)
         );
+        if (isTextIndexLoaded()) {
+            textIndex.remove(id);
+        }
+        listeners.forEach(listener -> listener.deleted(id));
+    }
+
+    /**
+     * Обойти признаки всех объявлений для фасетного поиска.
+     * @param consumer обработчик признаков.
+     */
+    public void streamAllPostFacts(Consumer<PostFacts> consumer) {
+        crudRepository.namedStream(Post.FIND_FACTS, Object[].class, Map.of(), FETCH_SIZE,
+                row -> consumer.accept(PostFacts.of(row)));
+    }
+
+    /**
+     * Получить признаки объявлений для фасетного поиска.
+     * @param ids id объявлений.
+     * @return признаки найденных объявлений.
+     */
+    public List<PostFacts> getPostFactsByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return crudRepository.namedQuery(Post.FIND_FACTS_BY_IDS, Object[].class, Map.of("ids", ids))
+                .stream()
+                .map(PostFacts::of)
+                .toList();
+    }
+
+    /**
+     * Получить краткие карточки объявлений, созданных не раньше since.
+     * @param since нижняя граница даты создания.
+     * @return карточки по возрастанию id.
+     */
+    public List<PostSummary> getPostSummariesCreatedAfter(LocalDateTime since) {
+        return crudRepository.namedQuery(Post.FIND_SUMMARIES_CREATED_AFTER, Object[].class, Map.of("since", since))
+                .stream()
+                .map(PostSummary::of)
+                .toList();
+    }
+
+    /**
+     * Получить краткие карточки объявлений.
+     * @param ids id объявлений.
+     * @return карточки найденных объявлений.
+     */
+    public List<PostSummary> getPostSummariesByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return crudRepository.namedQuery(Post.FIND_SUMMARIES_BY_IDS, Object[].class, Map.of("ids", ids))
+                .stream()
+                .map(PostSummary::of)
+                .toList();
+    }
+
+    /**
+     * Получить объявления в порядке заданных id с планом загрузки карточки.
+     * @param ids id объявлений.
+     * @return найденные объявления; удаленные пропускаются.
+     */
+    public List<Post> getPostsByIds(List<Long> ids) {
+        Map<Long, Post> posts = findByIds(ids);
+        return ids.stream().map(posts::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Полнотекстовый поиск по описаниям объявлений с ранжированием и выделением слов запроса.
+     * В PostgreSQL поиск идет по колонке auto_post.description_tsv (GIN индекс),
+     * в остальных базах - по индексу {@link PostTextIndex} в памяти.
+     * Выдача упорядочена по релевантности и id, следующая страница ищется по ключу (релевантность, id)
+     * последнего результата, поэтому глубокие страницы не перебирают предыдущие совпадения.
+     * @param query запрос, слова которого должны быть в описании.
+     * @param filter фильтры по марке, наличию фото и дате.
+     * @param cursor nextCursor предыдущей страницы или null для первой.
+     * @param limit размер страницы.
+     * @return страница результатов; объявления загружены по плану CARD.
+     */
+    public PostSearchPage searchPosts(String query, PostSearchFilter filter, PostSearchPage.Cursor cursor, int limit) {
+        int size = KeysetPage.limit(limit);
+        List<PostHit> hits = crudRepository.isPostgreSql()
+                ? searchPostgreSql(query, filter, cursor, size + 1)
+                : searchInMemory(query, filter, cursor, size + 1);
+        if (hits.size() <= size) {
+            return new PostSearchPage(hits, null);
+        }
+        List<PostHit> items = hits.subList(0, size);
+        PostHit last = items.get(size - 1);
+        return new PostSearchPage(items, new PostSearchPage.Cursor(last.getRank(), last.getPost().getId()));
+    }
+
+    private KeysetPage<Post> page(String name, Map<String, Object> args, int limit, PostFetchPlan plan) {
+        int size = KeysetPage.limit(limit);
+        List<Post> rows = crudRepository.namedQuery(name, Post.class, args, size + 1, plan);
+        return KeysetPage.of(rows, size, Post::getId);
+    }
+
+    private Optional<Integer> brandId(String brandName) {
+        return crudRepository.findIdByNaturalId(Brand.class, brandName).map(Integer.class::cast);
+    }
+
+    private static long startFrom(Long cursor) {
+        return cursor == null ? Long.MAX_VALUE : cursor;
+    }
+
+    private List<PostHit> searchPostgreSql(String query, PostSearchFilter filter, PostSearchPage.Cursor cursor, int limit) {
+        StringBuilder where = new StringBuilder();
+        Map<String, Object> args = new HashMap<>();
+        args.put("query", query);
+        args.put("limit", limit);
+        if (cursor != null) {
+            where.append(" AND (ts_rank(p.description_tsv, q), p.id) < (:rank, :id)");
+            args.put("rank", cursor.getRank());
+            args.put("id", cursor.getId());
+        }
+        if (filter.getBrandName() != null) {
+            where.append(" AND EXISTS (SELECT 1 FROM car c WHERE c.id = p.car_id AND c.brand_id = :brandId)");
+            args.put("brandId", brandId(filter.getBrandName()).orElse(0));
+        }
+        if (filter.isWithPhoto()) {
+            where.append(" AND p.photo_count > 0");
+        }
+        if (filter.getCreatedAfter() != null) {
+            where.append(" AND p.created >= :createdAfter");
+            args.put("createdAfter", filter.getCreatedAfter());
+        }
+        List<Object[]> rows = crudRepository.nativeQuery(String.format(SEARCH_SQL, where), args);
+        List<Long> ids = rows.stream().map(row -> ((Number) row[0]).longValue()).toList();
+        Map<Long, Post> posts = findByIds(ids);
+        List<PostHit> rsl = new ArrayList<>();
+        for (Object[] row : rows) {
+            Post post = posts.get(((Number) row[0]).longValue());
+            if (post != null) {
+                rsl.add(new PostHit(post, ((Number) row[1]).doubleValue(), (String) row[2]));
+            }
+        }
+        return rsl;
+    }
+
+    /**
+     * Идем по совпадениям в порядке релевантности порциями, начиная с первого совпадения после курсора,
+     * фильтры проверяем на загруженных объявлениях.
+     */
+    private List<PostHit> searchInMemory(String query, PostSearchFilter filter, PostSearchPage.Cursor cursor, int limit) {
+        List<PostTextIndex.Hit> ranked = loadedTextIndex().search(query);
+        List<PostHit> rsl = new ArrayList<>();
+        for (int from = after(ranked, cursor); from < ranked.size() && rsl.size() < limit; from += SEARCH_CHUNK) {
+            List<PostTextIndex.Hit> chunk = ranked.subList(from, Math.min(from + SEARCH_CHUNK, ranked.size()));
+            Map<Long, Post> posts = findByIds(chunk.stream().map(PostTextIndex.Hit::getId).toList());
+            for (PostTextIndex.Hit hit : chunk) {
+                Post post = posts.get(hit.getId());
+                if (post == null || !matches(filter, post)) {
+                    continue;
+                }
+                if (rsl.size() < limit) {
+                    rsl.add(new PostHit(post, hit.getScore(), PostTextIndex.highlight(post.getDescription(), query)));
+                }
+            }
+        }
+        return rsl;
+    }
+
+    /**
+     * Индекс первого совпадения после курсора: совпадения упорядочены по убыванию релевантности и id.
+     */
+    private static int after(List<PostTextIndex.Hit> ranked, PostSearchPage.Cursor cursor) {
+        if (cursor == null) {
+            return 0;
+        }
+        int low = 0;
+        int high = ranked.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            PostTextIndex.Hit hit = ranked.get(mid);
+            if (hit.getScore() < cursor.getRank() || hit.getScore() == cursor.getRank() && hit.getId() < cursor.getId()) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private static boolean matches(PostSearchFilter filter, Post post) {
+        return (filter.getBrandName() == null || filter.getBrandName().equals(post.getCar().getBrand().getName()))
+                && (!filter.isWithPhoto() || post.getPhotoCount() > 0)
+                && (filter.getCreatedAfter() == null || !post.getCreated().isBefore(filter.getCreatedAfter()));
+    }
+
+    private Map<Long, Post> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return crudRepository.namedQuery(Post.FIND_BY_IDS, Post.class, Map.of("ids", ids), ids.size(), PostFetchPlan.CARD)
+                .stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+    }
+
+    private void saved(Collection<Post> posts) {
+        if (!posts.isEmpty()) {
+            listeners.forEach(listener -> listener.saved(posts));
+        }
+    }
+
+    private void index(Post post) {
+        if (isTextIndexLoaded()) {
+            textIndex.put(post.getId(), post.getDescription());
+        }
+    }
+
+    /**
+     * Пока индекс загружается, запись ждет окончания загрузки под тем же монитором и затем попадает в индекс.
+     * Если загрузка еще не начиналась, запись уже зафиксирована и будет прочитана загрузкой.
+     */
+    private boolean isTextIndexLoaded() {
+        if (textIndexLoaded.get()) {
+            return true;
+        }
+        synchronized (textIndex) {
+            return textIndexLoaded.get();
+        }
+    }
+
+    private PostTextIndex loadedTextIndex() {
+        if (!textIndexLoaded.get()) {
+            synchronized (textIndex) {
+                if (!textIndexLoaded.get()) {
+                    crudRepository.namedStream(Post.FIND_ID_AND_DESCRIPTION, Object[].class, Map.of(), FETCH_SIZE,
+                            row -> textIndex.put((Long) row[0], (String) row[1]));
+                    textIndexLoaded.set(true);
+                }
+            }
+        }
+        return textIndex;
     }
 }
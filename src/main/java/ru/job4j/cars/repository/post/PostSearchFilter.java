@@ -0,0 +1,18 @@
+package ru.job4j.cars.repository.post;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Фильтры полнотекстового поиска объявлений. Незаданные (null/false) фильтры не применяются.
+ */
+@Data
+public class PostSearchFilter {
+
+    private String brandName;
+
+    private boolean withPhoto;
+
+    private LocalDateTime createdAfter;
+}
@@ -0,0 +1,38 @@
+package ru.job4j.cars.repository.post;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Страница полнотекстового поиска. Выдача упорядочена по релевантности и id,
+ * поэтому курсор - пара (релевантность, id) последнего результата, а не одно id, как в {@link ru.job4j.cars.repository.KeysetPage}.
+ */
+@Getter
+@AllArgsConstructor
+public class PostSearchPage {
+
+    private final List<PostHit> items;
+
+    /**
+     * Ключ последнего результата страницы или null, если страница последняя.
+     */
+    private final Cursor nextCursor;
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Ключ, после которого начинается следующая страница.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Cursor {
+
+        private final double rank;
+
+        private final long id;
+    }
+}
@@ -0,0 +1,36 @@
+package ru.job4j.cars.repository.post;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Краткая карточка объявления для ленты, без графа сущностей.
+ */
+@Getter
+@AllArgsConstructor
+public class PostSummary {
+
+    private final long id;
+
+    private final String description;
+
+    private final LocalDateTime created;
+
+    private final String carName;
+
+    private final String brandName;
+
+    /**
+     * Последняя цена из истории цен или null, если цены нет.
+     */
+    private final Long price;
+
+    private final int photoCount;
+
+    static PostSummary of(Object[] row) {
+        return new PostSummary((Long) row[0], (String) row[1], (LocalDateTime) row[2], (String) row[3],
+                (String) row[4], (Long) row[5], ((Number) row[6]).intValue());
+    }
+}
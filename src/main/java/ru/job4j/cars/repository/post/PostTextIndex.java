@@ -0,0 +1,165 @@
+package ru.job4j.cars.repository.post;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Полнотекстовый индекс описаний объявлений в памяти - замена tsvector/GIN для баз без них (H2 в тестах).
+ * Инвертированный индекс "слово - объявления", ранжирование BM25, в запросе нужны все слова.
+ * Слова сравниваются целиком без учета регистра, без стемминга.
+ */
+public class PostTextIndex {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{Nd}]+");
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    private final Map<Long, List<String>> documents = new HashMap<>();
+
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long totalLength;
+
+    /**
+     * Добавить или заменить описание объявления.
+     */
+    public void put(long id, String description) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            List<String> words = words(description);
+            documents.put(id, words);
+            totalLength += words.size();
+            for (String word : words) {
+                postings.computeIfAbsent(word, key -> new HashMap<>()).merge(id, 1, Integer::sum);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Найти объявления, описание которых содержит все слова запроса.
+     * @param query запрос.
+     * @return совпадения по убыванию релевантности, при равенстве - по убыванию id.
+     */
+    public List<Hit> search(String query) {
+        Set<String> terms = new LinkedHashSet<>(words(query));
+        lock.readLock().lock();
+        try {
+            if (terms.isEmpty()) {
+                return List.of();
+            }
+            List<Map<Long, Integer>> lists = new ArrayList<>();
+            for (String term : terms) {
+                Map<Long, Integer> list = postings.get(term);
+                if (list == null) {
+                    return List.of();
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(Map::size));
+            double avgLength = (double) totalLength / documents.size();
+            List<Hit> rsl = new ArrayList<>();
+            for (Long id : lists.get(0).keySet()) {
+                double score = 0;
+                for (Map<Long, Integer> list : lists) {
+                    Integer tf = list.get(id);
+                    if (tf == null) {
+                        score = -1;
+                        break;
+                    }
+                    double idf = Math.log(1 + (documents.size() - list.size() + 0.5) / (list.size() + 0.5));
+                    double norm = K1 * (1 - B + B * documents.get(id).size() / avgLength);
+                    score += idf * tf * (K1 + 1) / (tf + norm);
+                }
+                if (score >= 0) {
+                    rsl.add(new Hit(id, score));
+                }
+            }
+            rsl.sort(Comparator.comparingDouble(Hit::getScore).reversed()
+                    .thenComparing(Comparator.comparingLong(Hit::getId).reversed()));
+            return rsl;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Выделить в тексте слова запроса тегами b, как ts_headline.
+     */
+    public static String highlight(String text, String query) {
+        Set<String> terms = new LinkedHashSet<>(words(query));
+        StringBuilder rsl = new StringBuilder();
+        Matcher matcher = WORD.matcher(text);
+        int last = 0;
+        while (matcher.find()) {
+            if (terms.contains(matcher.group().toLowerCase(Locale.ROOT))) {
+                rsl.append(text, last, matcher.start())
+                        .append("<b>").append(matcher.group()).append("</b>");
+                last = matcher.end();
+            }
+        }
+        return rsl.append(text.substring(last)).toString();
+    }
+
+    private void removeDocument(long id) {
+        List<String> words = documents.remove(id);
+        if (words == null) {
+            return;
+        }
+        totalLength -= words.size();
+        for (String word : words) {
+            Map<Long, Integer> list = postings.get(word);
+            if (list != null && list.remove(id) != null && list.isEmpty()) {
+                postings.remove(word);
+            }
+        }
+    }
+
+    private static List<String> words(String text) {
+        List<String> rsl = new ArrayList<>();
+        if (text != null) {
+            Matcher matcher = WORD.matcher(text);
+            while (matcher.find()) {
+                rsl.add(matcher.group().toLowerCase(Locale.ROOT));
+            }
+        }
+        return rsl;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Hit {
+
+        private final long id;
+
+        private final double score;
+    }
+}
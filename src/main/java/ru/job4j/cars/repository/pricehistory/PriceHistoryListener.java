@@ -0,0 +1,13 @@
+package ru.job4j.cars.repository.pricehistory;
+
+import ru.job4j.cars.model.PriceHistory;
+
+import java.util.Collection;
+
+/**
+ * Слушатель новых записей истории цены. Вызывается после фиксации транзакции в потоке, который записывал.
+ */
+public interface PriceHistoryListener {
+
+    void saved(Collection<PriceHistory> priceHistories);
+}
@@ -1,27 +1,81 @@
 package ru.job4j.cars.repository.pricehistory;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.PriceHistory;
+import ru.job4j.cars.model.PriceResolution;
+import ru.job4j.cars.model.PriceRollup;
+import ru.job4j.cars.model.PriceSeries;
 import ru.job4j.cars.repository.CrudRepository;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Repository
 @RequiredArgsConstructor
 public class PriceHistoryRepository {
 
+    /**
+     * Слияние агрегата одной командой: параллельные сохранения не создают дубликатов.
+     */
+    private static final String MERGE_SQL = "INSERT INTO price_rollups (id, series, series_id, resolution, bucket_start, "
+            + "min_price, max_price, sum_price, price_count) VALUES (nextval('price_rollups_id_seq'), :series, :seriesId, "
+            + ":resolution, :start, :min, :max, :sum, :count) "
+            + "ON CONFLICT (series, series_id, resolution, bucket_start) DO UPDATE SET "
+            + "min_price = LEAST(price_rollups.min_price, EXCLUDED.min_price), "
+            + "max_price = GREATEST(price_rollups.max_price, EXCLUDED.max_price), "
+            + "sum_price = price_rollups.sum_price + EXCLUDED.sum_price, "
+            + "price_count = price_rollups.price_count + EXCLUDED.price_count";
+
+    /**
+     * Вставка нового агрегата для остальных СУБД, выполняется в точке сохранения.
+     */
+    private static final String INSERT_SQL = "INSERT INTO price_rollups (id, series, series_id, resolution, bucket_start, "
+            + "min_price, max_price, sum_price, price_count) VALUES (NEXT VALUE FOR price_rollups_id_seq, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Класс SQLSTATE нарушения ограничения целостности.
+     */
+    private static final String INTEGRITY_VIOLATION = "23";
+
+    /**
+     * Порядок записи агрегатов: параллельные транзакции блокируют общие агрегаты в одном порядке и не взаимоблокируются.
+     */
+    private static final Comparator<PriceRollup> WRITE_ORDER = Comparator.comparing(PriceRollup::getSeries)
+            .thenComparing(PriceRollup::getSeriesId)
+            .thenComparing(PriceRollup::getResolution)
+            .thenComparing(PriceRollup::getStart);
+
     private final CrudRepository crudRepository;
 
+    private final List<PriceHistoryListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Подписаться на новые записи истории цены, сделанные через этот репозиторий.
+     */
+    public void addListener(PriceHistoryListener listener) {
+        listeners.add(listener);
+    }
+
     /**
      * Получить список всех историй цены автомобилей.
      * @return Список всех историй цены автомобилей.
      */
     public List<PriceHistory> getAllPriceHistory() {
-        return crudRepository.query(
-                "FROM PriceHistory",
+        return crudRepository.namedQuery(
+                PriceHistory.FIND_ALL,
                 PriceHistory.class
         );
     }
@@ -30,7 +84,19 @@ public class PriceHistoryRepository {
      * Сохранить историю цены автомобиля.
      */
     public void savePriceHistory(PriceHistory priceHistory) {
-        crudRepository.run(session -> session.persist(priceHistory));
+        crudRepository.run(session -> {
+            session.persist(priceHistory);
+            rollUp(session, List.of(priceHistory));
+        });
+        saved(List.of(priceHistory));
+    }
+
+    /**
+     * Сохранить истории цены одной транзакцией пачками JDBC.
+     */
+    public void saveAllPriceHistory(Collection<PriceHistory> priceHistories) {
+        crudRepository.saveAll(priceHistories, session -> rollUp(session, priceHistories));
+        saved(priceHistories);
     }
 
     /**
@@ -39,9 +105,151 @@ public class PriceHistoryRepository {
      * @return История цены автомобиля по ID. Если не найдена, то Optional.empty().
      */
     public Optional<PriceHistory> getPriceHistoryById(Long id) {
-        return crudRepository.optional(
-                "select p from PriceHistory p where p.id = :id", PriceHistory.class,
+        return crudRepository.namedOptional(
+                PriceHistory.FIND_BY_ID, PriceHistory.class,
                 Map.of("id", id)
         );
     }
+
+    /**
+     * Минимальная, максимальная и средняя цена объявления по дням или неделям.
+     * @param postId ID объявления.
+     * @param resolution шаг.
+     * @param from первый день периода включительно.
+     * @param to последний день периода не включительно.
+     * @return агрегаты по возрастанию начала интервала, интервалы без изменений цены пропущены.
+     */
+    public List<PriceRollup> getPostPriceRollups(Long postId, PriceResolution resolution, LocalDate from, LocalDate to) {
+        return rollups(PriceSeries.POST, postId, resolution, from, to);
+    }
+
+    /**
+     * Цены объявлений марки по дням или неделям - кривая цены по рынку.
+     * @param brandId ID марки.
+     * @param resolution шаг.
+     * @param from первый день периода включительно.
+     * @param to последний день периода не включительно.
+     * @return агрегаты по возрастанию начала интервала, интервалы без изменений цены пропущены.
+     */
+    public List<PriceRollup> getBrandPriceRollups(int brandId, PriceResolution resolution, LocalDate from, LocalDate to) {
+        return rollups(PriceSeries.BRAND, (long) brandId, resolution, from, to);
+    }
+
+    private void saved(Collection<PriceHistory> priceHistories) {
+        if (!priceHistories.isEmpty()) {
+            listeners.forEach(listener -> listener.saved(priceHistories));
+        }
+    }
+
+    private List<PriceRollup> rollups(PriceSeries series, Long seriesId, PriceResolution resolution,
+                                      LocalDate from, LocalDate to) {
+        return crudRepository.namedQuery(PriceRollup.FIND_RANGE, PriceRollup.class, Map.of(
+                "series", series, "seriesId", seriesId, "resolution", resolution, "from", from, "to", to));
+    }
+
+    /**
+     * Добавить новые цены в агрегаты объявления и марки за день и неделю в текущей транзакции.
+     * Изменения одного агрегата сначала сводятся в памяти, затем каждый агрегат обновляется одной командой
+     * в порядке {@link #WRITE_ORDER}. Без PostgreSQL агрегат сначала обновляется, при его отсутствии вставляется;
+     * если его успела вставить параллельная транзакция, вставка откатывается к точке сохранения и обновление повторяется.
+     */
+    private void rollUp(Session session, Collection<PriceHistory> priceHistories) {
+        if (priceHistories.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> brands = new HashMap<>();
+        List<Long> postIds = priceHistories.stream().map(ph -> ph.getPost().getId()).distinct().toList();
+        session.createNamedQuery(PriceRollup.FIND_POST_BRANDS, Object[].class)
+                .setParameterList("ids", postIds)
+                .list()
+                .forEach(row -> brands.put((Long) row[0], ((Number) row[1]).longValue()));
+        Map<List<Object>, PriceRollup> rollups = new HashMap<>();
+        for (PriceHistory priceHistory : priceHistories) {
+            Long postId = priceHistory.getPost().getId();
+            for (PriceResolution resolution : PriceResolution.values()) {
+                add(rollups, PriceSeries.POST, postId, resolution, priceHistory);
+                if (brands.containsKey(postId)) {
+                    add(rollups, PriceSeries.BRAND, brands.get(postId), resolution, priceHistory);
+                }
+            }
+        }
+        boolean postgreSql = crudRepository.isPostgreSql();
+        List<PriceRollup> ordered = new ArrayList<>(rollups.values());
+        ordered.sort(WRITE_ORDER);
+        for (PriceRollup rollup : ordered) {
+            if (postgreSql) {
+                bind(session.createNativeQuery(MERGE_SQL).addSynchronizedEntityClass(PriceRollup.class), rollup)
+                        .setParameter("series", rollup.getSeries().name())
+                        .setParameter("resolution", rollup.getResolution().name())
+                        .executeUpdate();
+            } else if (merge(session, rollup) == 0 && !insert(session, rollup)) {
+                merge(session, rollup);
+            }
+        }
+    }
+
+    private static int merge(Session session, PriceRollup rollup) {
+        return bind(session.createNamedQuery(PriceRollup.MERGE), rollup)
+                .setParameter("series", rollup.getSeries())
+                .setParameter("resolution", rollup.getResolution())
+                .executeUpdate();
+    }
+
+    /**
+     * @return false, если агрегат с тем же ключом уже вставлен другой транзакцией.
+     */
+    private static boolean insert(Session session, PriceRollup rollup) {
+        return session.doReturningWork(connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                statement.setString(1, rollup.getSeries().name());
+                statement.setLong(2, rollup.getSeriesId());
+                statement.setString(3, rollup.getResolution().name());
+                statement.setObject(4, rollup.getStart());
+                statement.setLong(5, rollup.getMinPrice());
+                statement.setLong(6, rollup.getMaxPrice());
+                statement.setLong(7, rollup.getSumPrice());
+                statement.setInt(8, rollup.getCount());
+                statement.executeUpdate();
+                connection.releaseSavepoint(savepoint);
+                return true;
+            } catch (SQLException e) {
+                if (e.getSQLState() == null || !e.getSQLState().startsWith(INTEGRITY_VIOLATION)) {
+                    throw e;
+                }
+                connection.rollback(savepoint);
+                return false;
+            }
+        });
+    }
+
+    private static void add(Map<List<Object>, PriceRollup> rollups, PriceSeries series, Long seriesId,
+                            PriceResolution resolution, PriceHistory priceHistory) {
+        LocalDate start = resolution.start(priceHistory.getCreated());
+        long price = priceHistory.getAfter();
+        PriceRollup rollup = rollups.computeIfAbsent(List.of(series, seriesId, resolution, start), key -> {
+            PriceRollup created = new PriceRollup();
+            created.setSeries(series);
+            created.setSeriesId(seriesId);
+            created.setResolution(resolution);
+            created.setStart(start);
+            created.setMinPrice(price);
+            created.setMaxPrice(price);
+            return created;
+        });
+        rollup.setMinPrice(Math.min(rollup.getMinPrice(), price));
+        rollup.setMaxPrice(Math.max(rollup.getMaxPrice(), price));
+        rollup.setSumPrice(rollup.getSumPrice() + price);
+        rollup.setCount(rollup.getCount() + 1);
+    }
+
+    private static <Q extends Query<?>> Q bind(Q query, PriceRollup rollup) {
+        query.setParameter("seriesId", rollup.getSeriesId())
+                .setParameter("start", rollup.getStart())
+                .setParameter("min", rollup.getMinPrice())
+                .setParameter("max", rollup.getMaxPrice())
+                .setParameter("sum", rollup.getSumPrice())
+                .setParameter("count", rollup.getCount());
+        return query;
+    }
 }
@@ -0,0 +1,137 @@
+package ru.job4j.cars.repository.user;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс триграмм логинов в памяти - замена GIN индексу pg_trgm для баз без него (H2 в тестах).
+ * Для каждой триграммы хранится список id пользователей. Поиск берет самый короткий список
+ * из триграмм ключа и проверяет кандидатов по актуальному логину, поэтому списки только дописываются:
+ * после изменения или удаления логина устаревшие id отсеиваются проверкой.
+ * Ключи короче трех символов ищутся перебором логинов в памяти.
+ */
+public class LoginNgramIndex {
+
+    private static final int N = 3;
+
+    private final Map<Integer, String> logins = new HashMap<>();
+
+    private final Map<String, Postings> grams = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Добавить или заменить логин пользователя.
+     */
+    public void put(int id, String login) {
+        lock.writeLock().lock();
+        try {
+            String previous = logins.put(id, normalize(login));
+            if (!normalize(login).equals(previous)) {
+                for (String gram : grams(normalize(login))) {
+                    grams.computeIfAbsent(gram, key -> new Postings()).add(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            logins.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return logins.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Найти пользователей, логин которых содержит key, с учетом регистра, как LIKE.
+     * @param key подстрока.
+     * @return id пользователей по возрастанию.
+     */
+    public List<Integer> search(String key) {
+        String needle = normalize(key);
+        lock.readLock().lock();
+        try {
+            if (needle.length() < N) {
+                return scan(needle);
+            }
+            Postings candidates = null;
+            for (String gram : grams(needle)) {
+                Postings postings = grams.get(gram);
+                if (postings == null) {
+                    return List.of();
+                }
+                if (candidates == null || postings.size < candidates.size) {
+                    candidates = postings;
+                }
+            }
+            TreeSet<Integer> rsl = new TreeSet<>();
+            for (int i = 0; i < candidates.size; i++) {
+                String login = logins.get(candidates.ids[i]);
+                if (login != null && login.contains(needle)) {
+                    rsl.add(candidates.ids[i]);
+                }
+            }
+            return new ArrayList<>(rsl);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Integer> scan(String needle) {
+        TreeSet<Integer> rsl = new TreeSet<>();
+        for (Map.Entry<Integer, String> login : logins.entrySet()) {
+            if (login.getValue().contains(needle)) {
+                rsl.add(login.getKey());
+            }
+        }
+        return new ArrayList<>(rsl);
+    }
+
+    private static String normalize(String login) {
+        return login == null ? "" : login;
+    }
+
+    private static List<String> grams(String text) {
+        List<String> rsl = new ArrayList<>();
+        for (int i = 0; i + N <= text.length(); i++) {
+            rsl.add(text.substring(i, i + N));
+        }
+        return rsl;
+    }
+
+    /**
+     * Список id, растущий по мере добавления.
+     */
+    private static class Postings {
+
+        private int[] ids = new int[4];
+
+        private int size;
+
+        private void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
@@ -5,16 +5,27 @@ import org.springframework.stereotype.Repository;
 import ru.job4j.cars.model.User;
 import ru.job4j.cars.repository.CrudRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Repository
 @AllArgsConstructor
 public class UserRepository {
 
+    private static final int FETCH_SIZE = 500;
+
     private final CrudRepository crudRepository;
 
+    /**
+     * Индекс логинов для баз без pg_trgm, загружается при первом поиске.
+     */
+    private final LoginNgramIndex loginIndex = new LoginNgramIndex();
+
+    private final AtomicBoolean loginIndexLoaded = new AtomicBoolean();
+
     /**
      * Сохранить в базе.
      * @param user пользователь.
@@ -22,15 +33,28 @@ public class UserRepository {
      */
     public User create(User user) {
         crudRepository.run(session -> session.persist(user));
+        index(user);
         return user;
     }
 
+    /**
+     * Сохранить в базе пользователей одной транзакцией пачками JDBC.
+     * @param users пользователи.
+     * @return пользователи с id.
+     */
+    public Collection<User> createAll(Collection<User> users) {
+        crudRepository.saveAll(users);
+        users.forEach(this::index);
+        return users;
+    }
+
     /**
      * Обновить в базе пользователя.
      * @param user пользователь.
      */
     public void update(User user) {
         crudRepository.run(session -> session.merge(user));
+        index(user);
     }
 
     /**
@@ -38,10 +62,13 @@ public class UserRepository {
      * @param userId ID
      */
     public void delete(int userId) {
-        crudRepository.run(
-                "delete from User where id = :fId",
+        crudRepository.namedRun(
+                User.DELETE_BY_ID,
                 Map.of("fId", userId)
         );
+        if (isLoginIndexLoaded()) {
+            loginIndex.remove(userId);
+        }
     }
 
     /**
@@ -49,7 +76,7 @@ public class UserRepository {
      * @return список пользователей.
      */
     public List<User> findAllOrderById() {
-        return crudRepository.query("from User order by id asc", User.class);
+        return crudRepository.namedQuery(User.FIND_ALL_ORDER_BY_ID, User.class);
     }
 
     /**
@@ -57,22 +84,32 @@ public class UserRepository {
      * @return пользователь.
      */
     public Optional<User> findById(int userId) {
-        return crudRepository.optional(
-                "from User where id = :fId", User.class,
+        return crudRepository.namedOptional(
+                User.FIND_BY_ID, User.class,
                 Map.of("fId", userId)
         );
     }
 
     /**
-     * Список пользователей по login LIKE %key%
+     * Список пользователей по login LIKE %key%, отсортированный по id.
+     * В PostgreSQL запрос обслуживается GIN индексом pg_trgm по auto_user.login,
+     * символы % и _ в key ищутся как есть. В остальных базах id находятся
+     * по индексу триграмм в памяти, а пользователи загружаются по id.
      * @param key key
      * @return список пользователей.
      */
     public List<User> findByLikeLogin(String key) {
-        return crudRepository.query(
-                "from User where login like :fKey", User.class,
-                Map.of("fKey", "%" + key + "%")
-        );
+        if (crudRepository.isPostgreSql()) {
+            return crudRepository.namedQuery(
+                    User.FIND_BY_LIKE_LOGIN, User.class,
+                    Map.of("fKey", "%" + escapeLike(key) + "%")
+            );
+        }
+        List<Integer> ids = loadedLoginIndex().search(key);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return crudRepository.namedQuery(User.FIND_BY_IDS, User.class, Map.of("fIds", ids));
     }
 
     /**
@@ -81,9 +118,45 @@ public class UserRepository {
      * @return Optional or user.
      */
     public Optional<User> findByLogin(String login) {
-        return crudRepository.optional(
-                "from User where login = :fLogin", User.class,
+        return crudRepository.namedOptional(
+                User.FIND_BY_LOGIN, User.class,
                 Map.of("fLogin", login)
         );
     }
+
+    private static String escapeLike(String key) {
+        return key.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private void index(User user) {
+        if (isLoginIndexLoaded()) {
+            loginIndex.put(user.getId(), user.getLogin());
+        }
+    }
+
+    /**
+     * Пока индекс загружается, запись ждет окончания загрузки под тем же монитором и затем попадает в индекс.
+     * Если загрузка еще не начиналась, запись уже зафиксирована и будет прочитана загрузкой.
+     */
+    private boolean isLoginIndexLoaded() {
+        if (loginIndexLoaded.get()) {
+            return true;
+        }
+        synchronized (loginIndex) {
+            return loginIndexLoaded.get();
+        }
+    }
+
+    private LoginNgramIndex loadedLoginIndex() {
+        if (!loginIndexLoaded.get()) {
+            synchronized (loginIndex) {
+                if (!loginIndexLoaded.get()) {
+                    crudRepository.namedStream(User.FIND_ID_AND_LOGIN, Object[].class, Map.of(), FETCH_SIZE,
+                            row -> loginIndex.put((Integer) row[0], (String) row[1]));
+                    loginIndexLoaded.set(true);
+                }
+            }
+        }
+        return loginIndex;
+    }
 }
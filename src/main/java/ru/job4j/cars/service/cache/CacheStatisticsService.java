@@ -0,0 +1,53 @@
+package ru.job4j.cars.service.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Статистика кэша второго уровня для справочников.
+ */
+@Service
+@RequiredArgsConstructor
+public class CacheStatisticsService {
+
+    /**
+     * Регионы кэша, заданные в @Cache у Brand, Engine и Car.
+     */
+    public static final List<String> REFERENCE_REGIONS = List.of("brand", "engine", "car");
+
+    private final SessionFactory sf;
+
+    /**
+     * Получить статистику по регионам справочников.
+     * @return статистика (попадания, промахи, записи, размер) по имени региона.
+     */
+    public Map<String, CacheRegionStatistics> getReferenceRegions() {
+        Map<String, CacheRegionStatistics> rsl = new LinkedHashMap<>();
+        for (String region : REFERENCE_REGIONS) {
+            rsl.put(region, sf.getStatistics().getDomainDataRegionStatistics(region));
+        }
+        return rsl;
+    }
+
+    public long getHitCount() {
+        return sf.getStatistics().getSecondLevelCacheHitCount();
+    }
+
+    public long getMissCount() {
+        return sf.getStatistics().getSecondLevelCacheMissCount();
+    }
+
+    public long getQueryPlanCacheHitCount() {
+        return sf.getStatistics().getQueryPlanCacheHitCount();
+    }
+
+    public long getQueryPlanCacheMissCount() {
+        return sf.getStatistics().getQueryPlanCacheMissCount();
+    }
+}
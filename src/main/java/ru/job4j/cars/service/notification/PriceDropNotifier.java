@@ -0,0 +1,172 @@
+package ru.job4j.cars.service.notification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.model.Notification;
+import ru.job4j.cars.model.PriceHistory;
+import ru.job4j.cars.repository.notification.NotificationRepository;
+import ru.job4j.cars.repository.participates.ParticipatesRepository;
+import ru.job4j.cars.repository.pricehistory.PriceHistoryListener;
+import ru.job4j.cars.repository.pricehistory.PriceHistoryRepository;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Уведомления подписчиков объявления о снижении цены.
+ * Сохранение истории цены с after меньше before ставит рассылку в ограниченную очередь и не ждет ее.
+ * Рассылку выполняет пул воркеров: подписчики читаются пачками по возрастанию id
+ * ({@link ParticipatesRepository#getSubscriberIds}), на каждую пачку уведомления вставляются одной транзакцией.
+ * Если очередь заполнена, записывающий поток ждет место не дольше offer-timeout, затем рассылка отбрасывается
+ * и учитывается в метрике cars.notifications.drops{result=rejected}.
+ */
+@Service
+public class PriceDropNotifier implements PriceHistoryListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PriceDropNotifier.class);
+
+    private final ParticipatesRepository participatesRepository;
+
+    private final NotificationRepository notificationRepository;
+
+    private final int batchSize;
+
+    private final long offerTimeoutMs;
+
+    private final ThreadPoolExecutor workers;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final Counter delivered;
+
+    private final Counter rejected;
+
+    private final Counter failed;
+
+    private final Counter sent;
+
+    private final Timer fanOut;
+
+    /**
+     * @param queueCapacity размер очереди рассылок.
+     * @param workers число воркеров, каждый держит соединение на время вставки пачки.
+     * @param batchSize число подписчиков в пачке.
+     * @param offerTimeoutMs сколько записывающий поток ждет место в заполненной очереди.
+     */
+    public PriceDropNotifier(PriceHistoryRepository priceHistoryRepository,
+                             ParticipatesRepository participatesRepository,
+                             NotificationRepository notificationRepository,
+                             MeterRegistry registry,
+                             @Value("${cars.notifications.queue-capacity:10000}") int queueCapacity,
+                             @Value("${cars.notifications.workers:4}") int workers,
+                             @Value("${cars.notifications.batch-size:1000}") int batchSize,
+                             @Value("${cars.notifications.offer-timeout-ms:100}") long offerTimeoutMs) {
+        this.participatesRepository = participatesRepository;
+        this.notificationRepository = notificationRepository;
+        this.batchSize = batchSize;
+        this.offerTimeoutMs = offerTimeoutMs;
+        AtomicInteger number = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "price-drop-" + number.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                backpressure());
+        this.delivered = registry.counter("cars.notifications.drops", "result", "delivered");
+        this.rejected = registry.counter("cars.notifications.drops", "result", "rejected");
+        this.failed = registry.counter("cars.notifications.drops", "result", "failed");
+        this.sent = registry.counter("cars.notifications.sent");
+        this.fanOut = registry.timer("cars.notifications.fanout");
+        registry.gauge("cars.notifications.pending", pending);
+        priceHistoryRepository.addListener(this);
+    }
+
+    @Override
+    public void saved(Collection<PriceHistory> priceHistories) {
+        for (PriceHistory priceHistory : priceHistories) {
+            if (priceHistory.getAfter() < priceHistory.getBefore()) {
+                Long postId = priceHistory.getPost().getId();
+                Long before = priceHistory.getBefore();
+                Long after = priceHistory.getAfter();
+                LocalDateTime created = priceHistory.getCreated();
+                pending.incrementAndGet();
+                workers.execute(() -> fanOut(postId, before, after, created));
+            }
+        }
+    }
+
+    /**
+     * Остановить прием рассылок и дождаться уже поставленных в очередь.
+     * @return все рассылки завершены.
+     */
+    @PreDestroy
+    public boolean shutdown() throws InterruptedException {
+        workers.shutdown();
+        return workers.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private RejectedExecutionHandler backpressure() {
+        return (task, executor) -> {
+            boolean accepted = false;
+            try {
+                accepted = !executor.isShutdown()
+                        && executor.getQueue().offer(task, offerTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!accepted) {
+                pending.decrementAndGet();
+                rejected.increment();
+                LOG.warn("Price drop notification queue is full, drop is not delivered");
+            }
+        };
+    }
+
+    private void fanOut(Long postId, Long before, Long after, LocalDateTime created) {
+        Timer.Sample sample = Timer.start();
+        try {
+            int cursor = 0;
+            List<Integer> subscribers;
+            do {
+                subscribers = participatesRepository.getSubscriberIds(postId, cursor, batchSize);
+                if (!subscribers.isEmpty()) {
+                    List<Notification> notifications = new ArrayList<>(subscribers.size());
+                    for (Integer userId : subscribers) {
+                        Notification notification = new Notification();
+                        notification.setUserId(userId);
+                        notification.setPostId(postId);
+                        notification.setBefore(before);
+                        notification.setAfter(after);
+                        notification.setCreated(created);
+                        notifications.add(notification);
+                    }
+                    notificationRepository.saveAllNotifications(notifications);
+                    sent.increment(subscribers.size());
+                    cursor = subscribers.get(subscribers.size() - 1);
+                }
+            } while (subscribers.size() == batchSize);
+            delivered.increment();
+        } catch (RuntimeException e) {
+            failed.increment();
+            LOG.error("Price drop notification of post {} failed", postId, e);
+        } finally {
+            sample.stop(fanOut);
+            pending.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package ru.job4j.cars.service.participates;
+
+import java.util.Arrays;
+
+/**
+ * Сжатое множество id пользователей по схеме Roaring.
+ * Id делится на старшие и младшие 16 бит: по старшим выбирается контейнер, в нем хранятся младшие.
+ * Контейнер до 4096 значений - отсортированный массив char (до 8 КБ), больше - битовая карта
+ * из 1024 long (ровно 8 КБ). Поиск контейнера - бинарный поиск по отсортированным старшим частям,
+ * в контейнере - бинарный поиск или проверка бита. Объединение и пересечение идут по парам контейнеров.
+ * Не потокобезопасен.
+ */
+public class ParticipationBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+
+    private static final int WORDS = 1024;
+
+    private char[] keys = new char[4];
+
+    private Container[] containers = new Container[4];
+
+    private int size;
+
+    public static ParticipationBitmap of(int... ids) {
+        ParticipationBitmap rsl = new ParticipationBitmap();
+        for (int id : ids) {
+            rsl.add(id);
+        }
+        return rsl;
+    }
+
+    /**
+     * Добавить id.
+     * @return id не было в множестве.
+     */
+    public boolean add(int id) {
+        char high = (char) (id >>> 16);
+        int index = find(high);
+        if (index < 0) {
+            index = -index - 1;
+            insert(index, high, new ArrayContainer());
+        }
+        int before = containers[index].cardinality();
+        containers[index] = containers[index].add((char) id);
+        return containers[index].cardinality() > before;
+    }
+
+    public boolean contains(int id) {
+        int index = find((char) (id >>> 16));
+        return index >= 0 && containers[index].contains((char) id);
+    }
+
+    public int cardinality() {
+        int rsl = 0;
+        for (int i = 0; i < size; i++) {
+            rsl += containers[i].cardinality();
+        }
+        return rsl;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Объединение с other, исходные множества не меняются.
+     */
+    public ParticipationBitmap or(ParticipationBitmap other) {
+        ParticipationBitmap rsl = new ParticipationBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || i < size && keys[i] < other.keys[j]) {
+                rsl.append(keys[i], containers[i].copy());
+                i++;
+            } else if (i == size || other.keys[j] < keys[i]) {
+                rsl.append(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                rsl.append(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return rsl;
+    }
+
+    /**
+     * Добавить все id из other в это множество; other не меняется.
+     * Контейнеры этого множества дополняются на месте, без копирования всего множества.
+     */
+    public void orInPlace(ParticipationBitmap other) {
+        int i = 0;
+        for (int j = 0; j < other.size; j++) {
+            while (i < size && keys[i] < other.keys[j]) {
+                i++;
+            }
+            if (i < size && keys[i] == other.keys[j]) {
+                containers[i] = containers[i].orInPlace(other.containers[j]);
+            } else {
+                insert(i, other.keys[j], other.containers[j].copy());
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Пересечение с other, исходные множества не меняются.
+     */
+    public ParticipationBitmap and(ParticipationBitmap other) {
+        ParticipationBitmap rsl = new ParticipationBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (other.keys[j] < keys[i]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) {
+                    rsl.append(keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return rsl;
+    }
+
+    /**
+     * @return id по возрастанию (как беззнаковые числа).
+     */
+    public int[] toArray() {
+        int[] rsl = new int[cardinality()];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            position = containers[i].copyTo(keys[i] << 16, rsl, position);
+        }
+        return rsl;
+    }
+
+    private int find(char high) {
+        return Arrays.binarySearch(keys, 0, size, high);
+    }
+
+    private void insert(int index, char high, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = high;
+        containers[index] = container;
+        size++;
+    }
+
+    private void append(char high, Container container) {
+        insert(size, high, container);
+    }
+
+    private abstract static class Container {
+
+        abstract boolean contains(char low);
+
+        /**
+         * Добавить значение; возвращает себя или контейнер другого вида, если этот переполнен.
+         */
+        abstract Container add(char low);
+
+        abstract int cardinality();
+
+        abstract Container copy();
+
+        abstract int copyTo(int high, int[] target, int position);
+
+        abstract BitmapContainer toBitmap();
+
+        Container or(Container other) {
+            if (this instanceof ArrayContainer && other instanceof ArrayContainer
+                    && cardinality() + other.cardinality() <= ARRAY_MAX) {
+                return ((ArrayContainer) this).merge((ArrayContainer) other);
+            }
+            BitmapContainer rsl = toBitmap();
+            BitmapContainer bitmap = other.toBitmap();
+            for (int i = 0; i < WORDS; i++) {
+                rsl.words[i] |= bitmap.words[i];
+            }
+            return rsl.recount();
+        }
+
+        /**
+         * Объединение, которое может изменить этот контейнер; other не меняется.
+         */
+        Container orInPlace(Container other) {
+            return or(other);
+        }
+
+        Container and(Container other) {
+            if (this instanceof ArrayContainer) {
+                return ((ArrayContainer) this).filter(other);
+            }
+            if (other instanceof ArrayContainer) {
+                return ((ArrayContainer) other).filter(this);
+            }
+            BitmapContainer rsl = toBitmap();
+            BitmapContainer bitmap = (BitmapContainer) other;
+            for (int i = 0; i < WORDS; i++) {
+                rsl.words[i] &= bitmap.words[i];
+            }
+            return rsl.recount().shrink();
+        }
+    }
+
+    private static class ArrayContainer extends Container {
+
+        private char[] values;
+
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        @Override
+        Container add(char low) {
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(low);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+        }
+
+        @Override
+        int copyTo(int high, int[] target, int position) {
+            for (int i = 0; i < cardinality; i++) {
+                target[position++] = high | values[i];
+            }
+            return position;
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            BitmapContainer rsl = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                rsl.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            rsl.cardinality = cardinality;
+            return rsl;
+        }
+
+        ArrayContainer merge(ArrayContainer other) {
+            char[] rsl = new char[cardinality + other.cardinality];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < cardinality || j < other.cardinality) {
+                if (j == other.cardinality || i < cardinality && values[i] < other.values[j]) {
+                    rsl[n++] = values[i++];
+                } else if (i == cardinality || other.values[j] < values[i]) {
+                    rsl[n++] = other.values[j++];
+                } else {
+                    rsl[n++] = values[i++];
+                    j++;
+                }
+            }
+            return new ArrayContainer(rsl, n);
+        }
+
+        ArrayContainer filter(Container other) {
+            char[] rsl = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i])) {
+                    rsl[n++] = values[i];
+                }
+            }
+            return new ArrayContainer(rsl, n);
+        }
+    }
+
+    private static class BitmapContainer extends Container {
+
+        private final long[] words = new long[WORDS];
+
+        private int cardinality;
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & 1L << low) != 0;
+        }
+
+        @Override
+        Container add(char low) {
+            long word = words[low >>> 6];
+            words[low >>> 6] = word | 1L << low;
+            if (words[low >>> 6] != word) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer rsl = new BitmapContainer();
+            System.arraycopy(words, 0, rsl.words, 0, WORDS);
+            rsl.cardinality = cardinality;
+            return rsl;
+        }
+
+        @Override
+        int copyTo(int high, int[] target, int position) {
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    target[position++] = high | i << 6 | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return position;
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            return (BitmapContainer) copy();
+        }
+
+        @Override
+        Container orInPlace(Container other) {
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    add(array.values[i]);
+                }
+                return this;
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            for (int i = 0; i < WORDS; i++) {
+                words[i] |= otherWords[i];
+            }
+            return recount();
+        }
+
+        BitmapContainer recount() {
+            cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            return this;
+        }
+
+        /**
+         * После пересечения малое множество хранится массивом.
+         */
+        Container shrink() {
+            if (cardinality > ARRAY_MAX) {
+                return this;
+            }
+            char[] values = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[n++] = (char) (i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, n);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package ru.job4j.cars.service.participates;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.model.Participates;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.repository.participates.ParticipatesListener;
+import ru.job4j.cars.repository.participates.ParticipatesRepository;
+import ru.job4j.cars.repository.post.PostListener;
+import ru.job4j.cars.repository.post.PostRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Подписчики объявлений в памяти: на каждое объявление - {@link ParticipationBitmap} id подписчиков.
+ * Проверка подписки и число подписчиков не загружают коллекции Post.subscribers и User.subscribedPosts,
+ * подписчики группы объявлений - объединение или пересечение битовых карт.
+ * Карты строятся из таблицы participates при старте приложения (или при первом обращении),
+ * дальше карты объявлений перечитываются после записи подписок через {@link ParticipatesRepository}
+ * и объявлений через {@link PostRepository} (подписчики - владеющая сторона Post.subscribers),
+ * карта удаленного объявления отбрасывается.
+ */
+@Service
+@RequiredArgsConstructor
+public class ParticipationIndex {
+
+    private static final int REFRESH_CHUNK = 1000;
+
+    private final ParticipatesRepository participatesRepository;
+
+    private final PostRepository postRepository;
+
+    private final Map<Long, ParticipationBitmap> posts = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final AtomicBoolean loaded = new AtomicBoolean();
+
+    /**
+     * Построить карты подписчиков из таблицы participates.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!loaded.get()) {
+            synchronized (posts) {
+                if (!loaded.get()) {
+                    participatesRepository.addListener(new SubscriptionUpdater());
+                    postRepository.addListener(new PostUpdater());
+                    participatesRepository.streamAllSubscriptions(this::put);
+                    loaded.set(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Подписан ли пользователь на объявление.
+     */
+    public boolean isSubscribed(Long postId, int userId) {
+        load();
+        lock.readLock().lock();
+        try {
+            ParticipationBitmap subscribers = posts.get(postId);
+            return subscribers != null && subscribers.contains(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Число подписчиков объявления.
+     */
+    public int countSubscribers(Long postId) {
+        load();
+        lock.readLock().lock();
+        try {
+            ParticipationBitmap subscribers = posts.get(postId);
+            return subscribers == null ? 0 : subscribers.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Пользователи, подписанные хотя бы на одно из объявлений.
+     * @return новое множество id, его можно изменять.
+     */
+    public ParticipationBitmap getSubscribersOfAny(Collection<Long> postIds) {
+        load();
+        lock.readLock().lock();
+        try {
+            ParticipationBitmap rsl = new ParticipationBitmap();
+            for (Long postId : postIds) {
+                ParticipationBitmap subscribers = posts.get(postId);
+                if (subscribers != null) {
+                    rsl.orInPlace(subscribers);
+                }
+            }
+            return rsl;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Пользователи, подписанные на все объявления.
+     * @return новое множество id, его можно изменять.
+     */
+    public ParticipationBitmap getSubscribersOfAll(Collection<Long> postIds) {
+        load();
+        lock.readLock().lock();
+        try {
+            ParticipationBitmap rsl = null;
+            for (Long postId : postIds) {
+                ParticipationBitmap subscribers = posts.get(postId);
+                if (subscribers == null) {
+                    return new ParticipationBitmap();
+                }
+                rsl = rsl == null ? subscribers.or(new ParticipationBitmap()) : rsl.and(subscribers);
+            }
+            return rsl == null ? new ParticipationBitmap() : rsl;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Пользователи, подписанные хотя бы на одно объявление марки.
+     * @param brandId id марки.
+     */
+    public ParticipationBitmap getSubscribersOfBrand(int brandId) {
+        return getSubscribersOfAny(postRepository.getPostIdsWithCarBrandId(brandId));
+    }
+
+    private void put(Long postId, Integer userId) {
+        lock.writeLock().lock();
+        try {
+            posts.computeIfAbsent(postId, key -> new ParticipationBitmap()).add(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Перечитать подписчиков объявлений и заменить их карты.
+     * Выполняется под монитором загрузки: обновления не перемешиваются между собой и с загрузкой,
+     * поэтому последнее из них читает таблицу после всех зафиксированных записей.
+     */
+    private void refresh(Set<Long> postIds) {
+        synchronized (posts) {
+            Map<Long, ParticipationBitmap> fresh = new HashMap<>();
+            List<Long> ids = new ArrayList<>(postIds);
+            for (int from = 0; from < ids.size(); from += REFRESH_CHUNK) {
+                participatesRepository.streamSubscriptions(ids.subList(from, Math.min(ids.size(), from + REFRESH_CHUNK)),
+                        (postId, userId) -> fresh.computeIfAbsent(postId, key -> new ParticipationBitmap()).add(userId));
+            }
+            lock.writeLock().lock();
+            try {
+                for (Long postId : postIds) {
+                    ParticipationBitmap subscribers = fresh.get(postId);
+                    if (subscribers == null) {
+                        posts.remove(postId);
+                    } else {
+                        posts.put(postId, subscribers);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void remove(Long postId) {
+        synchronized (posts) {
+            lock.writeLock().lock();
+            try {
+                posts.remove(postId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Перечитывает карты объявлений, на которые сохранены подписки.
+     */
+    private class SubscriptionUpdater implements ParticipatesListener {
+
+        @Override
+        public void saved(Collection<Participates> participates) {
+            Set<Long> postIds = new HashSet<>();
+            for (Participates participate : participates) {
+                postIds.add(participate.getPost().getId());
+            }
+            refresh(postIds);
+        }
+    }
+
+    /**
+     * Перечитывает карты сохраненных объявлений и отбрасывает карты удаленных.
+     */
+    private class PostUpdater implements PostListener {
+
+        @Override
+        public void saved(Collection<Post> posts) {
+            Set<Long> postIds = new HashSet<>();
+            for (Post post : posts) {
+                postIds.add(post.getId());
+            }
+            refresh(postIds);
+        }
+
+        @Override
+        public void deleted(Long id) {
+            remove(id);
+        }
+    }
+}
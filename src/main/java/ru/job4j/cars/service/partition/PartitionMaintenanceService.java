@@ -0,0 +1,68 @@
+package ru.job4j.cars.service.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.repository.CrudRepository;
+
+import java.util.List;
+
+/**
+ * Обслуживание месячных партиций таблиц, секционированных по created (PostgreSQL).
+ * При старте и по расписанию создает партиции на months-ahead месяцев вперед
+ * и отсоединяет партиции старше retention-months. В остальных базах ничего не делает.
+ */
+@Service
+public class PartitionMaintenanceService {
+
+    /**
+     * Таблицы, секционированные по created, см. db/scripts/019_ddl_partition_price_history_table.sql.
+     */
+    public static final List<String> PARTITIONED_TABLES = List.of("price_history");
+
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    private final CrudRepository crudRepository;
+
+    private final int monthsAhead;
+
+    private final int retentionMonths;
+
+    public PartitionMaintenanceService(CrudRepository crudRepository,
+                                       @Value("${cars.partitions.months-ahead:3}") int monthsAhead,
+                                       @Value("${cars.partitions.retention-months:24}") int retentionMonths) {
+        this.crudRepository = crudRepository;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * Создать будущие и отсоединить старые партиции.
+     * @return false, если база не PostgreSQL и партиций нет.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${cars.partitions.cron:0 0 3 * * *}")
+    public boolean maintain() {
+        if (!crudRepository.isPostgreSql()) {
+            return false;
+        }
+        for (String table : PARTITIONED_TABLES) {
+            Number created = crudRepository.tx(session -> (Number) session
+                    .createNativeQuery("SELECT create_monthly_partitions(:parent, CAST(now() AS date), :ahead)")
+                    .setParameter("parent", table)
+                    .setParameter("ahead", monthsAhead)
+                    .getSingleResult());
+            Number detached = crudRepository.tx(session -> (Number) session
+                    .createNativeQuery("SELECT detach_old_partitions(:parent, :retention)")
+                    .setParameter("parent", table)
+                    .setParameter("retention", retentionMonths)
+                    .getSingleResult());
+            LOG.info("Partitions of {}: {} created, {} detached", table, created, detached);
+        }
+        return true;
+    }
+}
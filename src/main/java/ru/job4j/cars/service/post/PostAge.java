@@ -0,0 +1,22 @@
+package ru.job4j.cars.service.post;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Возраст объявления для фасетного поиска. Интервалы вложены: объявление за сутки входит и в неделю.
+ */
+@Getter
+@AllArgsConstructor
+public enum PostAge {
+
+    DAY(Duration.ofDays(1)),
+
+    WEEK(Duration.ofDays(7)),
+
+    MONTH(Duration.ofDays(30));
+
+    private final Duration duration;
+}
@@ -0,0 +1,319 @@
+package ru.job4j.cars.service.post;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.job4j.cars.repository.post.PostFacts;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Битовый индекс признаков объявлений в памяти, позиция бита - id объявления.
+ * Марка, двигатель и наличие фото хранятся битовыми картами на значение, фильтр по ним -
+ * объединение и пересечение карт. Цена и дата хранятся массивами по id: диапазоны проверяются
+ * проходом по кандидатам, счетчики фасетов считаются тем же проходом.
+ */
+public class PostFacetIndex {
+
+    /**
+     * Нижние границы ценовых диапазонов фасета цены.
+     */
+    public static final long[] PRICE_BOUNDS = {0, 500_000, 1_000_000, 2_000_000, 3_000_000, 5_000_000};
+
+    private static final long NO_PRICE = Long.MIN_VALUE;
+
+    private final BitSet posts = new BitSet();
+
+    private final BitSet photos = new BitSet();
+
+    private final Dictionary brands = new Dictionary();
+
+    private final Dictionary engines = new Dictionary();
+
+    private long[] prices = new long[0];
+
+    private long[] created = new long[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Добавить или заменить признаки объявления.
+     */
+    public void put(PostFacts facts) {
+        int id = Math.toIntExact(facts.getId());
+        lock.writeLock().lock();
+        try {
+            removePost(id);
+            if (id >= prices.length) {
+                int capacity = Math.max(id + 1, prices.length * 2);
+                prices = Arrays.copyOf(prices, capacity);
+                created = Arrays.copyOf(created, capacity);
+            }
+            posts.set(id);
+            photos.set(id, facts.isWithPhoto());
+            brands.put(id, facts.getBrand());
+            engines.put(id, facts.getEngine());
+            prices[id] = facts.getPrice() == null ? NO_PRICE : facts.getPrice();
+            created[id] = facts.getCreated().toEpochSecond(ZoneOffset.UTC);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removePost(Math.toIntExact(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return posts.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Отобрать объявления по фильтрам и посчитать фасеты.
+     * @param query фильтры.
+     * @param now момент, от которого считается возраст объявлений.
+     * @return отобранные объявления и счетчики фасетов.
+     */
+    public Selection select(PostFacetQuery query, LocalDateTime now) {
+        long epoch = now.toEpochSecond(ZoneOffset.UTC);
+        lock.readLock().lock();
+        try {
+            BitSet brand = brands.mask(query.getBrands());
+            BitSet engine = engines.mask(query.getEngines());
+            BitSet price = priceMask(query.getMinPrice(), query.getMaxPrice());
+            BitSet photo = photoMask(query.getWithPhoto());
+            BitSet age = ageMask(query.getAge(), epoch);
+            BitSet matched = and(brand, engine, price, photo, age);
+            PostFacets facets = new PostFacets(
+                    matched.cardinality(),
+                    brands.count(and(engine, price, photo, age)),
+                    engines.count(and(brand, price, photo, age)),
+                    priceCounts(and(brand, engine, photo, age)),
+                    photoCounts(and(brand, engine, price, age)),
+                    ageCounts(and(brand, engine, price, photo), epoch)
+            );
+            return new Selection(matched, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removePost(int id) {
+        if (!posts.get(id)) {
+            return;
+        }
+        posts.clear(id);
+        photos.clear(id);
+        brands.remove(id);
+        engines.remove(id);
+    }
+
+    /**
+     * Пересечение всех объявлений с заданными картами, null - фасет не фильтруется.
+     */
+    private BitSet and(BitSet... masks) {
+        BitSet rsl = (BitSet) posts.clone();
+        for (BitSet mask : masks) {
+            if (mask != null) {
+                rsl.and(mask);
+            }
+        }
+        return rsl;
+    }
+
+    private BitSet priceMask(Long min, Long max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        long from = min == null ? Long.MIN_VALUE + 1 : min;
+        long to = max == null ? Long.MAX_VALUE : max;
+        BitSet rsl = new BitSet();
+        for (int id = posts.nextSetBit(0); id >= 0; id = posts.nextSetBit(id + 1)) {
+            if (prices[id] != NO_PRICE && prices[id] >= from && prices[id] <= to) {
+                rsl.set(id);
+            }
+        }
+        return rsl;
+    }
+
+    private BitSet photoMask(Boolean withPhoto) {
+        if (withPhoto == null) {
+            return null;
+        }
+        if (withPhoto) {
+            return photos;
+        }
+        BitSet rsl = (BitSet) posts.clone();
+        rsl.andNot(photos);
+        return rsl;
+    }
+
+    private BitSet ageMask(PostAge age, long epoch) {
+        if (age == null) {
+            return null;
+        }
+        long since = epoch - age.getDuration().toSeconds();
+        BitSet rsl = new BitSet();
+        for (int id = posts.nextSetBit(0); id >= 0; id = posts.nextSetBit(id + 1)) {
+            if (created[id] >= since) {
+                rsl.set(id);
+            }
+        }
+        return rsl;
+    }
+
+    private Map<Long, Integer> priceCounts(BitSet others) {
+        int[] counts = new int[PRICE_BOUNDS.length];
+        for (int id = others.nextSetBit(0); id >= 0; id = others.nextSetBit(id + 1)) {
+            if (prices[id] != NO_PRICE) {
+                int bucket = Arrays.binarySearch(PRICE_BOUNDS, prices[id]);
+                counts[bucket >= 0 ? bucket : Math.max(0, -bucket - 2)]++;
+            }
+        }
+        Map<Long, Integer> rsl = new LinkedHashMap<>();
+        for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+            rsl.put(PRICE_BOUNDS[i], counts[i]);
+        }
+        return rsl;
+    }
+
+    private Map<Boolean, Integer> photoCounts(BitSet others) {
+        int total = others.cardinality();
+        others.and(photos);
+        int withPhoto = others.cardinality();
+        return Map.of(true, withPhoto, false, total - withPhoto);
+    }
+
+    private Map<PostAge, Integer> ageCounts(BitSet others, long epoch) {
+        Map<PostAge, Integer> rsl = new EnumMap<>(PostAge.class);
+        for (PostAge age : PostAge.values()) {
+            rsl.put(age, 0);
+        }
+        for (int id = others.nextSetBit(0); id >= 0; id = others.nextSetBit(id + 1)) {
+            for (PostAge age : PostAge.values()) {
+                if (created[id] >= epoch - age.getDuration().toSeconds()) {
+                    rsl.merge(age, 1, Integer::sum);
+                }
+            }
+        }
+        return rsl;
+    }
+
+    /**
+     * Объявления, отобранные фильтрами, и счетчики фасетов. Не зависит от последующих изменений индекса.
+     */
+    @AllArgsConstructor
+    public static class Selection {
+
+        private final BitSet matched;
+
+        @Getter
+        private final PostFacets facets;
+
+        /**
+         * id отобранных объявлений по убыванию, меньшие курсора.
+         * @param cursor id последнего объявления предыдущей страницы, null для первой страницы.
+         * @param count сколько id вернуть.
+         */
+        public List<Long> ids(Long cursor, int count) {
+            int from = cursor == null ? matched.length() - 1 : (int) Math.max(-1, Math.min(cursor - 1, Integer.MAX_VALUE));
+            List<Long> rsl = new ArrayList<>();
+            for (int id = matched.previousSetBit(from); id >= 0 && rsl.size() < count; id = matched.previousSetBit(id - 1)) {
+                rsl.add((long) id);
+            }
+            return rsl;
+        }
+    }
+
+    /**
+     * Значения одного фасета: код значения по id объявления и битовая карта на каждое значение.
+     */
+    private static class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private final List<String> names = new ArrayList<>();
+
+        private final List<BitSet> bits = new ArrayList<>();
+
+        /**
+         * Код значения объявления плюс один, 0 - значения нет.
+         */
+        private int[] byPost = new int[0];
+
+        private void put(int id, String value) {
+            if (value == null) {
+                return;
+            }
+            if (id >= byPost.length) {
+                byPost = Arrays.copyOf(byPost, Math.max(id + 1, byPost.length * 2));
+            }
+            int code = codes.computeIfAbsent(value, key -> {
+                names.add(key);
+                bits.add(new BitSet());
+                return names.size() - 1;
+            });
+            bits.get(code).set(id);
+            byPost[id] = code + 1;
+        }
+
+        private void remove(int id) {
+            if (id < byPost.length && byPost[id] > 0) {
+                bits.get(byPost[id] - 1).clear(id);
+                byPost[id] = 0;
+            }
+        }
+
+        private BitSet mask(Set<String> values) {
+            if (values == null || values.isEmpty()) {
+                return null;
+            }
+            BitSet rsl = new BitSet();
+            for (String value : values) {
+                Integer code = codes.get(value);
+                if (code != null) {
+                    rsl.or(bits.get(code));
+                }
+            }
+            return rsl;
+        }
+
+        private Map<String, Integer> count(BitSet others) {
+            int[] counts = new int[names.size()];
+            for (int id = others.nextSetBit(0); id >= 0; id = others.nextSetBit(id + 1)) {
+                if (id < byPost.length && byPost[id] > 0) {
+                    counts[byPost[id] - 1]++;
+                }
+            }
+            Map<String, Integer> rsl = new TreeMap<>();
+            for (int code = 0; code < counts.length; code++) {
+                if (counts[code] > 0) {
+                    rsl.put(names.get(code), counts[code]);
+                }
+            }
+            return rsl;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.job4j.cars.service.post;
+
+import lombok.Data;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Фильтры фасетного поиска объявлений. Пустые множества и null не ограничивают выдачу,
+ * несколько значений одного фасета объединяются через ИЛИ, разные фасеты - через И.
+ */
+@Data
+public class PostFacetQuery {
+
+    private Set<String> brands = new HashSet<>();
+
+    private Set<String> engines = new HashSet<>();
+
+    /**
+     * Нижняя граница цены включительно.
+     */
+    private Long minPrice;
+
+    /**
+     * Верхняя граница цены включительно.
+     */
+    private Long maxPrice;
+
+    private Boolean withPhoto;
+
+    private PostAge age;
+}
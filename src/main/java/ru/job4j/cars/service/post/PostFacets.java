@@ -0,0 +1,36 @@
+package ru.job4j.cars.service.post;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Число объявлений по значениям фасетов. Счетчики фасета учитывают фильтры всех остальных фасетов,
+ * но не его собственный, чтобы можно было выбрать еще одно значение.
+ */
+@Getter
+@AllArgsConstructor
+public class PostFacets {
+
+    /**
+     * Число объявлений, подходящих под все фильтры.
+     */
+    private final int total;
+
+    private final Map<String, Integer> brands;
+
+    private final Map<String, Integer> engines;
+
+    /**
+     * Число объявлений по ценовым диапазонам, ключ - нижняя граница диапазона.
+     */
+    private final Map<Long, Integer> prices;
+
+    /**
+     * Число объявлений с фото (true) и без фото (false).
+     */
+    private final Map<Boolean, Integer> photo;
+
+    private final Map<PostAge, Integer> ages;
+}
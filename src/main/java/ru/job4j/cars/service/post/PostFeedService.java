@@ -0,0 +1,143 @@
+package ru.job4j.cars.service.post;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PriceHistory;
+import ru.job4j.cars.repository.KeysetPage;
+import ru.job4j.cars.repository.photo.PhotoListener;
+import ru.job4j.cars.repository.photo.PhotoRepository;
+import ru.job4j.cars.repository.post.PostListener;
+import ru.job4j.cars.repository.post.PostRepository;
+import ru.job4j.cars.repository.post.PostSummary;
+import ru.job4j.cars.repository.pricehistory.PriceHistoryListener;
+import ru.job4j.cars.repository.pricehistory.PriceHistoryRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Лента объявлений за последние сутки из памяти, без запросов к базе на чтение.
+ * Карточки свежих объявлений загружаются в {@link RecentPosts} при первом обращении, дальше
+ * сохраненные через {@link PostRepository} объявления перечитываются одним запросом и
+ * дописываются или заменяются, удаленные убираются, устаревшие снимаются по расписанию.
+ * Карточки с ценой или фото, сохраненными через {@link PriceHistoryRepository} и {@link PhotoRepository},
+ * тоже перечитываются.
+ */
+@Service
+@RequiredArgsConstructor
+public class PostFeedService {
+
+    /**
+     * Глубина ленты.
+     */
+    public static final Duration WINDOW = Duration.ofDays(1);
+
+    private final PostRepository postRepository;
+
+    private final PriceHistoryRepository priceHistoryRepository;
+
+    private final PhotoRepository photoRepository;
+
+    private final RecentPosts recentPosts = new RecentPosts();
+
+    private final AtomicBoolean loaded = new AtomicBoolean();
+
+    /**
+     * Все объявления за последние сутки.
+     * @return карточки по убыванию id.
+     */
+    public List<PostSummary> getPostsForLastDay() {
+        return loadedPosts().page(since(), null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Страница объявлений за последние сутки, начиная после курсора.
+     * @param cursor id последнего объявления предыдущей страницы, null для первой страницы.
+     * @param limit размер страницы.
+     * @return страница карточек по убыванию id.
+     */
+    public KeysetPage<PostSummary> getPostsForLastDayPage(Long cursor, int limit) {
+        int size = KeysetPage.limit(limit);
+        List<PostSummary> rows = loadedPosts().page(since(), cursor, size + 1);
+        return KeysetPage.of(rows, size, PostSummary::getId);
+    }
+
+    /**
+     * Снять с ленты объявления старше суток.
+     * @return число снятых карточек.
+     */
+    @Scheduled(fixedDelayString = "${cars.feed.trim-delay-ms:60000}")
+    public int trim() {
+        return loaded.get() ? recentPosts.trim(since()) : 0;
+    }
+
+    private static LocalDateTime since() {
+        return LocalDateTime.now().minus(WINDOW);
+    }
+
+    private RecentPosts loadedPosts() {
+        if (!loaded.get()) {
+            synchronized (recentPosts) {
+                if (!loaded.get()) {
+                    CardUpdater cardUpdater = new CardUpdater();
+                    postRepository.addListener(new FeedUpdater());
+                    priceHistoryRepository.addListener(cardUpdater);
+                    photoRepository.addListener(cardUpdater);
+                    postRepository.getPostSummariesCreatedAfter(since()).forEach(recentPosts::put);
+                    loaded.set(true);
+                }
+            }
+        }
+        return recentPosts;
+    }
+
+    /**
+     * Сохраненные объявления перечитываются одним запросом: так в карточке оказываются
+     * актуальные марка, цена и число фото. Объявления старше суток в ленту не попадают.
+     */
+    private class FeedUpdater implements PostListener {
+
+        @Override
+        public void saved(Collection<Post> posts) {
+            LocalDateTime since = since();
+            List<Long> ids = posts.stream()
+                    .filter(post -> !post.getCreated().isBefore(since))
+                    .map(Post::getId)
+                    .toList();
+            postRepository.getPostSummariesByIds(ids).forEach(recentPosts::put);
+        }
+
+        @Override
+        public void deleted(Long id) {
+            recentPosts.remove(id);
+        }
+    }
+
+    /**
+     * Перечитывает карточки из ленты, у которых изменились цена или число фото.
+     */
+    private class CardUpdater implements PriceHistoryListener, PhotoListener {
+
+        @Override
+        public void saved(Collection<PriceHistory> priceHistories) {
+            refresh(priceHistories.stream().map(priceHistory -> priceHistory.getPost().getId()).distinct().toList());
+        }
+
+        @Override
+        public void changed(Collection<Long> postIds) {
+            refresh(postIds);
+        }
+
+        private void refresh(Collection<Long> postIds) {
+            LocalDateTime since = since();
+            postRepository.getPostSummariesByIds(postIds).stream()
+                    .filter(summary -> !summary.getCreated().isBefore(since))
+                    .forEach(recentPosts::put);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ru.job4j.cars.service.post;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.repository.KeysetPage;
+
+/**
+ * Результат фасетного поиска: страница объявлений и счетчики фасетов.
+ */
+@Getter
+@AllArgsConstructor
+public class PostSearchResult {
+
+    private final KeysetPage<Post> page;
+
+    private final PostFacets facets;
+}
@@ -0,0 +1,111 @@
+package ru.job4j.cars.service.post;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.job4j.cars.model.Post;
+import ru.job4j.cars.model.PriceHistory;
+import ru.job4j.cars.repository.KeysetPage;
+import ru.job4j.cars.repository.photo.PhotoListener;
+import ru.job4j.cars.repository.photo.PhotoRepository;
+import ru.job4j.cars.repository.post.PostListener;
+import ru.job4j.cars.repository.post.PostRepository;
+import ru.job4j.cars.repository.pricehistory.PriceHistoryListener;
+import ru.job4j.cars.repository.pricehistory.PriceHistoryRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Фасетный поиск объявлений по марке, двигателю, цене, наличию фото и возрасту.
+ * Фильтры и счетчики фасетов считаются по {@link PostFacetIndex} в памяти, из базы за запрос
+ * загружается только страница объявлений. Индекс загружается при первом поиске и дальше
+ * обновляется по изменениям через {@link PostRepository}, {@link PriceHistoryRepository}
+ * и {@link PhotoRepository}: признаки затронутых объявлений перечитываются.
+ */
+@Service
+@RequiredArgsConstructor
+public class PostSearchService {
+
+    private final PostRepository postRepository;
+
+    private final PriceHistoryRepository priceHistoryRepository;
+
+    private final PhotoRepository photoRepository;
+
+    private final PostFacetIndex index = new PostFacetIndex();
+
+    private final AtomicBoolean indexLoaded = new AtomicBoolean();
+
+    /**
+     * Найти объявления по фильтрам и посчитать фасеты.
+     * @param query фильтры.
+     * @param cursor id последнего объявления предыдущей страницы, null для первой страницы.
+     * @param limit размер страницы.
+     * @return страница объявлений по убыванию id с планом загрузки карточки и счетчики фасетов.
+     */
+    public PostSearchResult search(PostFacetQuery query, Long cursor, int limit) {
+        int size = KeysetPage.limit(limit);
+        PostFacetIndex.Selection selection = loadedIndex().select(query, LocalDateTime.now());
+        List<Post> rows = postRepository.getPostsByIds(selection.ids(cursor, size + 1));
+        return new PostSearchResult(KeysetPage.of(rows, size, Post::getId), selection.getFacets());
+    }
+
+    private PostFacetIndex loadedIndex() {
+        if (!indexLoaded.get()) {
+            synchronized (index) {
+                if (!indexLoaded.get()) {
+                    FactsUpdater factsUpdater = new FactsUpdater();
+                    postRepository.addListener(new IndexUpdater());
+                    priceHistoryRepository.addListener(factsUpdater);
+                    photoRepository.addListener(factsUpdater);
+                    postRepository.streamAllPostFacts(index::put);
+                    indexLoaded.set(true);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Слушатели регистрируются внутри загрузки, поэтому запись, зафиксированная во время загрузки,
+     * ждет ее окончания на мониторе индекса и перечитывает признаки уже после потоковой выборки.
+     */
+    private void refresh(Collection<Long> postIds) {
+        PostFacetIndex loaded = loadedIndex();
+        postRepository.getPostFactsByIds(postIds).forEach(loaded::put);
+    }
+
+    /**
+     * Перечитывает признаки сохраненных объявлений одним запросом.
+     */
+    private class IndexUpdater implements PostListener {
+
+        @Override
+        public void saved(Collection<Post> posts) {
+            refresh(posts.stream().map(Post::getId).toList());
+        }
+
+        @Override
+        public void deleted(Long id) {
+            loadedIndex().remove(id);
+        }
+    }
+
+    /**
+     * Перечитывает цену и наличие фото объявлений, у которых они изменились в обход объявления.
+     */
+    private class FactsUpdater implements PriceHistoryListener, PhotoListener {
+
+        @Override
+        public void saved(Collection<PriceHistory> priceHistories) {
+            refresh(priceHistories.stream().map(priceHistory -> priceHistory.getPost().getId()).distinct().toList());
+        }
+
+        @Override
+        public void changed(Collection<Long> postIds) {
+            refresh(postIds);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package ru.job4j.cars.service.post;
+
+import ru.job4j.cars.repository.post.PostSummary;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Кольцевой буфер карточек свежих объявлений, упорядоченных по возрастанию id.
+ * Новые объявления дописываются в хвост (id почти всегда больше последнего, иначе карточка
+ * сдвигается на свое место), устаревшие снимаются с головы. Массив растет вдвое при заполнении.
+ */
+public class RecentPosts {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private PostSummary[] items = new PostSummary[INITIAL_CAPACITY];
+
+    private int head;
+
+    private int size;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Добавить карточку или заменить карточку с тем же id.
+     */
+    public void put(PostSummary summary) {
+        lock.writeLock().lock();
+        try {
+            int index = indexOf(summary.getId());
+            if (index >= 0) {
+                set(index, summary);
+                return;
+            }
+            if (size == items.length) {
+                grow();
+            }
+            int position = -index - 1;
+            for (int i = size; i > position; i--) {
+                set(i, get(i - 1));
+            }
+            set(position, summary);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int index = indexOf(id);
+            if (index < 0) {
+                return;
+            }
+            for (int i = index; i < size - 1; i++) {
+                set(i, get(i + 1));
+            }
+            set(--size, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Снять с головы карточки, созданные раньше since.
+     * Карточка с более старой датой в середине буфера снимется, когда до нее дойдет голова,
+     * до этого ее скрывает фильтр в {@link #page}.
+     * @return число снятых карточек.
+     */
+    public int trim(LocalDateTime since) {
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            while (size > 0 && get(0).getCreated().isBefore(since)) {
+                set(0, null);
+                head = (head + 1) % items.length;
+                size--;
+                removed++;
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Карточки, созданные не раньше since, по убыванию id.
+     * @param since нижняя граница даты создания.
+     * @param cursor id последней карточки предыдущей страницы, null для первой страницы.
+     * @param count сколько карточек вернуть.
+     */
+    public List<PostSummary> page(LocalDateTime since, Long cursor, int count) {
+        lock.readLock().lock();
+        try {
+            int index = cursor == null ? size : indexOf(cursor);
+            int from = index >= 0 ? index - 1 : -index - 2;
+            List<PostSummary> rsl = new ArrayList<>();
+            for (int i = from; i >= 0 && rsl.size() < count; i--) {
+                if (!get(i).getCreated().isBefore(since)) {
+                    rsl.add(get(i));
+                }
+            }
+            return rsl;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private PostSummary get(int index) {
+        return items[(head + index) % items.length];
+    }
+
+    private void set(int index, PostSummary summary) {
+        items[(head + index) % items.length] = summary;
+    }
+
+    /**
+     * Двоичный поиск по id, как {@link java.util.Arrays#binarySearch}: индекс или -(точка вставки) - 1.
+     * Сначала проверяется хвост, куда попадает почти каждое новое объявление.
+     */
+    private int indexOf(long id) {
+        if (size == 0 || get(size - 1).getId() < id) {
+            return -size - 1;
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = get(mid).getId();
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -low - 1;
+    }
+
+    private void grow() {
+        PostSummary[] grown = new PostSummary[items.length * 2];
+        for (int i = 0; i < size; i++) {
+            grown[i] = get(i);
+        }
+        items = grown;
+        head = 0;
+    }
+}
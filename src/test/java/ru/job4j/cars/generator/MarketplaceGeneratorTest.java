@@ -0,0 +1,150 @@
+package ru.job4j.cars.generator;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import ru.job4j.cars.model.Brand;
+import ru.job4j.cars.model.PriceHistory;
+import ru.job4j.cars.model.PriceResolution;
+import ru.job4j.cars.model.PriceRollup;
+import ru.job4j.cars.model.PriceSeries;
+import ru.job4j.cars.repository.CrudRepository;
+import ru.job4j.cars.repository.brand.BrandRepository;
+import ru.job4j.cars.repository.post.PostRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class MarketplaceGeneratorTest {
+
+    private final SessionFactory sf
+            = new Configuration().configure("hibernate.cfg.xml").buildSessionFactory();
+
+    private CrudRepository crudRepository;
+
+    private GeneratorSettings settings;
+
+    @BeforeEach
+    void setUp() {
+        crudRepository = new CrudRepository(sf);
+        settings = new GeneratorSettings();
+        settings.setBrands(5);
+        settings.setUsers(20);
+        settings.setPosts(100);
+        settings.setNow(LocalDateTime.of(2024, 1, 1, 12, 0));
+        settings.setBatchSize(30);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        Session session = sf.openSession();
+        session.beginTransaction();
+        session.createQuery("delete from Participates").executeUpdate();
+        session.createQuery("delete from Photo").executeUpdate();
+        session.createQuery("delete from PriceRollup").executeUpdate();
+        session.createQuery("delete from PriceHistory").executeUpdate();
+        session.createQuery("delete from Post").executeUpdate();
+        session.createQuery("delete from HistoryOwner").executeUpdate();
+        session.createQuery("delete from Owner").executeUpdate();
+        session.createQuery("delete from Car").executeUpdate();
+        session.createQuery("delete from Engine").executeUpdate();
+        session.createQuery("delete from Brand").executeUpdate();
+        session.createQuery("delete from User").executeUpdate();
+        session.getTransaction().commit();
+    }
+
+    private Map<GeneratedTable, Long> generate() {
+        return crudRepository.tx(session -> session.doReturningWork(new MarketplaceGenerator(settings)::generate));
+    }
+
+    /**
+     * Позитивный тест генерации: число строк совпадает с настройками, данные читаются репозиториями
+     */
+    @Test
+    void whenGenerateThenRowsAreLoaded() {
+        Map<GeneratedTable, Long> rows = generate();
+
+        assertThat(rows.get(GeneratedTable.BRANDS)).isEqualTo(5);
+        assertThat(rows.get(GeneratedTable.AUTO_USER)).isEqualTo(20);
+        assertThat(rows.get(GeneratedTable.AUTO_POST)).isEqualTo(100);
+        assertThat(rows.get(GeneratedTable.CAR)).isEqualTo(100);
+        assertThat(new PostRepository(crudRepository).getAllPosts()).hasSize(100);
+        assertThat(crudRepository.query("from PriceHistory", PriceHistory.class))
+                .hasSize(rows.get(GeneratedTable.PRICE_HISTORY).intValue());
+    }
+
+    /**
+     * Позитивный тест агрегатов цен: каждая сгенерированная цена учтена в агрегатах объявления и марки
+     */
+    @Test
+    void whenGenerateThenPriceRollupsCoverHistory() {
+        Map<GeneratedTable, Long> rows = generate();
+        long prices = rows.get(GeneratedTable.PRICE_HISTORY);
+
+        assertThat(crudRepository.query("from PriceRollup", PriceRollup.class))
+                .hasSize(rows.get(GeneratedTable.PRICE_ROLLUPS).intValue());
+        for (PriceSeries series : PriceSeries.values()) {
+            for (PriceResolution resolution : PriceResolution.values()) {
+                assertThat(crudRepository.query(
+                        "select sum(r.count) from PriceRollup r where r.series = :series and r.resolution = :resolution",
+                        Long.class, Map.of("series", series, "resolution", resolution)))
+                        .containsExactly(prices);
+            }
+        }
+    }
+
+    /**
+     * Позитивный тест детерминированности: тот же seed даёт те же данные
+     */
+    @Test
+    void whenGenerateTwiceWithSameSeedThenSameData() {
+        int first = generate().get(GeneratedTable.PRICE_HISTORY).intValue();
+        generate();
+
+        List<Long> prices = crudRepository.query(
+                "select p.after from PriceHistory p order by p.id", Long.class);
+
+        assertThat(prices).hasSize(2 * first);
+        assertThat(prices.subList(first, 2 * first)).isEqualTo(prices.subList(0, first));
+    }
+
+    /**
+     * Позитивный тест перекоса марок: самая популярная марка встречается чаще самой редкой
+     */
+    @Test
+    void whenGenerateThenBrandsAreSkewed() {
+        generate();
+
+        List<Long> counts = crudRepository.query(
+                "select count(c) from Car c group by c.brand.id order by c.brand.id", Long.class);
+
+        assertThat(counts.get(0)).isGreaterThan(counts.get(counts.size() - 1));
+    }
+
+    /**
+     * Позитивный тест последовательностей: после генерации Hibernate сохраняет сущности без конфликта id
+     */
+    @Test
+    void whenSaveAfterGenerateThenIdIsAfterGenerated() {
+        generate();
+        Brand brand = new Brand();
+        brand.setName("BMW");
+
+        new BrandRepository(crudRepository).saveBrand(brand);
+
+        assertThat(brand.getId()).isGreaterThan(5);
+        assertThat(new BrandRepository(crudRepository).getAllBrands()).hasSize(6);
+    }
+}
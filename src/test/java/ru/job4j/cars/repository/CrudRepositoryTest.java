@@ -0,0 +1,230 @@
+package ru.job4j.cars.repository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import ru.job4j.cars.model.Brand;
+import ru.job4j.cars.repository.brand.BrandRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class CrudRepositoryTest {
+
+    private final SessionFactory sf
+            = new Configuration().configure("hibernate.cfg.xml").buildSessionFactory();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private CrudRepository crudRepository;
+
+    @BeforeEach
+    void setUp() {
+        crudRepository = new CrudRepository(sf);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        Session session = sf.openSession();
+        session.beginTransaction();
+        session.createQuery("delete from Brand").executeUpdate();
+        session.getTransaction().commit();
+    }
+
+    /**
+     * Позитивный тест транзакции только для чтения: сессия read-only и не сбрасывается
+     */
+    @Test
+    void whenReadOnlyTxThenSessionIsReadOnly() {
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        crudRepository.run(session -> session.persist(brand));
+
+        boolean readOnly = crudRepository.readOnlyTx(session -> {
+            Brand loaded = session.get(Brand.class, brand.getId());
+            return session.isDefaultReadOnly() && session.isReadOnly(loaded);
+        });
+
+        assertThat(readOnly).isTrue();
+    }
+
+    /**
+     * Позитивный тест транзакции только для чтения: одно соединение на транзакцию, запись после нее проходит в пуле из одного соединения
+     */
+    @Test
+    void whenWriteAfterReadOnlyTxThenSameSingleConnectionIsWritable() {
+        long connects = sf.getStatistics().getConnectCount();
+
+        crudRepository.readOnlyTx(session -> session.createQuery("from Brand", Brand.class).list());
+        assertThat(sf.getStatistics().getConnectCount() - connects).isEqualTo(1);
+
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        crudRepository.run(session -> session.persist(brand));
+
+        assertThat(sf.getStatistics().getConnectCount() - connects).isEqualTo(2);
+        assertThat(new BrandRepository(crudRepository).getBrandById(brand.getId())).isPresent();
+    }
+
+    /**
+     * Негативный тест потоковой выборки: неположительный fetchSize отклоняется до открытия сессии
+     */
+    @Test
+    void whenStreamWithNonPositiveFetchSizeThenException() {
+        long sessions = sf.getStatistics().getSessionOpenCount();
+
+        assertThatThrownBy(() -> crudRepository.stream("from Brand", Brand.class, Map.of(), 0, brand -> { }))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> crudRepository.namedStream(Brand.FIND_ALL, Brand.class, Map.of(), -1, brand -> { }))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(sf.getStatistics().getSessionOpenCount()).isEqualTo(sessions);
+    }
+
+    /**
+     * Негативный тест транзакции только для чтения: изменения сущностей не сохраняются
+     */
+    @Test
+    void whenChangeEntityInReadOnlyTxThenChangeIsNotFlushed() {
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        crudRepository.run(session -> session.persist(brand));
+
+        crudRepository.readOnlyTx(session -> {
+            session.get(Brand.class, brand.getId()).setName("AUDI");
+            return null;
+        });
+
+        String name = crudRepository.tx(session -> session.get(Brand.class, brand.getId()).getName());
+
+        assertThat(name).isEqualTo("BMW");
+    }
+
+    /**
+     * Позитивный тест именованного запроса: запрос находится по имени и возвращает сущность
+     */
+    @Test
+    void whenNamedQueryThenFindBrand() {
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        crudRepository.run(session -> session.persist(brand));
+
+        List<Brand> found = crudRepository.namedQuery(Brand.FIND_ALL, Brand.class);
+
+        assertThat(found).extracting(Brand::getName).containsExactly("BMW");
+    }
+
+    /**
+     * Негативный тест именованного запроса: неизвестное имя запроса приводит к исключению
+     */
+    @Test
+    void whenUnknownNamedQueryThenException() {
+        assertThatThrownBy(() -> crudRepository.namedQuery("Brand.unknown", Brand.class))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Позитивный тест метрик: вызов репозитория замеряется с тегом вызывающего метода
+     */
+    @Test
+    void whenCallRepositoryMethodThenMetricsTaggedByCaller() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        CrudRepository instrumented = new CrudRepository(sf, registry);
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        crudRepository.run(session -> session.persist(brand));
+
+        new BrandRepository(instrumented).getAllBrands();
+
+        Timer timer = registry.find("cars.repository.calls")
+                .tags("method", "BrandRepository.getAllBrands", "readOnly", "true")
+                .timer();
+        DistributionSummary statements = registry.find("cars.repository.statements")
+                .tag("method", "BrandRepository.getAllBrands")
+                .summary();
+        DistributionSummary entities = registry.find("cars.repository.entities")
+                .tag("method", "BrandRepository.getAllBrands")
+                .summary();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(statements.totalAmount()).isEqualTo(1);
+        assertThat(entities.totalAmount()).isEqualTo(1);
+    }
+
+    /**
+     * Позитивный тест асинхронного вызова: запрос выполняется в потоке исполнителя, результат приходит в future
+     */
+    @Test
+    void whenAsyncCallThenResultFromExecutorThread() {
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        crudRepository.run(session -> session.persist(brand));
+        Thread caller = Thread.currentThread();
+
+        CompletableFuture<Thread> thread = crudRepository.async(Thread::currentThread);
+        List<Brand> brands = crudRepository.async(() -> new BrandRepository(crudRepository).getAllBrands()).join();
+
+        assertThat(thread.join()).isNotSameAs(caller);
+        assertThat(brands).extracting(Brand::getName).containsExactly("BMW");
+    }
+
+    /**
+     * Позитивный тест метрик асинхронного вызова: тег - метод, вызвавший readOnlyTxAsync, а не поток исполнителя
+     */
+    @Test
+    void whenReadOnlyTxAsyncThenMetricsTaggedByCallingMethod() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        CrudRepository instrumented = new CrudRepository(sf, registry);
+
+        instrumented.readOnlyTxAsync(session -> session.createQuery("from Brand", Brand.class).list()).join();
+
+        Timer timer = registry.find("cars.repository.calls")
+                .tags("method", "CrudRepositoryTest.whenReadOnlyTxAsyncThenMetricsTaggedByCallingMethod",
+                        "readOnly", "true")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    /**
+     * Негативный тест асинхронной транзакции: исключение команды завершает future с ошибкой
+     */
+    @Test
+    void whenTxAsyncFailsThenFutureCompletesExceptionally() {
+        CompletableFuture<Object> future = crudRepository.txAsync(session -> {
+            throw new IllegalStateException("failed");
+        });
+
+        assertThatThrownBy(future::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * Позитивный тест статистики Hibernate: SessionFactory приложения привязана к реестру метрик
+     */
+    @Test
+    void whenApplicationStartsThenHibernateStatisticsAreExposed() {
+        assertThat(meterRegistry.find("hibernate.query.executions").meter()).isNotNull();
+        assertThat(meterRegistry.find("hibernate.second.level.cache.requests").meter()).isNotNull();
+    }
+}
@@ -0,0 +1,140 @@
+package ru.job4j.cars.repository;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import ru.job4j.cars.model.User;
+import ru.job4j.cars.repository.user.UserRepository;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class SlowQueryLogTest {
+
+    private final SessionFactory sf = new Configuration().configure("hibernate.cfg.xml")
+            .setProperty(SlowQueryLog.THRESHOLD, "0")
+            .buildSessionFactory();
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private CrudRepository crudRepository;
+
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        crudRepository = new CrudRepository(sf);
+        userRepository = new UserRepository(crudRepository);
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        logger.detachAppender(appender);
+        Session session = sf.openSession();
+        session.beginTransaction();
+        session.createQuery("delete from User").executeUpdate();
+        session.getTransaction().commit();
+    }
+
+    private List<String> messages() {
+        return appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+    }
+
+    /**
+     * Позитивный тест журнала медленных запросов: записаны метод, HQL, SQL и параметры
+     */
+    @Test
+    void whenQueryIsSlowerThanThresholdThenLogged() {
+        userRepository.findByLogin("ivanov");
+
+        assertThat(messages()).anySatisfy(message -> assertThat(message)
+                .contains("UserRepository.findByLogin")
+                .contains("hql=[from User where login = :fLogin]")
+                .containsIgnoringCase("select")
+                .contains("fLogin=ivanov"));
+    }
+
+    /**
+     * Негативный тест журнала медленных запросов: пароль не попадает в журнал
+     */
+    @Test
+    void whenQueryHasPasswordThenPasswordIsRedacted() {
+        User user = new User();
+        user.setLogin("ivanov");
+        user.setPassword("secret");
+        userRepository.create(user);
+
+        crudRepository.query("from User where password = :password", User.class, Map.of("password", "secret"));
+        crudRepository.query("from User where id = :user", User.class, Map.of("user", user.getId()));
+
+        assertThat(messages()).anySatisfy(message -> assertThat(message).contains("password=***"));
+        assertThat(messages()).noneSatisfy(message -> assertThat(message).contains("secret"));
+    }
+
+    /**
+     * Негативный тест журнала медленных запросов: значение, сравниваемое с полем password, скрыто при любом имени параметра
+     */
+    @Test
+    void whenParameterIsBoundToPasswordThenRedactedRegardlessOfName() {
+        crudRepository.query("from User u where u.password = :value", User.class, Map.of("value", "secret"));
+
+        assertThat(messages()).anySatisfy(message -> assertThat(message).contains("value=***"));
+        assertThat(messages()).noneSatisfy(message -> assertThat(message).contains("secret"));
+    }
+
+    /**
+     * Позитивный тест журнала медленных запросов: вставка при сбросе сессии пишется со своим SQL, без HQL предыдущего запроса
+     */
+    @Test
+    void whenFlushInsertAfterQueryThenLoggedWithoutPreviousHql() {
+        crudRepository.run(session -> {
+            Query<User> query = session.createQuery("from User where login = :fLogin", User.class)
+                    .setParameter("fLogin", "ivanov");
+            SlowQueryLog.describe(query, Map.of("fLogin", "ivanov"));
+            query.list();
+            User user = new User();
+            user.setLogin("petrov");
+            user.setPassword("secret");
+            session.persist(user);
+        });
+
+        assertThat(messages()).anySatisfy(message -> assertThat(message)
+                .containsIgnoringCase("sql=[insert")
+                .contains("hql=[null]")
+                .contains("params={}"));
+    }
+
+    /**
+     * Негативный тест журнала медленных запросов: быстрые запросы ниже порога не пишутся
+     */
+    @Test
+    void whenQueryIsFasterThanThresholdThenNotLogged() {
+        SessionFactory defaultSf = new Configuration().configure("hibernate.cfg.xml")
+                .setProperty(SlowQueryLog.THRESHOLD, "60000")
+                .buildSessionFactory();
+
+        new UserRepository(new CrudRepository(defaultSf)).findByLogin("ivanov");
+
+        assertThat(messages()).isEmpty();
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.stat.CacheRegionStatistics;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 import ru.job4j.cars.model.Brand;
@@ -58,6 +59,24 @@ class BrandRepositoryTest {
         assertThat(savedBrand.get().getName()).isEqualTo("BMW");
     }
 
+    /**
+     * Позитивный тест пакетного сохранения объектов типа Brand
+     */
+    @Test
+    public void whenSaveAllBrandsThenAllBrandsHaveIds() {
+        Brand bmw = new Brand();
+        Brand audi = new Brand();
+
+        bmw.setName("BMW");
+        audi.setName("AUDI");
+
+        brandRepository.saveAllBrands(List.of(bmw, audi));
+
+        assertThat(bmw.getId()).isNotZero();
+        assertThat(audi.getId()).isNotZero();
+        assertThat(brandRepository.getAllBrands()).containsExactlyInAnyOrder(bmw, audi);
+    }
+
     /**
      * Негативный тест создания объекта типа Brand
      */
@@ -251,4 +270,45 @@ class BrandRepositoryTest {
         Optional<Brand> remainingBrandOptional = brandRepository.getBrandById(savedBrand.getId());
         assertThat(remainingBrandOptional).isPresent();
     }
-}
\ No newline at end of file
+
+    /**
+     * Позитивный тест кэша второго уровня: повторное чтение Brand по id не идет в базу
+     */
+    @Test
+    public void whenGetBrandByIdTwiceThenSecondReadIsCacheHit() {
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        brandRepository.saveBrand(brand);
+
+        sf.getCache().evictAll();
+        sf.getStatistics().clear();
+
+        brandRepository.getBrandById(brand.getId());
+        brandRepository.getBrandById(brand.getId());
+
+        CacheRegionStatistics statistics = sf.getStatistics().getDomainDataRegionStatistics("brand");
+
+        assertThat(statistics.getMissCount()).isEqualTo(1);
+        assertThat(statistics.getHitCount()).isEqualTo(1);
+        assertThat(sf.getStatistics().getEntityLoadCount()).isEqualTo(1);
+    }
+
+    /**
+     * Позитивный тест кэша второго уровня: обновление Brand видно при чтении из кэша
+     */
+    @Test
+    public void whenUpdateCachedBrandThenCacheReturnsNewName() {
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        brandRepository.saveBrand(brand);
+
+        brandRepository.getBrandById(brand.getId());
+
+        brand.setName("AUDI");
+        brandRepository.updateBrand(brand);
+
+        assertThat(brandRepository.getBrandById(brand.getId()))
+                .map(Brand::getName)
+                .contains("AUDI");
+    }
+}
@@ -16,6 +16,7 @@ import ru.job4j.cars.repository.CrudRepository;
 
 import javax.transaction.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -205,6 +206,49 @@ class CarRepositoryTest {
         assertThat(cars).isEmpty();
     }
 
+    /**
+     * Позитивный тест потокового обхода объектов типа Car
+     */
+    @Test
+    public void whenStreamAllCarsThenConsumeAllCarsInIdOrder() {
+        Brand brand = new Brand();
+        brand.setName("Test Brand");
+
+        try (Session session = sf.openSession()) {
+            session.beginTransaction();
+            session.save(brand);
+            session.getTransaction().commit();
+        }
+
+        Car car1 = new Car();
+        Car car2 = new Car();
+
+        car1.setName("Test Car 1");
+        car2.setName("Test Car 2");
+
+        car1.setBrand(brand);
+        car2.setBrand(brand);
+
+        carRepository.saveCar(car1);
+        carRepository.saveCar(car2);
+
+        List<Car> cars = new ArrayList<>();
+        carRepository.streamAllCars(cars::add);
+
+        assertThat(cars).containsExactly(car1, car2);
+    }
+
+    /**
+     * Негативный тест потокового обхода объектов типа Car
+     */
+    @Test
+    public void whenStreamAllCarsThenConsumeNothing() {
+        List<Car> cars = new ArrayList<>();
+        carRepository.streamAllCars(cars::add);
+
+        assertThat(cars).isEmpty();
+    }
+
     /**
      * Позитивный тест обновления объекта типа Car
      */
@@ -58,6 +58,24 @@ class EngineRepositoryTest {
         assertThat(savedEngine.get().getName()).isEqualTo("V8");
     }
 
+    /**
+     * Позитивный тест пакетного сохранения объектов типа Engine
+     */
+    @Test
+    public void whenSaveAllEnginesThenAllEnginesHaveIds() {
+        Engine petrol = new Engine();
+        Engine diesel = new Engine();
+
+        petrol.setName("Petrol");
+        diesel.setName("Diesel");
+
+        engineRepository.saveAllEngines(List.of(petrol, diesel));
+
+        assertThat(petrol.getId()).isNotZero();
+        assertThat(diesel.getId()).isNotZero();
+        assertThat(engineRepository.getAllEngines()).containsExactlyInAnyOrder(petrol, diesel);
+    }
+
     /**
      * Негативный тест создания объекта типа Engine
      */
@@ -16,6 +16,8 @@ import ru.job4j.cars.repository.owner.OwnerRepository;
 
 import javax.transaction.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -365,6 +367,60 @@ class HistoryOwnerRepositoryTest {
         assertThat(savedHistoryOwners).containsExactlyInAnyOrder(historyOwner1, historyOwner2, historyOwner3);
     }
 
+    /**
+     * Позитивный тест потокового обхода объектов типа HistoryOwner
+     */
+    @Test
+    public void whenStreamAllHistoryOwnersIsSuccess() {
+        Brand brand = new Brand();
+        brand.setName("Test Brand");
+
+        Engine engine = new Engine();
+        engine.setName("Test Engine");
+
+        User user = new User();
+        user.setLogin("John Doe");
+
+        try (Session session = sf.openSession()) {
+            session.beginTransaction();
+            session.save(brand);
+            session.save(engine);
+            session.save(user);
+            session.getTransaction().commit();
+        }
+
+        Car car = new Car();
+        car.setName("Test Car");
+        car.setBrand(brand);
+        car.setEngine(engine);
+        carRepository.saveCar(car);
+
+        Owner owner = new Owner();
+        owner.setName("Test Owner");
+        owner.setUser(user);
+        ownerRepository.saveOwner(owner);
+
+        HistoryOwner historyOwner1 = new HistoryOwner();
+        HistoryOwner historyOwner2 = new HistoryOwner();
+
+        historyOwner1.setCar(car);
+        historyOwner2.setCar(car);
+
+        historyOwner1.setOwner(owner);
+        historyOwner2.setOwner(owner);
+
+        historyOwner1.setStartAt(LocalDateTime.of(2020, 1, 1, 0, 0));
+        historyOwner2.setStartAt(LocalDateTime.of(2021, 1, 1, 0, 0));
+
+        historyOwnerRepository.saveHistoryOwner(historyOwner1);
+        historyOwnerRepository.saveHistoryOwner(historyOwner2);
+
+        List<HistoryOwner> historyOwners = new ArrayList<>();
+        historyOwnerRepository.streamAllHistoryOwner(historyOwners::add);
+
+        assertThat(historyOwners).containsExactly(historyOwner1, historyOwner2);
+    }
+
     /**
      * Негативный тест вывода всех объектов типа HistoryOwner
      */
@@ -468,4 +524,201 @@ class HistoryOwnerRepositoryTest {
 
         assertThat(error.getMessage()).contains("Expected size: 2 but was: 3");
     }
-}
\ No newline at end of file
+
+    private HistoryOwner saveHistoryOwner(Car car, Owner owner, LocalDateTime startAt, LocalDateTime endAt) {
+        HistoryOwner historyOwner = new HistoryOwner();
+        historyOwner.setCar(car);
+        historyOwner.setOwner(owner);
+        historyOwner.setStartAt(startAt);
+        historyOwner.setEndAt(endAt);
+        historyOwnerRepository.saveHistoryOwner(historyOwner);
+        return historyOwner;
+    }
+
+    private Car saveCar(String name) {
+        Brand brand = new Brand();
+        brand.setName(name + " Brand");
+        Engine engine = new Engine();
+        engine.setName(name + " Engine");
+        try (Session session = sf.openSession()) {
+            session.beginTransaction();
+            session.save(brand);
+            session.save(engine);
+            session.getTransaction().commit();
+        }
+        Car car = new Car();
+        car.setName(name);
+        car.setBrand(brand);
+        car.setEngine(engine);
+        carRepository.saveCar(car);
+        return car;
+    }
+
+    private Owner saveOwner(String name) {
+        User user = new User();
+        user.setLogin(name);
+        try (Session session = sf.openSession()) {
+            session.beginTransaction();
+            session.save(user);
+            session.getTransaction().commit();
+        }
+        Owner owner = new Owner();
+        owner.setName(name);
+        owner.setUser(user);
+        ownerRepository.saveOwner(owner);
+        return owner;
+    }
+
+    /**
+     * Позитивный тест поиска владельца автомобиля на дату
+     */
+    @Test
+    public void whenGetHistoryOwnersOfCarAtThenOwnerOnDate() {
+        Car car = saveCar("Test Car");
+        Owner first = saveOwner("First Owner");
+        Owner second = saveOwner("Second Owner");
+        saveHistoryOwner(car, first, LocalDateTime.of(2015, 1, 1, 0, 0), LocalDateTime.of(2020, 1, 1, 0, 0));
+        saveHistoryOwner(car, second, LocalDateTime.of(2020, 1, 1, 0, 0), null);
+
+        List<HistoryOwner> before = historyOwnerRepository.getHistoryOwnersOfCarAt(
+                car.getId(), LocalDateTime.of(2019, 6, 1, 0, 0));
+        List<HistoryOwner> after = historyOwnerRepository.getHistoryOwnersOfCarAt(
+                car.getId(), LocalDateTime.of(2020, 1, 1, 0, 0));
+
+        assertThat(before).extracting(ho -> ho.getOwner().getName()).containsExactly("First Owner");
+        assertThat(after).extracting(ho -> ho.getOwner().getName()).containsExactly("Second Owner");
+        assertThat(historyOwnerRepository.getHistoryOwnersOfCarBetween(car.getId(),
+                LocalDateTime.of(2019, 1, 1, 0, 0), LocalDateTime.of(2021, 1, 1, 0, 0)))
+                .extracting(ho -> ho.getOwner().getName()).containsExactly("First Owner", "Second Owner");
+    }
+
+    /**
+     * Позитивный тест кэша истории владения: новая запись видна после сохранения
+     */
+    @Test
+    public void whenSaveHistoryOwnerThenCachedTimelineIsRefreshed() {
+        Car car = saveCar("Test Car");
+        Owner owner = saveOwner("Test Owner");
+        LocalDateTime at = LocalDateTime.of(2021, 1, 1, 0, 0);
+
+        assertThat(historyOwnerRepository.getHistoryOwnersOfCarAt(car.getId(), at)).isEmpty();
+
+        HistoryOwner historyOwner = saveHistoryOwner(car, owner, LocalDateTime.of(2020, 1, 1, 0, 0), null);
+
+        assertThat(historyOwnerRepository.getHistoryOwnersOfCarAt(car.getId(), at)).containsExactly(historyOwner);
+    }
+
+    /**
+     * Позитивный тест поиска автомобилей владельца за период
+     */
+    @Test
+    public void whenGetHistoryOwnersOfOwnerBetweenThenOverlappingPeriods() {
+        Car first = saveCar("First Car");
+        Car second = saveCar("Second Car");
+        Car third = saveCar("Third Car");
+        Owner owner = saveOwner("Test Owner");
+        saveHistoryOwner(first, owner, LocalDateTime.of(2010, 1, 1, 0, 0), LocalDateTime.of(2015, 1, 1, 0, 0));
+        saveHistoryOwner(second, owner, LocalDateTime.of(2014, 1, 1, 0, 0), null);
+        saveHistoryOwner(third, owner, LocalDateTime.of(2016, 1, 1, 0, 0), LocalDateTime.of(2017, 1, 1, 0, 0));
+
+        List<HistoryOwner> rsl = historyOwnerRepository.getHistoryOwnersOfOwnerBetween(owner.getId(),
+                LocalDateTime.of(2014, 6, 1, 0, 0), LocalDateTime.of(2016, 1, 1, 0, 0));
+
+        assertThat(rsl).extracting(ho -> ho.getCar().getName()).containsExactly("First Car", "Second Car");
+    }
+
+    /**
+     * Негативный тест поиска владельца автомобиля на дату: до первой записи владельца нет
+     */
+    @Test
+    public void whenGetHistoryOwnersOfCarBeforeFirstPeriodThenEmpty() {
+        Car car = saveCar("Test Car");
+        Owner owner = saveOwner("Test Owner");
+        saveHistoryOwner(car, owner, LocalDateTime.of(2015, 1, 1, 0, 0), null);
+
+        assertThat(historyOwnerRepository.getHistoryOwnersOfCarAt(car.getId(), LocalDateTime.of(2014, 1, 1, 0, 0)))
+                .isEmpty();
+    }
+
+    private List<HistoryOwner> saveHistoryOwners(int count, int cars, int owners) {
+        List<Car> carList = new ArrayList<>();
+        for (int i = 0; i < cars; i++) {
+            carList.add(saveCar("Test Car " + i));
+        }
+        List<Owner> ownerList = new ArrayList<>();
+        for (int i = 0; i < owners; i++) {
+            ownerList.add(saveOwner("Test Owner " + i));
+        }
+        List<HistoryOwner> historyOwners = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            HistoryOwner historyOwner = new HistoryOwner();
+            historyOwner.setCar(carList.get(i % cars));
+            historyOwner.setOwner(ownerList.get(i % owners));
+            historyOwner.setStartAt(LocalDateTime.of(2000, 1, 1, 0, 0).plusDays(i));
+            historyOwner.setEndAt(LocalDateTime.of(2000, 1, 2, 0, 0).plusDays(i));
+            historyOwners.add(historyOwner);
+        }
+        historyOwnerRepository.saveAllHistoryOwner(historyOwners);
+        return historyOwners;
+    }
+
+    /**
+     * Позитивный тест ленивой загрузки: 1000 историй владения читаются одним запросом без автомобилей и владельцев
+     */
+    @Test
+    public void whenGetAllHistoryOwnersThenOneStatementAndLazyAssociations() {
+        saveHistoryOwners(1000, 20, 60);
+        sf.getStatistics().setStatisticsEnabled(true);
+        sf.getStatistics().clear();
+
+        List<HistoryOwner> historyOwners = historyOwnerRepository.getAllHistoryOwner();
+
+        long statements = sf.getStatistics().getPrepareStatementCount();
+        sf.getStatistics().setStatisticsEnabled(false);
+        assertThat(historyOwners).hasSize(1000);
+        assertThat(statements).isEqualTo(1);
+        assertThat(historyOwners).noneMatch(ho -> Hibernate.isInitialized(ho.getOwner()));
+    }
+
+    /**
+     * Позитивный тест плана загрузки: 1000 историй владения с автомобилями, марками и владельцами одним запросом
+     */
+    @Test
+    public void whenGetAllHistoryOwnersWithDetailPlanThenOneStatement() {
+        saveHistoryOwners(1000, 20, 60);
+        sf.getStatistics().setStatisticsEnabled(true);
+        sf.getStatistics().clear();
+
+        List<HistoryOwner> historyOwners = historyOwnerRepository.getAllHistoryOwner(HistoryOwnerFetchPlan.DETAIL);
+
+        long statements = sf.getStatistics().getPrepareStatementCount();
+        sf.getStatistics().setStatisticsEnabled(false);
+        assertThat(historyOwners).hasSize(1000);
+        assertThat(statements).isEqualTo(1);
+        assertThat(historyOwners).allMatch(ho -> ho.getCar().getBrand().getName().startsWith("Test Car")
+                && ho.getOwner().getName().startsWith("Test Owner"));
+    }
+
+    /**
+     * Позитивный тест пакетной загрузки: обращение к владельцам 1000 историй догружает их пачками по 50
+     */
+    @Test
+    public void whenTouchLazyOwnersThenLoadedInBatches() {
+        saveHistoryOwners(1000, 20, 60);
+        CrudRepository crudRepository = new CrudRepository(sf);
+        sf.getStatistics().setStatisticsEnabled(true);
+        sf.getStatistics().clear();
+
+        long owners = crudRepository.readOnlyTx(session -> session
+                .createNamedQuery(HistoryOwner.FIND_ALL, HistoryOwner.class)
+                .list().stream()
+                .map(ho -> ho.getOwner().getName())
+                .distinct()
+                .count());
+
+        long statements = sf.getStatistics().getPrepareStatementCount();
+        sf.getStatistics().setStatisticsEnabled(false);
+        assertThat(owners).isEqualTo(60);
+        assertThat(statements).isEqualTo(3);
+    }
+}
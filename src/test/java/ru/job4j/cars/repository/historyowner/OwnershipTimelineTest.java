@@ -0,0 +1,86 @@
+package ru.job4j.cars.repository.historyowner;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.model.HistoryOwner;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OwnershipTimelineTest {
+
+    private static HistoryOwner period(long id, LocalDateTime startAt, LocalDateTime endAt) {
+        HistoryOwner historyOwner = new HistoryOwner();
+        historyOwner.setId(id);
+        historyOwner.setStartAt(startAt);
+        historyOwner.setEndAt(endAt);
+        return historyOwner;
+    }
+
+    private static LocalDateTime year(int year) {
+        return LocalDateTime.of(year, 1, 1, 0, 0);
+    }
+
+    private static List<Long> ids(List<HistoryOwner> historyOwners) {
+        return historyOwners.stream().map(HistoryOwner::getId).toList();
+    }
+
+    /**
+     * Позитивный тест поиска по моменту: начало периода входит в него, конец - нет, пустой конец - по сей день
+     */
+    @Test
+    void whenAtThenPeriodsContainingMoment() {
+        OwnershipTimeline timeline = new OwnershipTimeline(List.of(
+                period(3, year(2020), null),
+                period(1, year(2010), year(2015)),
+                period(2, year(2015), year(2020))));
+
+        assertThat(ids(timeline.at(year(2015)))).containsExactly(2L);
+        assertThat(ids(timeline.at(year(2019)))).containsExactly(2L);
+        assertThat(ids(timeline.at(year(2030)))).containsExactly(3L);
+        assertThat(timeline.at(year(2000))).isEmpty();
+    }
+
+    /**
+     * Позитивный тест поиска за период: длинный ранний период найден за коротким, результат по возрастанию начала
+     */
+    @Test
+    void whenBetweenThenOverlappingPeriodsInStartOrder() {
+        OwnershipTimeline timeline = new OwnershipTimeline(List.of(
+                period(1, year(2000), year(2030)),
+                period(2, year(2010), year(2011)),
+                period(3, year(2012), year(2013)),
+                period(4, null, year(2001))));
+
+        assertThat(ids(timeline.between(year(2012), year(2014)))).containsExactly(1L, 3L);
+        assertThat(ids(timeline.between(year(1990), year(2000)))).containsExactly(4L);
+        assertThat(timeline.between(year(2031), year(2040))).isEmpty();
+    }
+
+    /**
+     * Позитивный тест дерева интервалов: на случайных периодах результат совпадает с перебором
+     */
+    @Test
+    void whenRandomPeriodsThenSameAsScan() {
+        Random random = new Random(7);
+        List<HistoryOwner> periods = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            LocalDateTime start = year(1950).plusDays(random.nextInt(25_000));
+            periods.add(period(id, start, start.plusDays(1 + random.nextInt(3_000))));
+        }
+        OwnershipTimeline timeline = new OwnershipTimeline(periods);
+
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime from = year(1950).plusDays(random.nextInt(28_000));
+            LocalDateTime to = from.plusDays(random.nextInt(500));
+            List<Long> expected = periods.stream()
+                    .filter(p -> p.getStartAt().isBefore(to) && p.getEndAt().isAfter(from))
+                    .map(HistoryOwner::getId)
+                    .toList();
+            assertThat(ids(timeline.between(from, to))).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+}
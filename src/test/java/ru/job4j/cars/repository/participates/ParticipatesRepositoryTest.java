@@ -17,6 +17,7 @@ import ru.job4j.cars.repository.user.UserRepository;
 
 import javax.transaction.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -386,4 +387,43 @@ class ParticipatesRepositoryTest {
         assertThat(participatesList).hasSize(3);
         assertThat(participatesList).containsExactlyInAnyOrder(participates1, participates2, participates3);
     }
-}
\ No newline at end of file
+
+    /**
+     * Позитивный тест пачек подписчиков: id по возрастанию, следующая пачка начинается после курсора
+     */
+    @Test
+    void whenGetSubscriberIdsThenPagesById() {
+        User seller = new User();
+        seller.setLogin("seller");
+        userRepository.create(seller);
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        brandRepository.saveBrand(brand);
+        Car car = new Car();
+        car.setName("BMW");
+        car.setBrand(brand);
+        carRepository.saveCar(car);
+        Post post = new Post();
+        post.setDescription("description");
+        post.setCar(car);
+        post.setUser(seller);
+        postRepository.savePost(post);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setLogin("subscriber" + i);
+            userRepository.create(user);
+            Participates participates = new Participates();
+            participates.setUser(user);
+            participates.setPost(post);
+            participatesRepository.saveParticipates(participates);
+            ids.add(user.getId());
+        }
+
+        List<Integer> first = participatesRepository.getSubscriberIds(post.getId(), 0, 3);
+        List<Integer> second = participatesRepository.getSubscriberIds(post.getId(), first.get(2), 3);
+
+        assertThat(first).isEqualTo(ids.subList(0, 3));
+        assertThat(second).isEqualTo(ids.subList(3, 5));
+    }
+}
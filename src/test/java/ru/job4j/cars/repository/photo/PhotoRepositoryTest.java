@@ -122,6 +122,44 @@ class PhotoRepositoryTest {
         assertEquals(photo.getPath(), savedPhoto.getPath(), "Photo path should match");
     }
 
+    /**
+     * Позитивный тест пакетного сохранения объектов типа Photo
+     */
+    @Test
+    void whenSaveAllPhotosIsSuccess() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        brandRepository.saveBrand(brand);
+
+        Car car = new Car();
+        car.setName("BMW");
+        car.setBrand(brand);
+        carRepository.saveCar(car);
+
+        Post post = new Post();
+        post.setDescription("description");
+        post.setCar(car);
+        post.setUser(user);
+        postRepository.savePost(post);
+
+        Photo photo1 = new Photo();
+        Photo photo2 = new Photo();
+
+        photo1.setPath("path1");
+        photo2.setPath("path2");
+
+        photo1.setPost(post);
+        photo2.setPost(post);
+
+        photoRepository.saveAllPhotos(List.of(photo1, photo2));
+
+        assertThat(photoRepository.getAllPhotos()).containsExactlyInAnyOrder(photo1, photo2);
+    }
+
     /**
      * Негативный тест создания объекта типа Photo
      */
@@ -724,4 +762,90 @@ class PhotoRepositoryTest {
         Optional<Photo> remainingOptionalPhoto = photoRepository.getPhotoById(savedPhoto.getId());
         assertThat(remainingOptionalPhoto).isPresent();
     }
-}
\ No newline at end of file
+
+    private Post savePost() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        brandRepository.saveBrand(brand);
+
+        Car car = new Car();
+        car.setName("BMW");
+        car.setBrand(brand);
+        carRepository.saveCar(car);
+
+        Post post = new Post();
+        post.setDescription("description");
+        post.setCar(car);
+        post.setUser(user);
+        postRepository.savePost(post);
+        return post;
+    }
+
+    private Photo photo(String path, Post post) {
+        Photo photo = new Photo();
+        photo.setPath(path);
+        photo.setPost(post);
+        return photo;
+    }
+
+    private int photoCount(Post post) {
+        return postRepository.getPostById(post.getId()).orElseThrow().getPhotoCount();
+    }
+
+    /**
+     * Позитивный тест счетчика фото: сохранение и удаление фото меняют photo_count объявления
+     */
+    @Test
+    void whenSaveAndDeletePhotosThenPhotoCountMaintained() {
+        Post post = savePost();
+        Photo photo = photo("path", post);
+
+        photoRepository.savePhoto(photo);
+        photoRepository.saveAllPhotos(List.of(photo("path1", post), photo("path2", post)));
+        int saved = photoCount(post);
+        photoRepository.deletePhotoById(photo.getId());
+
+        assertThat(saved).isEqualTo(3);
+        assertThat(photoCount(post)).isEqualTo(2);
+        assertThat(postRepository.getAllPostsWithPhoto()).containsExactly(post);
+    }
+
+    /**
+     * Позитивный тест счетчика фото: фото, перенесенное в другое объявление, учитывается у нового объявления
+     */
+    @Test
+    void whenMovePhotoToAnotherPostThenPhotoCountMoved() {
+        Post from = savePost();
+        Post to = new Post();
+        to.setDescription("description");
+        to.setCar(from.getCar());
+        to.setUser(from.getUser());
+        postRepository.savePost(to);
+        Photo photo = photo("path", from);
+        photoRepository.savePhoto(photo);
+
+        photo.setPost(to);
+        photoRepository.updatePhoto(photo);
+
+        assertThat(photoCount(from)).isZero();
+        assertThat(photoCount(to)).isEqualTo(1);
+        assertThat(postRepository.getAllPostsWithPhoto()).containsExactly(to);
+    }
+
+    /**
+     * Негативный тест счетчика фото: удаление несуществующего фото не меняет photo_count
+     */
+    @Test
+    void whenDeleteUnknownPhotoThenPhotoCountNotChanged() {
+        Post post = savePost();
+        photoRepository.savePhoto(photo("path", post));
+
+        photoRepository.deletePhotoById(-1);
+
+        assertThat(photoCount(post)).isEqualTo(1);
+    }
+}
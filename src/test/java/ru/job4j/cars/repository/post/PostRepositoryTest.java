@@ -1,5 +1,6 @@
 package ru.job4j.cars.repository.post;
 
+import org.hibernate.Hibernate;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
@@ -10,14 +11,17 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import ru.job4j.cars.model.*;
 import ru.job4j.cars.repository.CrudRepository;
+import ru.job4j.cars.repository.KeysetPage;
 import ru.job4j.cars.repository.brand.BrandRepository;
 import ru.job4j.cars.repository.car.CarRepository;
 import ru.job4j.cars.repository.photo.PhotoRepository;
+import ru.job4j.cars.repository.pricehistory.PriceHistoryRepository;
 import ru.job4j.cars.repository.user.UserRepository;
 
 import javax.transaction.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -37,6 +41,7 @@ class PostRepositoryTest {
     private BrandRepository brandRepository;
     private UserRepository userRepository;
     private PhotoRepository photoRepository;
+    private PriceHistoryRepository priceHistoryRepository;
 
     @BeforeEach
     public void setUp() {
@@ -47,6 +52,7 @@ class PostRepositoryTest {
         brandRepository = new BrandRepository(crudRepository);
         userRepository = new UserRepository(crudRepository);
         photoRepository = new PhotoRepository(crudRepository);
+        priceHistoryRepository = new PriceHistoryRepository(crudRepository);
     }
 
     @AfterEach
@@ -54,6 +60,8 @@ class PostRepositoryTest {
         Session session = sf.openSession();
         session.beginTransaction();
         session.createQuery("delete from Photo").executeUpdate();
+        session.createQuery("delete from PriceRollup").executeUpdate();
+        session.createQuery("delete from PriceHistory").executeUpdate();
         session.createQuery("delete from Post").executeUpdate();
         session.createQuery("delete from Car").executeUpdate();
         session.createQuery("delete from Brand").executeUpdate();
@@ -115,6 +123,46 @@ class PostRepositoryTest {
         assertEquals(post.getDescription(), savedPost.getDescription(), "Post description should match");
     }
 
+    /**
+     * Позитивный тест пакетного сохранения объектов типа Post:
+     * вставки уходят пачками, а не отдельным запросом на каждый объект
+     */
+    @Test
+    public void whenSaveAllPostsThenInsertsAreBatched() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        brandRepository.saveBrand(brand);
+
+        Car car = new Car();
+        car.setName("BMW");
+        car.setBrand(brand);
+        carRepository.saveCar(car);
+
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Post post = new Post();
+            post.setDescription("description" + i);
+            post.setCar(car);
+            post.setUser(user);
+            posts.add(post);
+        }
+
+        sf.getStatistics().setStatisticsEnabled(true);
+        sf.getStatistics().clear();
+
+        postRepository.saveAllPosts(posts);
+
+        long statements = sf.getStatistics().getPrepareStatementCount();
+        sf.getStatistics().setStatisticsEnabled(false);
+
+        assertThat(postRepository.getAllPosts()).hasSize(120);
+        assertThat(statements).isLessThan(10);
+    }
+
     /**
      * Негативный тест создания объекта типа Post
      */
@@ -292,6 +340,290 @@ class PostRepositoryTest {
         assertThat(error.getMessage()).contains("Expected size: 3 but was: 2");
     }
 
+    /**
+     * Позитивный тест потокового обхода объектов типа Post
+     */
+    @Test
+    public void whenStreamAllPostsIsSuccess() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        brandRepository.saveBrand(brand);
+
+        Car car = new Car();
+        car.setName("BMW");
+        car.setBrand(brand);
+        carRepository.saveCar(car);
+
+        Post post1 = new Post();
+        Post post2 = new Post();
+
+        post1.setDescription("description1");
+        post2.setDescription("description2");
+
+        post1.setCar(car);
+        post2.setCar(car);
+
+        post1.setUser(user);
+        post2.setUser(user);
+
+        postRepository.savePost(post1);
+        postRepository.savePost(post2);
+
+        List<String> descriptions = new ArrayList<>();
+        postRepository.streamAllPosts(post -> descriptions.add(post.getDescription()));
+
+        assertThat(descriptions).containsExactly("description1", "description2");
+    }
+
+    /**
+     * Негативный тест потокового обхода объектов типа Post
+     */
+    @Test
+    public void whenStreamAllPostsIsEmpty() {
+        List<Post> posts = new ArrayList<>();
+        postRepository.streamAllPosts(posts::add);
+
+        assertThat(posts).isEmpty();
+    }
+
+    /**
+     * Позитивный тест постраничного получения объектов типа Post по курсору
+     */
+    @Test
+    public void whenGetPostsPageIsSuccess() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        brandRepository.saveBrand(brand);
+
+        Car car = new Car();
+        car.setName("BMW");
+        car.setBrand(brand);
+        carRepository.saveCar(car);
+
+        Post post1 = new Post();
+        Post post2 = new Post();
+        Post post3 = new Post();
+
+        post1.setDescription("description1");
+        post2.setDescription("description2");
+        post3.setDescription("description3");
+
+        post1.setCar(car);
+        post2.setCar(car);
+        post3.setCar(car);
+
+        post1.setUser(user);
+        post2.setUser(user);
+        post3.setUser(user);
+
+        postRepository.savePost(post1);
+        postRepository.savePost(post2);
+        postRepository.savePost(post3);
+
+        KeysetPage<Post> firstPage = postRepository.getPostsPage(null, 2);
+
+        assertThat(firstPage.getItems()).containsExactly(post3, post2);
+        assertThat(firstPage.hasNext()).isTrue();
+        assertThat(firstPage.getNextCursor()).isEqualTo(post2.getId());
+
+        KeysetPage<Post> secondPage = postRepository.getPostsPage(firstPage.getNextCursor(), 2);
+
+        assertThat(secondPage.getItems()).containsExactly(post1);
+        assertThat(secondPage.hasNext()).isFalse();
+    }
+
+    /**
+     * Негативный тест постраничного получения объектов типа Post по курсору
+     */
+    @Test
+    public void whenGetPostsPageIsEmpty() {
+        KeysetPage<Post> page = postRepository.getPostsPage(null, 10);
+
+        assertThat(page.getItems()).isEmpty();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    /**
+     * Негативный тест постраничного получения объектов типа Post: размер страницы должен быть положительным
+     */
+    @Test
+    public void whenGetPostsPageWithZeroLimitThenException() {
+        long statements = sf.getStatistics().getPrepareStatementCount();
+
+        assertThatThrownBy(() -> postRepository.getPostsPage(null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> postRepository.searchPosts("BMW", new PostSearchFilter(), null, -1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(sf.getStatistics().getPrepareStatementCount()).isEqualTo(statements);
+    }
+
+    /**
+     * Позитивный тест постраничного получения объектов типа Post: огромный limit ограничивается и не переполняется
+     */
+    @Test
+    public void whenGetPostsPageWithMaxLimitThenCapped() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+        Post post = savePost("Продам", saveCar("BMW"), user);
+
+        KeysetPage<Post> page = postRepository.getPostsPage(null, Integer.MAX_VALUE);
+
+        assertThat(page.getItems()).containsExactly(post);
+        assertThat(page.hasNext()).isFalse();
+        assertThat(KeysetPage.limit(Integer.MAX_VALUE)).isEqualTo(KeysetPage.MAX_LIMIT);
+    }
+
+    /**
+     * Позитивный тест постраничного получения объектов типа Post с определенной маркой авто
+     */
+    @Test
+    public void whenGetPostsWithSpecificCarBrandPageIsSuccess() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+
+        Brand bmw = new Brand();
+        bmw.setName("BMW");
+        brandRepository.saveBrand(bmw);
+
+        Brand audi = new Brand();
+        audi.setName("Audi");
+        brandRepository.saveBrand(audi);
+
+        Car bmwCar = new Car();
+        bmwCar.setName("BMW X5");
+        bmwCar.setBrand(bmw);
+        carRepository.saveCar(bmwCar);
+
+        Car audiCar = new Car();
+        audiCar.setName("Audi A6");
+        audiCar.setBrand(audi);
+        carRepository.saveCar(audiCar);
+
+        Post bmwPost1 = new Post();
+        Post audiPost = new Post();
+        Post bmwPost2 = new Post();
+
+        bmwPost1.setDescription("bmw1");
+        audiPost.setDescription("audi");
+        bmwPost2.setDescription("bmw2");
+
+        bmwPost1.setCar(bmwCar);
+        audiPost.setCar(audiCar);
+        bmwPost2.setCar(bmwCar);
+
+        bmwPost1.setUser(user);
+        audiPost.setUser(user);
+        bmwPost2.setUser(user);
+
+        postRepository.savePost(bmwPost1);
+        postRepository.savePost(audiPost);
+        postRepository.savePost(bmwPost2);
+
+        KeysetPage<Post> firstPage = postRepository.getPostsWithSpecificCarBrandPage("BMW", null, 1);
+
+        assertThat(firstPage.getItems()).containsExactly(bmwPost2);
+        assertThat(firstPage.hasNext()).isTrue();
+
+        KeysetPage<Post> secondPage = postRepository.getPostsWithSpecificCarBrandPage(
+                "BMW", firstPage.getNextCursor(), 1);
+
+        assertThat(secondPage.getItems()).containsExactly(bmwPost1);
+        assertThat(secondPage.hasNext()).isFalse();
+    }
+
+    /**
+     * Позитивный тест плана загрузки карточки: число запросов не зависит от размера страницы
+     */
+    @Test
+    public void whenGetPostsPageWithCardPlanThenStatementCountIsConstant() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        brandRepository.saveBrand(brand);
+
+        Car car = new Car();
+        car.setName("BMW");
+        car.setBrand(brand);
+        carRepository.saveCar(car);
+
+        for (int i = 0; i < 5; i++) {
+            Post post = new Post();
+            post.setDescription("description" + i);
+            post.setCar(car);
+            post.setUser(user);
+            Photo photo = new Photo();
+            photo.setPath("path" + i);
+            photo.setPost(post);
+            post.getPhotos().add(photo);
+            postRepository.savePost(post);
+        }
+
+        sf.getStatistics().setStatisticsEnabled(true);
+        sf.getStatistics().clear();
+
+        KeysetPage<Post> page = postRepository.getPostsPage(null, 50, PostFetchPlan.CARD);
+
+        long statements = sf.getStatistics().getPrepareStatementCount();
+        sf.getStatistics().setStatisticsEnabled(false);
+
+        assertThat(page.getItems()).hasSize(5);
+        assertThat(page.getItems()).allSatisfy(post -> {
+            assertThat(post.getUser().getLogin()).isEqualTo("test");
+            assertThat(post.getCar().getBrand().getName()).isEqualTo("BMW");
+            assertThat(post.getPhotos()).hasSize(1);
+        });
+        assertThat(statements).isEqualTo(2);
+    }
+
+    /**
+     * Позитивный тест плана загрузки страницы объявления: все коллекции инициализированы
+     */
+    @Test
+    public void whenGetPostByIdWithDetailPlanThenAllAssociationsAreLoaded() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        brandRepository.saveBrand(brand);
+
+        Car car = new Car();
+        car.setName("BMW");
+        car.setBrand(brand);
+        carRepository.saveCar(car);
+
+        Post post = new Post();
+        post.setDescription("description");
+        post.setCar(car);
+        post.setUser(user);
+        postRepository.savePost(post);
+
+        Optional<Post> detail = postRepository.getPostById(post.getId(), PostFetchPlan.DETAIL);
+        Optional<Post> plain = postRepository.getPostById(post.getId());
+
+        assertThat(detail).isPresent();
+        assertThat(Hibernate.isInitialized(detail.get().getCar())).isTrue();
+        assertThat(Hibernate.isInitialized(detail.get().getPhotos())).isTrue();
+        assertThat(Hibernate.isInitialized(detail.get().getPriceHistories())).isTrue();
+        assertThat(Hibernate.isInitialized(detail.get().getSubscribers())).isTrue();
+        assertThat(plain).isPresent();
+        assertThat(Hibernate.isInitialized(plain.get().getPriceHistories())).isFalse();
+    }
+
     /**
      * Позитивный тест получения объекта типа Post по id
      */
@@ -1062,4 +1394,231 @@ class PostRepositoryTest {
 
         assertThat(error.getMessage()).contains("Expected size: 2 but was: 1");
     }
-}
\ No newline at end of file
+
+    private Post savePost(String description, Car car, User user) {
+        Post post = new Post();
+        post.setDescription(description);
+        post.setCar(car);
+        post.setUser(user);
+        postRepository.savePost(post);
+        return post;
+    }
+
+    private Car saveCar(String brandName) {
+        Brand brand = new Brand();
+        brand.setName(brandName);
+        brandRepository.saveBrand(brand);
+        Car car = new Car();
+        car.setName(brandName);
+        car.setBrand(brand);
+        carRepository.saveCar(car);
+        return car;
+    }
+
+    /**
+     * Позитивный тест полнотекстового поиска: результаты упорядочены по релевантности, слова выделены
+     */
+    @Test
+    public void whenSearchPostsThenRankedAndHighlighted() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+        Car car = saveCar("BMW");
+        Post once = savePost("Продам BMW X5 в отличном состоянии, один владелец, полный комплект ключей", car, user);
+        Post twice = savePost("BMW 320i, обслуживание у дилера BMW", car, user);
+        savePost("Продам Audi A4", car, user);
+
+        PostSearchPage page = postRepository.searchPosts("bmw", new PostSearchFilter(), null, 10);
+
+        assertThat(page.getItems()).extracting(PostHit::getPost).containsExactly(twice, once);
+        assertThat(page.getItems().get(0).getRank()).isGreaterThan(page.getItems().get(1).getRank());
+        assertThat(page.getItems().get(0).getHeadline()).isEqualTo("<b>BMW</b> 320i, обслуживание у дилера <b>BMW</b>");
+        assertThat(page.hasNext()).isFalse();
+    }
+
+    /**
+     * Позитивный тест полнотекстового поиска: фильтры по марке и фото, страницы по курсору
+     */
+    @Test
+    public void whenSearchPostsWithFiltersThenOnlyMatchingPostsPaged() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+        Car bmw = saveCar("BMW");
+        Car audi = saveCar("AUDI");
+        Post first = savePost("Продам машину", bmw, user);
+        Post second = savePost("Продам машину", bmw, user);
+        savePost("Продам машину", audi, user);
+        Photo photo = new Photo();
+        photo.setPath("photo.jpg");
+        photo.setPost(first);
+        photoRepository.savePhoto(photo);
+        PostSearchFilter byBrand = new PostSearchFilter();
+        byBrand.setBrandName("BMW");
+        PostSearchFilter withPhoto = new PostSearchFilter();
+        withPhoto.setWithPhoto(true);
+
+        PostSearchPage firstPage = postRepository.searchPosts("продам машину", byBrand, null, 1);
+        PostSearchPage secondPage = postRepository.searchPosts("продам машину", byBrand, firstPage.getNextCursor(), 1);
+        PostSearchPage photos = postRepository.searchPosts("машину", withPhoto, null, 10);
+
+        assertThat(firstPage.getItems()).extracting(PostHit::getPost).containsExactly(second);
+        assertThat(secondPage.getItems()).extracting(PostHit::getPost).containsExactly(first);
+        assertThat(secondPage.hasNext()).isFalse();
+        assertThat(photos.getItems()).extracting(PostHit::getPost).containsExactly(first);
+    }
+
+    /**
+     * Позитивный тест полнотекстового поиска: страница начинается после ключа (релевантность, id) курсора
+     */
+    @Test
+    public void whenSearchPostsWithCursorThenSeekAfterRankAndId() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+        Car car = saveCar("BMW");
+        Post first = savePost("Продам машину", car, user);
+        Post second = savePost("Продам машину", car, user);
+        Post third = savePost("Продам машину", car, user);
+        double rank = postRepository.searchPosts("машину", new PostSearchFilter(), null, 10).getItems().get(0).getRank();
+
+        PostSearchPage page = postRepository.searchPosts("машину", new PostSearchFilter(),
+                new PostSearchPage.Cursor(rank, second.getId()), 10);
+        PostSearchPage fromTop = postRepository.searchPosts("машину", new PostSearchFilter(),
+                new PostSearchPage.Cursor(rank, third.getId() + 1), 2);
+
+        assertThat(page.getItems()).extracting(PostHit::getPost).containsExactly(first);
+        assertThat(page.hasNext()).isFalse();
+        assertThat(fromTop.getItems()).extracting(PostHit::getPost).containsExactly(third, second);
+        assertThat(fromTop.getNextCursor().getId()).isEqualTo(second.getId());
+        assertThat(fromTop.getNextCursor().getRank()).isEqualTo(rank);
+    }
+
+    /**
+     * Негативный тест полнотекстового поиска: измененное и удаленное объявление не находится по старому тексту
+     */
+    @Test
+    public void whenSearchPostsAfterUpdateAndDeleteThenOldTextNotFound() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+        Car car = saveCar("BMW");
+        Post updated = savePost("Продам седан", car, user);
+        Post deleted = savePost("Продам седан срочно", car, user);
+        assertThat(postRepository.searchPosts("седан", new PostSearchFilter(), null, 10).getItems()).hasSize(2);
+
+        updated.setDescription("Продам универсал");
+        postRepository.updatePost(updated);
+        postRepository.deletePostById(deleted.getId());
+
+        assertThat(postRepository.searchPosts("седан", new PostSearchFilter(), null, 10).getItems()).isEmpty();
+        assertThat(postRepository.searchPosts("универсал", new PostSearchFilter(), null, 10).getItems())
+                .extracting(PostHit::getPost).containsExactly(updated);
+    }
+
+    /**
+     * Позитивный тест счетчика фото: фото, сохраненные каскадом вместе с объявлением, учитываются в photo_count
+     */
+    @Test
+    public void whenSaveAndUpdatePostWithPhotosThenPhotoCountMaintained() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+        Post post = new Post();
+        post.setDescription("Продам");
+        post.setCar(saveCar("BMW"));
+        post.setUser(user);
+        for (String path : List.of("photo1.jpg", "photo2.jpg")) {
+            Photo photo = new Photo();
+            photo.setPath(path);
+            photo.setPost(post);
+            post.getPhotos().add(photo);
+        }
+        postRepository.savePost(post);
+        int saved = postRepository.getPostById(post.getId()).orElseThrow().getPhotoCount();
+
+        Post detached = postRepository.getPostById(post.getId(), PostFetchPlan.DETAIL).orElseThrow();
+        detached.getPhotos().remove(0);
+        postRepository.updatePost(detached);
+
+        assertThat(saved).isEqualTo(2);
+        assertThat(postRepository.getPostById(post.getId()).orElseThrow().getPhotoCount()).isEqualTo(1);
+        assertThat(postRepository.getAllPostsWithPhoto()).containsExactly(post);
+    }
+
+    /**
+     * Позитивный тест фильтра по id марки: найдены только объявления этой марки, имя марки берется из кэша
+     */
+    @Test
+    public void whenGetPostsByBrandIdThenOnlyThatBrand() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+        Car bmw = saveCar("BMW");
+        Post first = savePost("Продам", bmw, user);
+        Post second = savePost("Продам", bmw, user);
+        savePost("Продам", saveCar("AUDI"), user);
+
+        List<Post> byId = postRepository.getAllPostsWithCarBrandId(bmw.getBrand().getId());
+        postRepository.getAllPostsWithSpecificCarBrand("BMW");
+        long hits = sf.getStatistics().getNaturalIdCacheHitCount();
+        List<Post> byName = postRepository.getAllPostsWithSpecificCarBrand("BMW");
+        KeysetPage<Post> page = postRepository.getPostsWithCarBrandIdPage(bmw.getBrand().getId(), second.getId(), 10,
+                PostFetchPlan.CARD);
+
+        assertThat(byId).containsExactly(second, first);
+        assertThat(byName).containsExactly(second, first);
+        assertThat(sf.getStatistics().getNaturalIdCacheHitCount()).isGreaterThan(hits);
+        assertThat(page.getItems()).containsExactly(first);
+    }
+
+    /**
+     * Негативный тест фильтра по марке: после переименования марки старое имя ничего не находит
+     */
+    @Test
+    public void whenBrandRenamedThenOldNameNotFound() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+        Car car = saveCar("BMW");
+        Post post = savePost("Продам", car, user);
+        assertThat(postRepository.getAllPostsWithSpecificCarBrand("BMW")).containsExactly(post);
+
+        car.getBrand().setName("BMW AG");
+        brandRepository.updateBrand(car.getBrand());
+
+        assertThat(postRepository.getAllPostsWithSpecificCarBrand("BMW")).isEmpty();
+        assertThat(postRepository.getPostsWithSpecificCarBrandPage("BMW", null, 10).getItems()).isEmpty();
+        assertThat(postRepository.getAllPostsWithSpecificCarBrand("BMW AG")).containsExactly(post);
+    }
+
+    /**
+     * Позитивный тест последней цены: берется самое позднее изменение цены, а не запись с наибольшим id
+     */
+    @Test
+    public void whenPriceWithLowerIdIsLaterThenItIsLastPrice() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+        Post post = savePost("Продам", saveCar("BMW"), user);
+        LocalDateTime now = LocalDateTime.now();
+        PriceHistory later = new PriceHistory();
+        later.setBefore(700_000L);
+        later.setAfter(600_000L);
+        later.setCreated(now);
+        later.setPost(post);
+        PriceHistory earlier = new PriceHistory();
+        earlier.setBefore(800_000L);
+        earlier.setAfter(700_000L);
+        earlier.setCreated(now.minusDays(1));
+        earlier.setPost(post);
+        priceHistoryRepository.savePriceHistory(later);
+        priceHistoryRepository.savePriceHistory(earlier);
+
+        assertThat(earlier.getId()).isGreaterThan(later.getId());
+        assertThat(postRepository.getPostSummariesByIds(List.of(post.getId())))
+                .extracting(PostSummary::getPrice).containsExactly(600_000L);
+        assertThat(postRepository.getPostFactsByIds(List.of(post.getId())))
+                .extracting(PostFacts::getPrice).containsExactly(600_000L);
+    }
+}
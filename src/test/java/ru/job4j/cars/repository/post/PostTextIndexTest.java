@@ -0,0 +1,54 @@
+package ru.job4j.cars.repository.post;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostTextIndexTest {
+
+    private static List<Long> ids(List<PostTextIndex.Hit> hits) {
+        return hits.stream().map(PostTextIndex.Hit::getId).toList();
+    }
+
+    /**
+     * Позитивный тест текстового индекса: найдены описания со всеми словами, чаще встречающиеся выше
+     */
+    @Test
+    void whenSearchThenAllTermsMatchedAndRanked() {
+        PostTextIndex index = new PostTextIndex();
+        index.put(1, "Продам BMW, торг");
+        index.put(2, "BMW после BMW клуба, продам");
+        index.put(3, "Продам Audi");
+
+        assertThat(ids(index.search("продам bmw"))).isEqualTo(List.of(2L, 1L));
+        assertThat(ids(index.search("ПРОДАМ"))).containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
+    /**
+     * Негативный тест текстового индекса: замененное и удаленное описание не находится
+     */
+    @Test
+    void whenReplaceAndRemoveThenOldTextNotFound() {
+        PostTextIndex index = new PostTextIndex();
+        index.put(1, "Продам BMW");
+        index.put(2, "Продам BMW срочно");
+
+        index.put(1, "Продам Audi");
+        index.remove(2);
+
+        assertThat(index.search("bmw")).isEmpty();
+        assertThat(index.search("")).isEmpty();
+        assertThat(ids(index.search("audi"))).isEqualTo(List.of(1L));
+    }
+
+    /**
+     * Позитивный тест подсветки: слова запроса выделены без учета регистра
+     */
+    @Test
+    void whenHighlightThenTermsWrapped() {
+        assertThat(PostTextIndex.highlight("Продам bmw X5", "BMW"))
+                .isEqualTo("Продам <b>bmw</b> X5");
+    }
+}
@@ -17,8 +17,16 @@ import ru.job4j.cars.repository.user.UserRepository;
 
 import javax.transaction.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -52,6 +60,7 @@ class PriceHistoryRepositoryTest {
     void cleanUp() {
         Session session = sf.openSession();
         session.beginTransaction();
+        session.createQuery("delete from PriceRollup").executeUpdate();
         session.createQuery("delete from PriceHistory").executeUpdate();
         session.createQuery("delete from Post").executeUpdate();
         session.createQuery("delete from Car").executeUpdate();
@@ -125,6 +134,47 @@ class PriceHistoryRepositoryTest {
         assertEquals(priceHistory.getId(), savedPriceHistory.getId(), "PriceHistory id should match");
     }
 
+    /**
+     * Позитивный тест пакетного сохранения объектов типа PriceHistory
+     */
+    @Test
+    public void whenSaveAllPriceHistoryIsSuccess() {
+        User user = new User();
+        user.setLogin("test");
+        userRepository.create(user);
+
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        brandRepository.saveBrand(brand);
+
+        Car car = new Car();
+        car.setName("BMW");
+        car.setBrand(brand);
+        carRepository.saveCar(car);
+
+        Post post = new Post();
+        post.setDescription("description");
+        post.setCar(car);
+        post.setUser(user);
+        postRepository.savePost(post);
+
+        PriceHistory priceHistory1 = new PriceHistory();
+        PriceHistory priceHistory2 = new PriceHistory();
+
+        priceHistory1.setBefore(1000L);
+        priceHistory1.setAfter(900L);
+        priceHistory2.setBefore(900L);
+        priceHistory2.setAfter(800L);
+
+        priceHistory1.setPost(post);
+        priceHistory2.setPost(post);
+
+        priceHistoryRepository.saveAllPriceHistory(List.of(priceHistory1, priceHistory2));
+
+        assertThat(priceHistoryRepository.getAllPriceHistory())
+                .containsExactlyInAnyOrder(priceHistory1, priceHistory2);
+    }
+
     /**
      * Негативный тест создания объекта типа PriceHistory
      */
@@ -461,4 +511,143 @@ class PriceHistoryRepositoryTest {
 
         assertThat(foundOptionalPriceHistory).isEmpty();
     }
-}
\ No newline at end of file
+
+    private Post savePost(Brand brand) {
+        User user = new User();
+        user.setLogin("rollup");
+        userRepository.create(user);
+        Car car = new Car();
+        car.setName(brand.getName());
+        car.setBrand(brand);
+        carRepository.saveCar(car);
+        Post post = new Post();
+        post.setDescription("description");
+        post.setCar(car);
+        post.setUser(user);
+        postRepository.savePost(post);
+        return post;
+    }
+
+    private Brand saveBrand(String name) {
+        Brand brand = new Brand();
+        brand.setName(name);
+        brandRepository.saveBrand(brand);
+        return brand;
+    }
+
+    private static PriceHistory price(Post post, long after, LocalDateTime created) {
+        PriceHistory priceHistory = new PriceHistory();
+        priceHistory.setBefore(after + 1);
+        priceHistory.setAfter(after);
+        priceHistory.setCreated(created);
+        priceHistory.setPost(post);
+        return priceHistory;
+    }
+
+    /**
+     * Позитивный тест агрегатов объявления: минимум, максимум и среднее по дням, неделя объединяет дни
+     */
+    @Test
+    public void whenSavePriceHistoryThenPostRollupsByDayAndWeek() {
+        Post post = savePost(saveBrand("BMW"));
+        priceHistoryRepository.savePriceHistory(price(post, 300, LocalDateTime.of(2024, 1, 1, 10, 0)));
+        priceHistoryRepository.savePriceHistory(price(post, 100, LocalDateTime.of(2024, 1, 1, 18, 0)));
+        priceHistoryRepository.savePriceHistory(price(post, 500, LocalDateTime.of(2024, 1, 3, 12, 0)));
+
+        List<PriceRollup> days = priceHistoryRepository.getPostPriceRollups(post.getId(), PriceResolution.DAY,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 1));
+        List<PriceRollup> weeks = priceHistoryRepository.getPostPriceRollups(post.getId(), PriceResolution.WEEK,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 1));
+
+        assertThat(days).extracting(PriceRollup::getStart)
+                .containsExactly(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 3));
+        assertThat(days.get(0).getMinPrice()).isEqualTo(100);
+        assertThat(days.get(0).getMaxPrice()).isEqualTo(300);
+        assertThat(days.get(0).getAverage()).isEqualTo(200);
+        assertThat(weeks).hasSize(1);
+        assertThat(weeks.get(0).getCount()).isEqualTo(3);
+        assertThat(weeks.get(0).getMaxPrice()).isEqualTo(500);
+        assertThat(weeks.get(0).getAverage()).isEqualTo(300);
+    }
+
+    /**
+     * Позитивный тест кривой цены марки: пачка сохранений сводится в агрегаты марки по всем ее объявлениям
+     */
+    @Test
+    public void whenSaveAllPriceHistoryThenBrandRollups() {
+        Brand bmw = saveBrand("BMW");
+        Brand audi = saveBrand("AUDI");
+        Post first = savePost(bmw);
+        Post second = savePost(bmw);
+        Post other = savePost(audi);
+        LocalDateTime monday = LocalDateTime.of(2024, 1, 8, 12, 0);
+        priceHistoryRepository.saveAllPriceHistory(List.of(
+                price(first, 1000, monday),
+                price(second, 2000, monday),
+                price(other, 9000, monday),
+                price(second, 4000, monday.plusDays(6))));
+
+        List<PriceRollup> days = priceHistoryRepository.getBrandPriceRollups(bmw.getId(), PriceResolution.DAY,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 1));
+        List<PriceRollup> weeks = priceHistoryRepository.getBrandPriceRollups(bmw.getId(), PriceResolution.WEEK,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 1));
+
+        assertThat(days).extracting(PriceRollup::getCount).containsExactly(2, 1);
+        assertThat(days.get(0).getAverage()).isEqualTo(1500);
+        assertThat(weeks).extracting(PriceRollup::getStart).containsExactly(LocalDate.of(2024, 1, 8));
+        assertThat(weeks.get(0).getMinPrice()).isEqualTo(1000);
+        assertThat(weeks.get(0).getMaxPrice()).isEqualTo(4000);
+        assertThat(weeks.get(0).getCount()).isEqualTo(3);
+    }
+
+    /**
+     * Негативный тест агрегатов: вне запрошенного периода агрегатов нет
+     */
+    @Test
+    public void whenGetRollupsOutsidePeriodThenEmpty() {
+        Post post = savePost(saveBrand("BMW"));
+        priceHistoryRepository.savePriceHistory(price(post, 100, LocalDateTime.of(2024, 1, 1, 10, 0)));
+
+        assertThat(priceHistoryRepository.getPostPriceRollups(post.getId(), PriceResolution.DAY,
+                LocalDate.of(2024, 1, 2), LocalDate.of(2024, 2, 1))).isEmpty();
+    }
+
+    /**
+     * Позитивный тест параллельных сохранений: первая цена дня из разных потоков не теряет ни историю, ни агрегат
+     */
+    @Test
+    public void whenSavePricesConcurrentlyThenEveryPriceRolledUp() throws Exception {
+        Post post = savePost(saveBrand("BMW"));
+        LocalDateTime day = LocalDateTime.of(2024, 1, 1, 10, 0);
+        int threads = 4;
+        SessionFactory pooledSf = new Configuration().configure("hibernate.cfg.xml")
+                .setProperty("hibernate.connection.pool_size", String.valueOf(threads))
+                .setProperty("hibernate.hbm2ddl.auto", "none")
+                .buildSessionFactory();
+        PriceHistoryRepository concurrentRepository = new PriceHistoryRepository(new CrudRepository(pooledSf));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> saves = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            long after = 100L * (i + 1);
+            saves.add(pool.submit(() -> {
+                start.await();
+                concurrentRepository.savePriceHistory(price(post, after, day));
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> save : saves) {
+            save.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        List<PriceRollup> days = priceHistoryRepository.getPostPriceRollups(post.getId(), PriceResolution.DAY,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2));
+        assertThat(priceHistoryRepository.getAllPriceHistory()).hasSize(threads);
+        assertThat(days).hasSize(1);
+        assertThat(days.get(0).getCount()).isEqualTo(threads);
+        assertThat(days.get(0).getMinPrice()).isEqualTo(100);
+        assertThat(days.get(0).getMaxPrice()).isEqualTo(400);
+    }
+}
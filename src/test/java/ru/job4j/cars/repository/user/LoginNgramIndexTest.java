@@ -0,0 +1,54 @@
+package ru.job4j.cars.repository.user;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginNgramIndexTest {
+
+    /**
+     * Позитивный тест индекса триграмм: найдены логины, содержащие подстроку
+     */
+    @Test
+    void whenSearchThenFindContainingLogins() {
+        LoginNgramIndex index = new LoginNgramIndex();
+        index.put(1, "john_doe");
+        index.put(2, "jane_doe");
+        index.put(3, "alice_smith");
+
+        assertThat(index.search("_do")).isEqualTo(List.of(1, 2));
+        assertThat(index.search("smith")).isEqualTo(List.of(3));
+        assertThat(index.search("a")).isEqualTo(List.of(2, 3));
+    }
+
+    /**
+     * Негативный тест индекса триграмм: триграммы есть, но подстроки нет
+     */
+    @Test
+    void whenAllGramsPresentButNoSubstringThenNotFound() {
+        LoginNgramIndex index = new LoginNgramIndex();
+        index.put(1, "abcxbcd");
+
+        assertThat(index.search("abcd")).isEmpty();
+        assertThat(index.search("zzz")).isEmpty();
+    }
+
+    /**
+     * Позитивный тест индекса триграмм: устаревшие логины не находятся
+     */
+    @Test
+    void whenReplaceAndRemoveThenOldLoginsNotFound() {
+        LoginNgramIndex index = new LoginNgramIndex();
+        index.put(1, "john_doe");
+        index.put(2, "jane_doe");
+
+        index.put(1, "john_smith");
+        index.remove(2);
+
+        assertThat(index.search("doe")).isEmpty();
+        assertThat(index.search("smith")).isEqualTo(List.of(1));
+        assertThat(index.size()).isEqualTo(1);
+    }
+}
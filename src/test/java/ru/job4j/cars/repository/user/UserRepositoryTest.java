@@ -68,6 +68,23 @@ class UserRepositoryTest {
         assertEquals(user.getLogin(), savedUser.getLogin(), "Login should be the same.");
     }
 
+    /**
+     * Позитивный тест пакетного сохранения объектов типа User
+     */
+    @Test
+    public void whenCreateAllUsersThenAllUsersHaveIds() {
+        User ivanov = new User();
+        User petrov = new User();
+
+        ivanov.setLogin("Ivanov");
+        petrov.setLogin("Petrov");
+
+        userRepository.createAll(List.of(ivanov, petrov));
+
+        assertThat(userRepository.findByLogin("Ivanov").map(User::getId)).contains(ivanov.getId());
+        assertThat(userRepository.findByLogin("Petrov").map(User::getId)).contains(petrov.getId());
+    }
+
     /**
      * Позитивный тест получения объекта типа User по id
      */
@@ -295,4 +312,62 @@ class UserRepositoryTest {
 
         assertTrue(result.isEmpty(), "Optional должен быть пустым, так как пользователь с таким login не существует");
     }
-}
\ No newline at end of file
+
+    /**
+     * Позитивный тест поиска по части логина: символ _ в ключе ищется как есть, а не как шаблон
+     */
+    @Test
+    void whenGetUsersByLikeLoginWithUnderscoreThenUnderscoreIsLiteral() {
+        User user1 = new User();
+        user1.setLogin("john_doe");
+        User user2 = new User();
+        user2.setLogin("johnXdoe");
+        userRepository.create(user1);
+        userRepository.create(user2);
+
+        List<User> users = userRepository.findByLikeLogin("n_d");
+
+        assertEquals(List.of("john_doe"), users.stream().map(User::getLogin).toList());
+    }
+
+    /**
+     * Позитивный тест поиска по части логина: индекс учитывает изменения и удаления после первого поиска
+     */
+    @Test
+    void whenUpdateAndDeleteUsersAfterSearchThenSearchSeesChanges() {
+        User user1 = new User();
+        user1.setLogin("john_doe");
+        User user2 = new User();
+        user2.setLogin("jane_doe");
+        userRepository.create(user1);
+        userRepository.create(user2);
+        assertEquals(2, userRepository.findByLikeLogin("doe").size());
+
+        user1.setLogin("john_smith");
+        userRepository.update(user1);
+        userRepository.delete(user2.getId());
+        User user3 = new User();
+        user3.setLogin("alice_doe");
+        userRepository.create(user3);
+
+        assertEquals(List.of("alice_doe"), userRepository.findByLikeLogin("doe").stream().map(User::getLogin).toList());
+        assertEquals(List.of("john_smith"), userRepository.findByLikeLogin("smi").stream().map(User::getLogin).toList());
+    }
+
+    /**
+     * Позитивный тест поиска по части логина: ключ короче триграммы
+     */
+    @Test
+    void whenGetUsersByShortLikeLoginThenFound() {
+        User user1 = new User();
+        user1.setLogin("john_doe");
+        User user2 = new User();
+        user2.setLogin("alice");
+        userRepository.create(user1);
+        userRepository.create(user2);
+
+        List<User> users = userRepository.findByLikeLogin("oh");
+
+        assertEquals(List.of("john_doe"), users.stream().map(User::getLogin).toList());
+    }
+}
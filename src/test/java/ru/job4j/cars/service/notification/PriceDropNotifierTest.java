@@ -0,0 +1,162 @@
+package ru.job4j.cars.service.notification;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.job4j.cars.model.*;
+import ru.job4j.cars.repository.CrudRepository;
+import ru.job4j.cars.repository.brand.BrandRepository;
+import ru.job4j.cars.repository.car.CarRepository;
+import ru.job4j.cars.repository.notification.NotificationRepository;
+import ru.job4j.cars.repository.participates.ParticipatesRepository;
+import ru.job4j.cars.repository.post.PostRepository;
+import ru.job4j.cars.repository.pricehistory.PriceHistoryRepository;
+import ru.job4j.cars.repository.user.UserRepository;
+
+import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class PriceDropNotifierTest {
+
+    private final SessionFactory sf
+            = new Configuration().configure("hibernate.cfg.xml").buildSessionFactory();
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private CrudRepository crudRepository;
+    private PriceHistoryRepository priceHistoryRepository;
+    private NotificationRepository notificationRepository;
+    private PriceDropNotifier notifier;
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        crudRepository = new CrudRepository(sf);
+        priceHistoryRepository = new PriceHistoryRepository(crudRepository);
+        notificationRepository = new NotificationRepository(crudRepository);
+        notifier = new PriceDropNotifier(priceHistoryRepository, new ParticipatesRepository(crudRepository),
+                notificationRepository, registry, 10, 2, 50, 100);
+        User user = new User();
+        user.setLogin("seller");
+        new UserRepository(crudRepository).create(user);
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        new BrandRepository(crudRepository).saveBrand(brand);
+        Car car = new Car();
+        car.setName("X5");
+        car.setBrand(brand);
+        new CarRepository(crudRepository).saveCar(car);
+        post = new Post();
+        post.setDescription("description");
+        post.setCar(car);
+        post.setUser(user);
+        new PostRepository(crudRepository).savePost(post);
+    }
+
+    @AfterEach
+    void cleanUp() throws InterruptedException {
+        notifier.shutdown();
+        Session session = sf.openSession();
+        session.beginTransaction();
+        session.createQuery("delete from Notification").executeUpdate();
+        session.createQuery("delete from Participates").executeUpdate();
+        session.createQuery("delete from PriceRollup").executeUpdate();
+        session.createQuery("delete from PriceHistory").executeUpdate();
+        session.createQuery("delete from Post").executeUpdate();
+        session.createQuery("delete from Car").executeUpdate();
+        session.createQuery("delete from Brand").executeUpdate();
+        session.createQuery("delete from User").executeUpdate();
+        session.getTransaction().commit();
+    }
+
+    private List<User> subscribe(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setLogin("subscriber" + i);
+            users.add(user);
+        }
+        new UserRepository(crudRepository).createAll(users);
+        List<Participates> participates = new ArrayList<>();
+        for (User user : users) {
+            Participates participate = new Participates();
+            participate.setUser(user);
+            participate.setPost(post);
+            participates.add(participate);
+        }
+        new ParticipatesRepository(crudRepository).saveAllParticipates(participates);
+        return users;
+    }
+
+    private void savePrice(long before, long after) {
+        PriceHistory priceHistory = new PriceHistory();
+        priceHistory.setBefore(before);
+        priceHistory.setAfter(after);
+        priceHistory.setPost(post);
+        priceHistoryRepository.savePriceHistory(priceHistory);
+    }
+
+    private long notifications() {
+        return crudRepository.query("select count(n) from Notification n", Long.class).get(0);
+    }
+
+    /**
+     * Позитивный тест рассылки: снижение цены доходит до всех подписчиков, подписчики читаются пачками
+     */
+    @Test
+    void whenPriceDropsThenAllSubscribersNotified() throws InterruptedException {
+        List<User> users = subscribe(120);
+
+        savePrice(2000, 1500);
+        notifier.shutdown();
+
+        assertThat(notifications()).isEqualTo(120);
+        assertThat(notificationRepository.getNotificationsByUserId(users.get(119).getId()))
+                .extracting(Notification::getPostId, Notification::getBefore, Notification::getAfter)
+                .containsExactly(tuple(post.getId(), 2000L, 1500L));
+        assertThat(registry.counter("cars.notifications.sent").count()).isEqualTo(120);
+        assertThat(registry.counter("cars.notifications.drops", "result", "delivered").count()).isEqualTo(1);
+    }
+
+    /**
+     * Негативный тест рассылки: рост цены не рассылается
+     */
+    @Test
+    void whenPriceRisesThenNoNotifications() throws InterruptedException {
+        subscribe(3);
+
+        savePrice(1500, 2000);
+        notifier.shutdown();
+
+        assertThat(notifications()).isZero();
+    }
+
+    /**
+     * Негативный тест очереди: рассылка, не принятая очередью, отбрасывается без блокировки записи и учитывается в метриках
+     */
+    @Test
+    void whenQueueDoesNotAcceptThenDropIsRejected() throws InterruptedException {
+        subscribe(3);
+        notifier.shutdown();
+
+        savePrice(2000, 1500);
+
+        assertThat(notifications()).isZero();
+        assertThat(registry.counter("cars.notifications.drops", "result", "rejected").count()).isEqualTo(1);
+        assertThat(registry.find("cars.notifications.pending").gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,100 @@
+package ru.job4j.cars.service.participates;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParticipationBitmapTest {
+
+    private static BitSet bits(ParticipationBitmap bitmap) {
+        BitSet rsl = new BitSet();
+        for (int id : bitmap.toArray()) {
+            rsl.set(id);
+        }
+        return rsl;
+    }
+
+    /**
+     * Позитивный тест множества: повторное добавление не меняет его, контейнер переходит из массива в битовую карту
+     */
+    @Test
+    void whenAddThenContainsAndCardinality() {
+        ParticipationBitmap bitmap = new ParticipationBitmap();
+        for (int id = 0; id < 10_000; id += 2) {
+            bitmap.add(id);
+        }
+
+        assertThat(bitmap.add(4)).isFalse();
+        assertThat(bitmap.add(70_000)).isTrue();
+        assertThat(bitmap.cardinality()).isEqualTo(5001);
+        assertThat(bitmap.contains(9998)).isTrue();
+        assertThat(bitmap.contains(9999)).isFalse();
+        assertThat(bitmap.contains(70_000)).isTrue();
+        assertThat(bitmap.toArray()).startsWith(0, 2, 4).endsWith(9998, 70_000);
+    }
+
+    /**
+     * Позитивный тест объединения и пересечения: на случайных множествах разной плотности совпадают с BitSet
+     */
+    @Test
+    void whenOrAndThenSameAsBitSet() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            ParticipationBitmap left = new ParticipationBitmap();
+            ParticipationBitmap right = new ParticipationBitmap();
+            BitSet leftBits = new BitSet();
+            BitSet rightBits = new BitSet();
+            int range = 1 << (12 + random.nextInt(8));
+            for (int i = random.nextInt(20_000); i > 0; i--) {
+                int id = random.nextInt(range);
+                left.add(id);
+                leftBits.set(id);
+            }
+            for (int i = random.nextInt(20_000); i > 0; i--) {
+                int id = random.nextInt(range);
+                right.add(id);
+                rightBits.set(id);
+            }
+            BitSet or = (BitSet) leftBits.clone();
+            or.or(rightBits);
+            BitSet and = (BitSet) leftBits.clone();
+            and.and(rightBits);
+
+            assertThat(bits(left.or(right))).isEqualTo(or);
+            assertThat(left.or(right).cardinality()).isEqualTo(or.cardinality());
+            ParticipationBitmap union = left.or(new ParticipationBitmap());
+            union.orInPlace(right);
+            assertThat(bits(union)).isEqualTo(or);
+            assertThat(union.cardinality()).isEqualTo(or.cardinality());
+            assertThat(bits(left.and(right))).isEqualTo(and);
+            assertThat(left.and(right).cardinality()).isEqualTo(and.cardinality());
+        }
+    }
+
+    /**
+     * Негативный тест операций: результат не связан с исходными множествами
+     */
+    @Test
+    void whenChangeResultThenSourcesUnchanged() {
+        ParticipationBitmap left = ParticipationBitmap.of(1, 2, 3);
+        ParticipationBitmap right = ParticipationBitmap.of(3, 4);
+
+        ParticipationBitmap union = left.or(right);
+        union.add(5);
+        ParticipationBitmap intersection = left.and(right);
+        intersection.add(6);
+        ParticipationBitmap accumulated = new ParticipationBitmap();
+        accumulated.orInPlace(left);
+        accumulated.add(7);
+
+        assertThat(left.toArray()).containsExactly(1, 2, 3);
+        assertThat(right.toArray()).containsExactly(3, 4);
+        assertThat(union.toArray()).containsExactly(1, 2, 3, 4, 5);
+        assertThat(intersection.toArray()).containsExactly(3, 6);
+        assertThat(accumulated.toArray()).containsExactly(1, 2, 3, 7);
+        assertThat(ParticipationBitmap.of(1).and(ParticipationBitmap.of(2)).isEmpty()).isTrue();
+    }
+}
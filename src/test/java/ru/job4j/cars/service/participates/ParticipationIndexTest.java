@@ -0,0 +1,169 @@
+package ru.job4j.cars.service.participates;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.job4j.cars.model.*;
+import ru.job4j.cars.repository.CrudRepository;
+import ru.job4j.cars.repository.brand.BrandRepository;
+import ru.job4j.cars.repository.car.CarRepository;
+import ru.job4j.cars.repository.participates.ParticipatesRepository;
+import ru.job4j.cars.repository.post.PostRepository;
+import ru.job4j.cars.repository.user.UserRepository;
+
+import javax.transaction.Transactional;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ParticipationIndexTest {
+
+    private final SessionFactory sf
+            = new Configuration().configure("hibernate.cfg.xml").buildSessionFactory();
+
+    private CrudRepository crudRepository;
+    private ParticipatesRepository participatesRepository;
+    private PostRepository postRepository;
+    private ParticipationIndex participationIndex;
+    private User seller;
+
+    @BeforeEach
+    void setUp() {
+        crudRepository = new CrudRepository(sf);
+        participatesRepository = new ParticipatesRepository(crudRepository);
+        postRepository = new PostRepository(crudRepository);
+        participationIndex = new ParticipationIndex(participatesRepository, postRepository);
+        seller = saveUser("seller");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        Session session = sf.openSession();
+        session.beginTransaction();
+        session.createQuery("delete from Participates").executeUpdate();
+        session.createQuery("delete from Post").executeUpdate();
+        session.createQuery("delete from Car").executeUpdate();
+        session.createQuery("delete from Brand").executeUpdate();
+        session.createQuery("delete from User").executeUpdate();
+        session.getTransaction().commit();
+    }
+
+    private User saveUser(String login) {
+        User user = new User();
+        user.setLogin(login);
+        new UserRepository(crudRepository).create(user);
+        return user;
+    }
+
+    private Brand saveBrand(String name) {
+        Brand brand = new Brand();
+        brand.setName(name);
+        new BrandRepository(crudRepository).saveBrand(brand);
+        return brand;
+    }
+
+    private Post savePost(Brand brand) {
+        Car car = new Car();
+        car.setName(brand.getName());
+        car.setBrand(brand);
+        new CarRepository(crudRepository).saveCar(car);
+        Post post = new Post();
+        post.setDescription("description");
+        post.setCar(car);
+        post.setUser(seller);
+        postRepository.savePost(post);
+        return post;
+    }
+
+    private void subscribe(User user, Post post) {
+        Participates participates = new Participates();
+        participates.setUser(user);
+        participates.setPost(post);
+        participatesRepository.saveParticipates(participates);
+    }
+
+    /**
+     * Позитивный тест индекса: подписки из таблицы загружаются, новые подписки видны без перезагрузки
+     */
+    @Test
+    void whenLoadAndSubscribeThenMembershipAndCount() {
+        Post post = savePost(saveBrand("Toyota"));
+        User first = saveUser("first");
+        User second = saveUser("second");
+        subscribe(first, post);
+        participationIndex.load();
+
+        subscribe(second, post);
+
+        assertThat(participationIndex.isSubscribed(post.getId(), first.getId())).isTrue();
+        assertThat(participationIndex.isSubscribed(post.getId(), second.getId())).isTrue();
+        assertThat(participationIndex.isSubscribed(post.getId(), seller.getId())).isFalse();
+        assertThat(participationIndex.countSubscribers(post.getId())).isEqualTo(2);
+    }
+
+    /**
+     * Позитивный тест групп объявлений: подписчики любого объявления марки и подписчики всех объявлений
+     */
+    @Test
+    void whenSubscribersOfBrandThenUnionOfPosts() {
+        Brand toyota = saveBrand("Toyota");
+        Post first = savePost(toyota);
+        Post second = savePost(toyota);
+        Post other = savePost(saveBrand("BMW"));
+        User both = saveUser("both");
+        User one = saveUser("one");
+        User bmw = saveUser("bmw");
+        subscribe(both, first);
+        subscribe(both, second);
+        subscribe(one, second);
+        subscribe(bmw, other);
+
+        assertThat(participationIndex.getSubscribersOfBrand(toyota.getId()).toArray())
+                .containsExactly(both.getId(), one.getId());
+        assertThat(participationIndex.getSubscribersOfAll(List.of(first.getId(), second.getId())).toArray())
+                .containsExactly(both.getId());
+    }
+
+    /**
+     * Негативный тест индекса: у объявления без подписок нет подписчиков
+     */
+    @Test
+    void whenPostWithoutSubscriptionsThenEmpty() {
+        Post post = savePost(saveBrand("Toyota"));
+
+        assertThat(participationIndex.countSubscribers(post.getId())).isZero();
+        assertThat(participationIndex.isSubscribed(post.getId(), seller.getId())).isFalse();
+        assertThat(participationIndex.getSubscribersOfAll(List.of(post.getId())).isEmpty()).isTrue();
+    }
+
+    /**
+     * Позитивный тест индекса: после записи объявления его подписчики перечитываются, удаленное объявление отбрасывается
+     */
+    @Test
+    void whenPostSavedOrDeletedThenIndexFollowsTable() {
+        Post post = savePost(saveBrand("Toyota"));
+        User first = saveUser("first");
+        User second = saveUser("second");
+        subscribe(first, post);
+        participationIndex.load();
+
+        subscribe(second, post);
+        crudRepository.run("delete from Participates where user.id = :userId", Map.of("userId", first.getId()));
+        postRepository.updatePost(post);
+        assertThat(participationIndex.getSubscribersOfAny(List.of(post.getId())).toArray())
+                .containsExactly(second.getId());
+
+        crudRepository.run("delete from Participates", Map.of());
+        postRepository.deletePostById(post.getId());
+        assertThat(participationIndex.countSubscribers(post.getId())).isZero();
+    }
+}
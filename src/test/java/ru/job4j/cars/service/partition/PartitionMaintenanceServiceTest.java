@@ -0,0 +1,28 @@
+package ru.job4j.cars.service.partition;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.job4j.cars.repository.CrudRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PartitionMaintenanceServiceTest {
+
+    private final SessionFactory sf
+            = new Configuration().configure("hibernate.cfg.xml").buildSessionFactory();
+
+    /**
+     * Негативный тест обслуживания партиций: в H2 партиций нет, обслуживание пропускается
+     */
+    @Test
+    void whenNotPostgreSqlThenMaintenanceSkipped() {
+        PartitionMaintenanceService service = new PartitionMaintenanceService(new CrudRepository(sf), 3, 24);
+
+        assertThat(service.maintain()).isFalse();
+    }
+}
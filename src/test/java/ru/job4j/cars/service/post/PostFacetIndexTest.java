@@ -0,0 +1,73 @@
+package ru.job4j.cars.service.post;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.repository.post.PostFacts;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostFacetIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    /**
+     * Позитивный тест битового индекса: марки объединяются через ИЛИ, фасеты пересекаются через И
+     */
+    @Test
+    void whenSelectThenValuesUnitedAndFacetsIntersected() {
+        PostFacetIndex index = new PostFacetIndex();
+        index.put(new PostFacts(1, "BMW", "V8", NOW, true, 600_000L));
+        index.put(new PostFacts(2, "AUDI", "V6", NOW, false, 600_000L));
+        index.put(new PostFacts(3, "LADA", null, NOW.minusDays(40), true, null));
+        PostFacetQuery query = new PostFacetQuery();
+        query.setBrands(Set.of("BMW", "AUDI"));
+        query.setWithPhoto(true);
+
+        PostFacetIndex.Selection selection = index.select(query, NOW);
+
+        assertThat(selection.ids(null, 10)).isEqualTo(List.of(1L));
+        assertThat(selection.getFacets().getBrands()).isEqualTo(Map.of("BMW", 1, "LADA", 1));
+        assertThat(selection.getFacets().getPhoto()).isEqualTo(Map.of(true, 1, false, 1));
+        assertThat(selection.getFacets().getAges()).containsEntry(PostAge.DAY, 1).containsEntry(PostAge.MONTH, 1);
+    }
+
+    /**
+     * Позитивный тест битового индекса: страницы по убыванию id от курсора
+     */
+    @Test
+    void whenIdsFromCursorThenDescendingBelowCursor() {
+        PostFacetIndex index = new PostFacetIndex();
+        for (long id = 1; id <= 5; id++) {
+            index.put(new PostFacts(id, "BMW", "V8", NOW, false, 100L));
+        }
+
+        PostFacetIndex.Selection selection = index.select(new PostFacetQuery(), NOW);
+
+        assertThat(selection.ids(null, 2)).isEqualTo(List.of(5L, 4L));
+        assertThat(selection.ids(4L, 10)).isEqualTo(List.of(3L, 2L, 1L));
+        assertThat(selection.ids(1L, 10)).isEmpty();
+    }
+
+    /**
+     * Негативный тест битового индекса: замененные и удаленные признаки не находятся
+     */
+    @Test
+    void whenReplaceAndRemoveThenOldFactsNotFound() {
+        PostFacetIndex index = new PostFacetIndex();
+        index.put(new PostFacts(1, "BMW", "V8", NOW, true, 100L));
+        index.put(new PostFacts(2, "BMW", "V8", NOW, true, 100L));
+        PostFacetQuery query = new PostFacetQuery();
+        query.setBrands(Set.of("BMW"));
+
+        index.put(new PostFacts(1, "AUDI", "V8", NOW, false, 100L));
+        index.remove(2);
+
+        assertThat(index.select(query, NOW).ids(null, 10)).isEmpty();
+        assertThat(index.select(new PostFacetQuery(), NOW).getFacets().getBrands()).isEqualTo(Map.of("AUDI", 1));
+        assertThat(index.size()).isEqualTo(1);
+    }
+}
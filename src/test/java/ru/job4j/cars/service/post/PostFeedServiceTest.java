@@ -0,0 +1,162 @@
+package ru.job4j.cars.service.post;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.job4j.cars.model.*;
+import ru.job4j.cars.repository.CrudRepository;
+import ru.job4j.cars.repository.KeysetPage;
+import ru.job4j.cars.repository.brand.BrandRepository;
+import ru.job4j.cars.repository.car.CarRepository;
+import ru.job4j.cars.repository.photo.PhotoRepository;
+import ru.job4j.cars.repository.post.PostRepository;
+import ru.job4j.cars.repository.post.PostSummary;
+import ru.job4j.cars.repository.pricehistory.PriceHistoryRepository;
+import ru.job4j.cars.repository.user.UserRepository;
+
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class PostFeedServiceTest {
+
+    private final SessionFactory sf
+            = new Configuration().configure("hibernate.cfg.xml").buildSessionFactory();
+
+    private PostRepository postRepository;
+    private PriceHistoryRepository priceHistoryRepository;
+    private PhotoRepository photoRepository;
+    private PostFeedService postFeedService;
+    private User user;
+    private Car car;
+
+    @BeforeEach
+    public void setUp() {
+        CrudRepository crudRepository = new CrudRepository(sf);
+        postRepository = new PostRepository(crudRepository);
+        priceHistoryRepository = new PriceHistoryRepository(crudRepository);
+        photoRepository = new PhotoRepository(crudRepository);
+        postFeedService = new PostFeedService(postRepository, priceHistoryRepository, photoRepository);
+        user = new User();
+        user.setLogin("test");
+        new UserRepository(crudRepository).create(user);
+        Brand brand = new Brand();
+        brand.setName("BMW");
+        new BrandRepository(crudRepository).saveBrand(brand);
+        car = new Car();
+        car.setName("X5");
+        car.setBrand(brand);
+        new CarRepository(crudRepository).saveCar(car);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        Session session = sf.openSession();
+        session.beginTransaction();
+        session.createQuery("delete from Photo").executeUpdate();
+        session.createQuery("delete from PriceRollup").executeUpdate();
+        session.createQuery("delete from PriceHistory").executeUpdate();
+        session.createQuery("delete from Post").executeUpdate();
+        session.createQuery("delete from Car").executeUpdate();
+        session.createQuery("delete from Brand").executeUpdate();
+        session.createQuery("delete from User").executeUpdate();
+        session.getTransaction().commit();
+    }
+
+    private Post savePost(String description, LocalDateTime created) {
+        Post post = new Post();
+        post.setDescription(description);
+        post.setCar(car);
+        post.setUser(user);
+        post.setCreated(created);
+        postRepository.savePost(post);
+        return post;
+    }
+
+    /**
+     * Позитивный тест ленты: после загрузки лента читается без запросов к базе
+     */
+    @Test
+    void whenFeedLoadedThenServedWithoutDatabase() {
+        Post first = savePost("first", LocalDateTime.now());
+        Post second = savePost("second", LocalDateTime.now().minusHours(2));
+        savePost("old", LocalDateTime.now().minusDays(2));
+        postFeedService.getPostsForLastDay();
+        long statements = sf.getStatistics().getPrepareStatementCount();
+
+        KeysetPage<PostSummary> firstPage = postFeedService.getPostsForLastDayPage(null, 1);
+        KeysetPage<PostSummary> secondPage = postFeedService.getPostsForLastDayPage(firstPage.getNextCursor(), 1);
+
+        assertThat(sf.getStatistics().getPrepareStatementCount()).isEqualTo(statements);
+        assertThat(firstPage.getItems()).extracting(PostSummary::getId).containsExactly(second.getId());
+        assertThat(secondPage.getItems()).extracting(PostSummary::getId).containsExactly(first.getId());
+        assertThat(secondPage.hasNext()).isFalse();
+        assertThat(firstPage.getItems().get(0).getBrandName()).isEqualTo("BMW");
+    }
+
+    /**
+     * Позитивный тест ленты: созданные, измененные и удаленные объявления отражаются в ленте
+     */
+    @Test
+    void whenPostsChangedThenFeedUpdated() {
+        Post updated = savePost("before", LocalDateTime.now());
+        Post deleted = savePost("deleted", LocalDateTime.now());
+        postFeedService.getPostsForLastDay();
+
+        Post created = savePost("created", LocalDateTime.now());
+        updated.setDescription("after");
+        postRepository.updatePost(updated);
+        postRepository.deletePostById(deleted.getId());
+
+        assertThat(postFeedService.getPostsForLastDay())
+                .extracting(PostSummary::getId, PostSummary::getDescription)
+                .containsExactly(
+                        tuple(created.getId(), "created"),
+                        tuple(updated.getId(), "after"));
+    }
+
+    /**
+     * Позитивный тест ленты: цена и число фото, сохраненные отдельно от объявления, отражаются в карточке
+     */
+    @Test
+    void whenPriceAndPhotoSavedThenCardUpdated() {
+        Post post = savePost("post", LocalDateTime.now());
+        postFeedService.getPostsForLastDay();
+
+        PriceHistory history = new PriceHistory();
+        history.setBefore(700_000L);
+        history.setAfter(650_000L);
+        history.setPost(post);
+        priceHistoryRepository.savePriceHistory(history);
+        Photo photo = new Photo();
+        photo.setPath("photo.jpg");
+        photo.setPost(post);
+        photoRepository.savePhoto(photo);
+
+        assertThat(postFeedService.getPostsForLastDay())
+                .extracting(PostSummary::getPrice, PostSummary::getPhotoCount)
+                .containsExactly(tuple(650_000L, 1));
+    }
+
+    /**
+     * Негативный тест ленты: объявления старше суток в ленту не попадают и снимаются при обрезке
+     */
+    @Test
+    void whenPostOlderThanDayThenNotInFeed() {
+        postFeedService.getPostsForLastDay();
+        savePost("old", LocalDateTime.now().minusDays(2));
+
+        assertThat(postFeedService.getPostsForLastDay()).isEmpty();
+        assertThat(postFeedService.trim()).isZero();
+    }
+}
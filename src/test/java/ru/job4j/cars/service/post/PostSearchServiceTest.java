@@ -0,0 +1,276 @@
+package ru.job4j.cars.service.post;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.job4j.cars.model.*;
+import ru.job4j.cars.repository.CrudRepository;
+import ru.job4j.cars.repository.brand.BrandRepository;
+import ru.job4j.cars.repository.car.CarRepository;
+import ru.job4j.cars.repository.photo.PhotoRepository;
+import ru.job4j.cars.repository.post.PostFacts;
+import ru.job4j.cars.repository.post.PostRepository;
+import ru.job4j.cars.repository.pricehistory.PriceHistoryRepository;
+import ru.job4j.cars.repository.user.UserRepository;
+
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class PostSearchServiceTest {
+
+    private final SessionFactory sf
+            = new Configuration().configure("hibernate.cfg.xml").buildSessionFactory();
+
+    private PostRepository postRepository;
+    private PriceHistoryRepository priceHistoryRepository;
+    private PhotoRepository photoRepository;
+    private CarRepository carRepository;
+    private BrandRepository brandRepository;
+    private PostSearchService postSearchService;
+    private CrudRepository crudRepository;
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        crudRepository = new CrudRepository(sf);
+        postRepository = new PostRepository(crudRepository);
+        carRepository = new CarRepository(crudRepository);
+        brandRepository = new BrandRepository(crudRepository);
+        priceHistoryRepository = new PriceHistoryRepository(crudRepository);
+        photoRepository = new PhotoRepository(crudRepository);
+        postSearchService = new PostSearchService(postRepository, priceHistoryRepository, photoRepository);
+        user = new User();
+        user.setLogin("test");
+        new UserRepository(crudRepository).create(user);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        Session session = sf.openSession();
+        session.beginTransaction();
+        session.createQuery("delete from Photo").executeUpdate();
+        session.createQuery("delete from PriceRollup").executeUpdate();
+        session.createQuery("delete from PriceHistory").executeUpdate();
+        session.createQuery("delete from Post").executeUpdate();
+        session.createQuery("delete from Car").executeUpdate();
+        session.createQuery("delete from Engine").executeUpdate();
+        session.createQuery("delete from Brand").executeUpdate();
+        session.createQuery("delete from User").executeUpdate();
+        session.getTransaction().commit();
+    }
+
+    private Car saveCar(String brandName, String engineName) {
+        Brand brand = new Brand();
+        brand.setName(brandName);
+        brandRepository.saveBrand(brand);
+        Engine engine = new Engine();
+        engine.setName(engineName);
+        Car car = new Car();
+        car.setName(brandName);
+        car.setBrand(brand);
+        car.setEngine(engine);
+        carRepository.saveCar(car);
+        return car;
+    }
+
+    private Post savePost(Car car, Long price, boolean withPhoto, LocalDateTime created) {
+        Post post = new Post();
+        post.setDescription("Продам");
+        post.setCar(car);
+        post.setUser(user);
+        post.setCreated(created);
+        if (price != null) {
+            PriceHistory history = new PriceHistory();
+            history.setBefore(price);
+            history.setAfter(price);
+            history.setPost(post);
+            post.getPriceHistories().add(history);
+        }
+        if (withPhoto) {
+            Photo photo = new Photo();
+            photo.setPath("photo.jpg");
+            photo.setPost(post);
+            post.getPhotos().add(photo);
+        }
+        postRepository.savePost(post);
+        return post;
+    }
+
+    /**
+     * Позитивный тест фасетного поиска: фильтр по марке, счетчики фасетов без собственного фильтра
+     */
+    @Test
+    void whenSearchByBrandThenPostsAndFacetsCounted() {
+        Car bmw = saveCar("BMW", "V8");
+        Car audi = saveCar("AUDI", "V6");
+        LocalDateTime now = LocalDateTime.now();
+        Post first = savePost(bmw, 600_000L, true, now);
+        Post second = savePost(bmw, 1_500_000L, false, now.minusDays(10));
+        savePost(audi, 400_000L, true, now);
+        PostFacetQuery query = new PostFacetQuery();
+        query.setBrands(Set.of("BMW"));
+
+        PostSearchResult result = postSearchService.search(query, null, 10);
+
+        assertThat(result.getPage().getItems()).containsExactly(second, first);
+        assertThat(result.getFacets().getTotal()).isEqualTo(2);
+        assertThat(result.getFacets().getBrands()).isEqualTo(Map.of("AUDI", 1, "BMW", 2));
+        assertThat(result.getFacets().getEngines()).isEqualTo(Map.of("V8", 2));
+        assertThat(result.getFacets().getPhoto()).isEqualTo(Map.of(true, 1, false, 1));
+        assertThat(result.getFacets().getPrices()).containsEntry(500_000L, 1).containsEntry(1_000_000L, 1);
+        assertThat(result.getFacets().getAges()).containsEntry(PostAge.DAY, 1).containsEntry(PostAge.MONTH, 2);
+    }
+
+    /**
+     * Позитивный тест фасетного поиска: сочетание фильтров и страницы по курсору
+     */
+    @Test
+    void whenSearchWithCombinedFiltersThenPaged() {
+        Car bmw = saveCar("BMW", "V8");
+        LocalDateTime now = LocalDateTime.now();
+        Post first = savePost(bmw, 700_000L, true, now);
+        Post second = savePost(bmw, 800_000L, true, now);
+        savePost(bmw, 900_000L, false, now);
+        savePost(bmw, 2_000_000L, true, now);
+        savePost(bmw, 750_000L, true, now.minusDays(3));
+        PostFacetQuery query = new PostFacetQuery();
+        query.setMinPrice(600_000L);
+        query.setMaxPrice(1_000_000L);
+        query.setWithPhoto(true);
+        query.setAge(PostAge.DAY);
+
+        PostSearchResult firstPage = postSearchService.search(query, null, 1);
+        PostSearchResult secondPage = postSearchService.search(query, firstPage.getPage().getNextCursor(), 1);
+
+        assertThat(firstPage.getFacets().getTotal()).isEqualTo(2);
+        assertThat(firstPage.getPage().getItems()).containsExactly(second);
+        assertThat(secondPage.getPage().getItems()).containsExactly(first);
+        assertThat(secondPage.getPage().hasNext()).isFalse();
+    }
+
+    /**
+     * Позитивный тест синхронизации индекса: созданные, измененные и удаленные объявления учитываются
+     */
+    @Test
+    void whenPostsChangedAfterLoadThenIndexUpdated() {
+        Car bmw = saveCar("BMW", "V8");
+        Car audi = saveCar("AUDI", "V6");
+        Post updated = savePost(bmw, 600_000L, false, LocalDateTime.now());
+        Post deleted = savePost(bmw, null, false, LocalDateTime.now());
+        PostFacetQuery query = new PostFacetQuery();
+        query.setBrands(Set.of("BMW"));
+        assertThat(postSearchService.search(query, null, 10).getFacets().getTotal()).isEqualTo(2);
+
+        Post created = savePost(bmw, 600_000L, false, LocalDateTime.now());
+        updated.setCar(audi);
+        postRepository.updatePost(updated);
+        postRepository.deletePostById(deleted.getId());
+        PostSearchResult result = postSearchService.search(query, null, 10);
+
+        assertThat(result.getPage().getItems()).containsExactly(created);
+        assertThat(result.getFacets().getBrands()).isEqualTo(Map.of("AUDI", 1, "BMW", 1));
+    }
+
+    /**
+     * Позитивный тест синхронизации индекса: новые цена и фото, сохраненные отдельно от объявления, учитываются
+     */
+    @Test
+    void whenPriceAndPhotoSavedAfterLoadThenIndexUpdated() {
+        Post post = savePost(saveCar("BMW", "V8"), 600_000L, false, LocalDateTime.now());
+        PostFacetQuery query = new PostFacetQuery();
+        query.setMinPrice(1_000_000L);
+        query.setWithPhoto(true);
+        assertThat(postSearchService.search(query, null, 10).getFacets().getTotal()).isZero();
+
+        PriceHistory history = new PriceHistory();
+        history.setBefore(600_000L);
+        history.setAfter(1_500_000L);
+        history.setPost(post);
+        priceHistoryRepository.savePriceHistory(history);
+        Photo photo = new Photo();
+        photo.setPath("photo.jpg");
+        photo.setPost(post);
+        photoRepository.savePhoto(photo);
+        assertThat(postSearchService.search(query, null, 10).getPage().getItems()).containsExactly(post);
+
+        photoRepository.deletePhotoById(photo.getId());
+        assertThat(postSearchService.search(query, null, 10).getFacets().getTotal()).isZero();
+    }
+
+    /**
+     * Позитивный тест загрузки индекса: цена, сохраненная во время потоковой загрузки, не затирается прочитанной ранее
+     */
+    @Test
+    void whenPriceSavedDuringLoadThenFreshPriceWins() throws Exception {
+        Post post = savePost(saveCar("BMW", "V8"), 600_000L, false, LocalDateTime.now());
+        CountDownLatch committed = new CountDownLatch(1);
+        priceHistoryRepository.addListener(histories -> committed.countDown());
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        List<Future<?>> writes = new ArrayList<>();
+        PostRepository slowStream = new PostRepository(crudRepository) {
+            @Override
+            public void streamAllPostFacts(Consumer<PostFacts> consumer) {
+                List<PostFacts> stale = new ArrayList<>();
+                super.streamAllPostFacts(stale::add);
+                writes.add(writer.submit(() -> {
+                    PriceHistory history = new PriceHistory();
+                    history.setBefore(600_000L);
+                    history.setAfter(1_500_000L);
+                    history.setPost(post);
+                    priceHistoryRepository.savePriceHistory(history);
+                }));
+                try {
+                    assertThat(committed.await(30, TimeUnit.SECONDS)).isTrue();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                stale.forEach(consumer);
+            }
+        };
+        PostSearchService service = new PostSearchService(slowStream, priceHistoryRepository, photoRepository);
+        PostFacetQuery query = new PostFacetQuery();
+        query.setMinPrice(1_000_000L);
+
+        service.search(query, null, 10);
+        writes.get(0).get(30, TimeUnit.SECONDS);
+        writer.shutdown();
+
+        assertThat(service.search(query, null, 10).getPage().getItems()).containsExactly(post);
+    }
+
+    /**
+     * Негативный тест фасетного поиска: неизвестная марка дает пустую выдачу
+     */
+    @Test
+    void whenSearchByUnknownBrandThenEmpty() {
+        savePost(saveCar("BMW", "V8"), 600_000L, false, LocalDateTime.now());
+        PostFacetQuery query = new PostFacetQuery();
+        query.setBrands(Set.of("LADA"));
+
+        PostSearchResult result = postSearchService.search(query, null, 10);
+
+        assertThat(result.getPage().getItems()).isEmpty();
+        assertThat(result.getFacets().getTotal()).isZero();
+        assertThat(result.getFacets().getBrands()).isEqualTo(Map.of("BMW", 1));
+    }
+}
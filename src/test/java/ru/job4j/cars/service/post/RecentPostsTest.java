@@ -0,0 +1,74 @@
+package ru.job4j.cars.service.post;
+
+import org.junit.jupiter.api.Test;
+import ru.job4j.cars.repository.post.PostSummary;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentPostsTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private static PostSummary summary(long id, LocalDateTime created) {
+        return new PostSummary(id, "description " + id, created, "car", "BMW", null, 0);
+    }
+
+    private static List<Long> ids(List<PostSummary> summaries) {
+        return summaries.stream().map(PostSummary::getId).toList();
+    }
+
+    /**
+     * Позитивный тест кольцевого буфера: карточки упорядочены по id при вставке не по порядку и после роста
+     */
+    @Test
+    void whenPutOutOfOrderAndGrowThenOrderedById() {
+        RecentPosts posts = new RecentPosts();
+        for (long id = 2000; id >= 1; id--) {
+            posts.put(summary(id, NOW));
+        }
+        posts.put(summary(1500, NOW));
+
+        assertThat(posts.size()).isEqualTo(2000);
+        assertThat(ids(posts.page(NOW, null, 3))).isEqualTo(List.of(2000L, 1999L, 1998L));
+        assertThat(ids(posts.page(NOW, 3L, 10))).isEqualTo(List.of(2L, 1L));
+    }
+
+    /**
+     * Позитивный тест кольцевого буфера: устаревшие снимаются с головы, голова проходит по кругу
+     */
+    @Test
+    void whenTrimThenOldRemovedAndRingWraps() {
+        RecentPosts posts = new RecentPosts();
+        for (long id = 1; id <= 1000; id++) {
+            posts.put(summary(id, NOW.minusHours(2)));
+        }
+        int trimmed = posts.trim(NOW.minusHours(1));
+        for (long id = 1001; id <= 1100; id++) {
+            posts.put(summary(id, NOW));
+        }
+
+        assertThat(trimmed).isEqualTo(1000);
+        assertThat(posts.size()).isEqualTo(100);
+        assertThat(ids(posts.page(NOW, 1003L, 10))).isEqualTo(List.of(1002L, 1001L));
+    }
+
+    /**
+     * Негативный тест кольцевого буфера: удаленные и устаревшие карточки не попадают в ленту
+     */
+    @Test
+    void whenRemovedOrOlderThanSinceThenNotInPage() {
+        RecentPosts posts = new RecentPosts();
+        posts.put(summary(1, NOW));
+        posts.put(summary(2, NOW.minusDays(2)));
+        posts.put(summary(3, NOW));
+
+        posts.remove(3);
+        posts.remove(42);
+
+        assertThat(ids(posts.page(NOW.minusDays(1), null, 10))).isEqualTo(List.of(1L));
+        assertThat(posts.trim(NOW.minusDays(1))).isZero();
+    }
+}